@@ -1,5 +1,6 @@
 plugins {
     id("java")
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "cn.ncw.music"
@@ -33,7 +34,30 @@ dependencies {
     implementation("org.apache.logging.log4j:log4j-slf4j-impl:2.25.3")
 }
 
+// PCM内核的向量化实现使用孵化模块，编译和运行时都需要显式加载
+val vectorModule = "--add-modules=jdk.incubator.vector"
+
+tasks.withType<JavaCompile>().configureEach {
+    options.compilerArgs.add(vectorModule)
+}
+
+tasks.withType<JavaExec>().configureEach {
+    jvmArgs(vectorModule)
+}
+
 tasks.test {
     useJUnitPlatform()
+    jvmArgs(vectorModule)
+}
+
+// 性能基准测试：./gradlew jmh，只运行部分基准：./gradlew jmh -PjmhIncludes=SeekBenchmark
+jmh {
+    // 记录分配速率，用于确认热路径稳定运行时无分配
+    profilers.add("gc")
+    jvmArgs.add(vectorModule)
+    // 按版本号保存JSON结果，用于对比不同版本之间的性能回退
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results-${project.version}.json"))
+    findProperty("jmhIncludes")?.let { includes.add(it.toString()) }
 }
 
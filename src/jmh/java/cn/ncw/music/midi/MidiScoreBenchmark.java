@@ -0,0 +1,93 @@
+package cn.ncw.music.midi;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.midi.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 乐谱生成基准测试：合成的多音轨MIDI文件（含和弦、速度变化和不同时值）
+ * <p>
+ * 结果为解析一个文件并写出乐谱的耗时。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MidiScoreBenchmark {
+
+    private static final int RESOLUTION = 480;
+    private static final int[] DURATIONS = {RESOLUTION / 4, RESOLUTION / 2, RESOLUTION, RESOLUTION * 3 / 2, RESOLUTION * 2};
+
+    @Param({"10000", "100000"})
+    public int notesPerTrack;
+
+    @Param({"4"})
+    public int tracks;
+
+    private File midiFile;
+    private File scoreFile;
+
+    @Setup
+    public void setup() throws Exception {
+        midiFile = File.createTempFile("ncw-jmh", ".mid");
+        scoreFile = File.createTempFile("ncw-jmh", ".txt");
+
+        Sequence sequence = new Sequence(Sequence.PPQ, RESOLUTION);
+        Random random = new Random(42);
+        Track conductor = sequence.createTrack();
+        conductor.add(new MidiEvent(meta(0x03, "Benchmark".getBytes()), 0));
+        conductor.add(new MidiEvent(meta(0x58, new byte[]{4, 2, 24, 8}), 0));
+        conductor.add(new MidiEvent(meta(0x59, new byte[]{0, 0}), 0));
+
+        long lastTick = 0;
+        for (int t = 0; t < tracks; t++) {
+            Track track = sequence.createTrack();
+            track.add(new MidiEvent(new ShortMessage(ShortMessage.PROGRAM_CHANGE, t, t * 8, 0), 0));
+            long tick = 0;
+            for (int n = 0; n < notesPerTrack; ) {
+                int duration = DURATIONS[random.nextInt(DURATIONS.length)];
+                // 约四分之一的位置为三音和弦
+                int voices = random.nextInt(4) == 0 ? 3 : 1;
+                int root = 48 + random.nextInt(24);
+                for (int v = 0; v < voices && n < notesPerTrack; v++, n++) {
+                    int pitch = root + v * 4;
+                    track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, t, pitch, 80), tick));
+                    track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_OFF, t, pitch, 0), tick + duration));
+                }
+                tick += duration;
+            }
+            lastTick = Math.max(lastTick, tick);
+        }
+
+        // 每约100小节变化一次速度
+        for (long tick = 0; tick < lastTick; tick += RESOLUTION * 4L * 100) {
+            int bpm = 90 + random.nextInt(60);
+            int micros = 60_000_000 / bpm;
+            conductor.add(new MidiEvent(meta(0x51, new byte[]{(byte) (micros >> 16), (byte) (micros >> 8), (byte) micros}), tick));
+        }
+
+        MidiSystem.write(sequence, 1, midiFile);
+    }
+
+    private static MetaMessage meta(int type, byte[] data) throws InvalidMidiDataException {
+        return new MetaMessage(type, data, data.length);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(midiFile.toPath());
+        Files.deleteIfExists(scoreFile.toPath());
+    }
+
+    @Benchmark
+    public void generateMusicScore() throws Exception {
+        AdvancedMidiParser.generateMusicScore(midiFile.getPath(), scoreFile.getPath());
+    }
+}
@@ -0,0 +1,74 @@
+package cn.ncw.music.stream;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * 基准测试用的合成音频文件（正弦波），写入临时目录
+ */
+final class BenchmarkAudioFiles {
+
+    private BenchmarkAudioFiles() {
+    }
+
+    /**
+     * 生成16位立体声正弦波文件
+     *
+     * @param type    文件类型：wav、aiff、au（Java Sound 可直接写出的类型）
+     * @param seconds 时长（秒）
+     */
+    static File sine(File directory, String type, float sampleRate, int seconds) throws IOException {
+        AudioFileFormat.Type fileType = switch (type) {
+            case "wav" -> AudioFileFormat.Type.WAVE;
+            case "aiff" -> AudioFileFormat.Type.AIFF;
+            case "au" -> AudioFileFormat.Type.AU;
+            default -> throw new IllegalArgumentException("不支持生成的文件类型: " + type);
+        };
+        // AIFF和AU只支持大端
+        boolean bigEndian = !"wav".equals(type);
+        AudioFormat format = new AudioFormat(sampleRate, 16, 2, true, bigEndian);
+
+        int frames = (int) (sampleRate * seconds);
+        byte[] data = new byte[frames * format.getFrameSize()];
+        for (int i = 0; i < frames; i++) {
+            short sample = (short) (12000 * Math.sin(2 * Math.PI * 440 * i / sampleRate));
+            byte high = (byte) (sample >> 8);
+            byte low = (byte) sample;
+            int offset = i * 4;
+            data[offset] = bigEndian ? high : low;
+            data[offset + 1] = bigEndian ? low : high;
+            data[offset + 2] = data[offset];
+            data[offset + 3] = data[offset + 1];
+        }
+
+        File file = new File(directory, "sine-" + seconds + "s-" + (int) sampleRate + "." + type);
+        try (AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(data), format, frames)) {
+            AudioSystem.write(stream, fileType, file);
+        }
+        return file;
+    }
+
+    static File createDirectory() throws IOException {
+        return Files.createTempDirectory("ncw-jmh").toFile();
+    }
+
+    static void deleteDirectory(File directory) throws IOException {
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
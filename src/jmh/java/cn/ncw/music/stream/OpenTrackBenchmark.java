@@ -0,0 +1,54 @@
+package cn.ncw.music.stream;
+
+import cn.ncw.logger.log.NCWLoggerFactory;
+import cn.ncw.music.stream.output.NullAudioSink;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 打开曲目的基准测试：从停止状态开始播放再停止
+ * <p>
+ * 包括解析文件头、选择数据源（内存映射/通道/Java Sound）、打开输出和启动/停止播放线程。
+ * 输出不限速，不等待设备；缓存关闭，每次都重新打开文件。
+ * 覆盖 Java Sound 可直接写出的格式；mp3、flac 需要在类路径中加入对应的解码 SPI 才能测试。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpenTrackBenchmark {
+
+    @Param({"wav", "aiff", "au"})
+    public String type;
+
+    @Param({"44100", "48000"})
+    public float sampleRate;
+
+    private File directory;
+    private File track;
+    private AdvancedStreamAudioPlayer player;
+
+    @Setup
+    public void setup() throws Exception {
+        directory = BenchmarkAudioFiles.createDirectory();
+        track = BenchmarkAudioFiles.sine(directory, type, sampleRate, 180);
+        player = new AdvancedStreamAudioPlayer(new NullAudioSink(), new NCWLoggerFactory("Benchmark"));
+        player.setPcmCache(null);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        player.shutdown();
+        BenchmarkAudioFiles.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public void playAndStop() throws Exception {
+        player.play(track);
+        player.stop();
+    }
+}
@@ -0,0 +1,109 @@
+package cn.ncw.music.stream;
+
+import cn.ncw.logger.log.NCWLoggerFactory;
+import cn.ncw.music.stream.output.NullAudioSink;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 播放循环基准测试：解码线程读取、写入线程写入不限速的丢弃输出
+ * <p>
+ * 每次操作完整播放一首合成曲目，覆盖 play → 预解码 → streamPlayback 写入 → 播放完成的全过程。
+ * 曲目时长除以结果即为相对实时的倍速。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlaybackLoopBenchmark {
+
+    @Param({"wav", "au"})
+    public String type;
+
+    @Param({"30"})
+    public int seconds;
+
+    private File directory;
+    private File track;
+    private AdvancedStreamAudioPlayer player;
+    private volatile CountDownLatch finished;
+
+    @Setup
+    public void setup() throws Exception {
+        directory = BenchmarkAudioFiles.createDirectory();
+        track = BenchmarkAudioFiles.sine(directory, type, 44100, seconds);
+        player = new AdvancedStreamAudioPlayer(new NullAudioSink(), new NCWLoggerFactory("Benchmark"));
+        // 测量解码和写入，不测量缓存命中
+        player.setPcmCache(null);
+        player.addPlaybackEventListener(new AdvancedStreamAudioPlayer.PlaybackEventListener() {
+            @Override
+            public void onPlaybackStarted(File file) {
+            }
+
+            @Override
+            public void onPlaybackPaused() {
+            }
+
+            @Override
+            public void onPlaybackResumed() {
+            }
+
+            @Override
+            public void onPlaybackStopped() {
+            }
+
+            @Override
+            public void onPlaybackFinished() {
+                CountDownLatch latch = finished;
+                if (latch != null) {
+                    latch.countDown();
+                }
+            }
+
+            @Override
+            public void onTrackChanged(File previous, File next) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+            }
+
+            @Override
+            public void onPositionChanged(double position) {
+            }
+
+            @Override
+            public void onVolumeChanged(double volume) {
+            }
+
+            @Override
+            public void onPlayModeChanged(AdvancedStreamAudioPlayer.PlayMode newMode) {
+            }
+
+            @Override
+            public void onPlaylistUpdated() {
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        player.shutdown();
+        BenchmarkAudioFiles.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public void playTrack() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        finished = latch;
+        player.play(track);
+        if (!latch.await(seconds, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("播放未在曲目时长内完成");
+        }
+    }
+}
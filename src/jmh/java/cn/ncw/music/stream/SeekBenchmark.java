@@ -0,0 +1,56 @@
+package cn.ncw.music.stream;
+
+import cn.ncw.logger.log.NCWLoggerFactory;
+import cn.ncw.music.stream.output.NullAudioSink;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 跳转基准测试：播放中跳转到曲目的不同位置
+ * <p>
+ * 输出按实时速度消费，跳转时预解码管道和输出缓冲区中都有待丢弃的数据，与实际播放时的代价一致。
+ * 每次操作交替跳转到目标位置和曲目开头，避免重复跳转到同一位置。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SeekBenchmark {
+
+    @Param({"wav", "aiff", "au"})
+    public String type;
+
+    @Param({"0.1", "0.5", "0.9"})
+    public double position;
+
+    private File directory;
+    private AdvancedStreamAudioPlayer player;
+    private long targetFrame;
+    private boolean toTarget;
+
+    @Setup
+    public void setup() throws Exception {
+        directory = BenchmarkAudioFiles.createDirectory();
+        File track = BenchmarkAudioFiles.sine(directory, type, 44100, 600);
+        player = new AdvancedStreamAudioPlayer(NullAudioSink.paced(), new NCWLoggerFactory("Benchmark"));
+        player.setPcmCache(null);
+        player.play(track);
+        targetFrame = (long) (44100 * 600 * position);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        player.shutdown();
+        BenchmarkAudioFiles.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public boolean seek() {
+        toTarget = !toTarget;
+        return player.seekToFrame(toTarget ? targetFrame : 0);
+    }
+}
@@ -0,0 +1,59 @@
+package cn.ncw.music.stream;
+
+import cn.ncw.logger.log.NCWLoggerFactory;
+import cn.ncw.music.stream.output.LatencyProfile;
+import cn.ncw.music.stream.output.NullAudioSink;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 随机播放模式下切到下一首的基准测试
+ * <p>
+ * 播放列表的每一项都指向同一个短曲目，每次操作调用 {@link AdvancedStreamAudioPlayer#nextTrack()}，
+ * 包括计算随机顺序中的下一首、打开曲目和写入线程在数据块边界切换数据源。
+ * 输出按实时速度消费并使用低延迟档位，切换最多等待一个5毫秒的数据块。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShuffleBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int playlistSize;
+
+    private File directory;
+    private AdvancedStreamAudioPlayer player;
+
+    @Setup
+    public void setup() throws Exception {
+        directory = BenchmarkAudioFiles.createDirectory();
+        File track = BenchmarkAudioFiles.sine(directory, "wav", 44100, 600);
+        player = new AdvancedStreamAudioPlayer(NullAudioSink.paced(), new NCWLoggerFactory("Benchmark"));
+        player.setLatencyProfile(LatencyProfile.LOW_LATENCY);
+        List<File> files = new ArrayList<>(playlistSize);
+        for (int i = 0; i < playlistSize; i++) {
+            files.add(track);
+        }
+        player.addToPlaylist(files);
+        player.setPlayMode(AdvancedStreamAudioPlayer.PlayMode.SHUFFLE);
+        player.play(0);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        player.shutdown();
+        BenchmarkAudioFiles.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public void nextTrack() {
+        player.nextTrack();
+    }
+}
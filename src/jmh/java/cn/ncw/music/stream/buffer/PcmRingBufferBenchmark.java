@@ -0,0 +1,87 @@
+package cn.ncw.music.stream.buffer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PcmRingBuffer 吞吐量基准测试
+ * <p>
+ * 生产者与消费者各占一个线程，每次操作尝试传输一个数据块。
+ * 实际传输的字节数通过辅助计数器 bytesWritten/bytesRead 以字节/秒报告；
+ * 配合 gc 分析器确认 gc.alloc.rate.norm 为 0。
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PcmRingBufferBenchmark {
+
+    @Param({"4096", "16384"})
+    public int chunkSize;
+
+    @Param({"1048576"})
+    public int capacity;
+
+    private PcmRingBuffer ringBuffer;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ProducerState {
+        byte[] chunk;
+        public long bytesWritten;
+
+        @Setup(Level.Iteration)
+        public void setup(PcmRingBufferBenchmark benchmark) {
+            chunk = new byte[benchmark.chunkSize];
+            bytesWritten = 0;
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ConsumerState {
+        byte[] chunk;
+        public long bytesRead;
+
+        @Setup(Level.Iteration)
+        public void setup(PcmRingBufferBenchmark benchmark) {
+            chunk = new byte[benchmark.chunkSize];
+            bytesRead = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        ringBuffer = new PcmRingBuffer(capacity);
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public int write(ProducerState state) {
+        int written = ringBuffer.write(state.chunk, 0, state.chunk.length);
+        state.bytesWritten += written;
+        if (written == 0) {
+            Thread.onSpinWait();
+        }
+        return written;
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public int read(ConsumerState state, Blackhole blackhole) {
+        int read = ringBuffer.read(state.chunk, 0, state.chunk.length);
+        state.bytesRead += read;
+        if (read == 0) {
+            Thread.onSpinWait();
+        } else {
+            blackhole.consume(state.chunk[0]);
+        }
+        return read;
+    }
+}
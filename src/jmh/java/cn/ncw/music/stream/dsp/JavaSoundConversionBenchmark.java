@@ -0,0 +1,66 @@
+package cn.ncw.music.stream.dsp;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对照组：通过 AudioSystem.getAudioInputStream(targetFormat, ...) 转换同样大小的数据块
+ * <p>
+ * 与 {@link PcmKernelBenchmark} 的 toFloat16 / swapEndian16 对应，包含每次创建转换流的开销，
+ * 这也是播放器原先打开非线路格式文件时的实际用法。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JavaSoundConversionBenchmark {
+
+    private static final AudioFormat FLOAT32 = new AudioFormat(AudioFormat.Encoding.PCM_FLOAT,
+            44100f, 32, 2, 8, 44100f, false);
+    private static final AudioFormat PCM16_BE = new AudioFormat(44100f, 16, 2, true, true);
+
+    @Param({"4096"})
+    public int frames;
+
+    private byte[] pcm16;
+    private byte[] output;
+
+    @Setup
+    public void setup() {
+        pcm16 = new byte[frames * PcmKernelBenchmark.PCM16.getFrameSize()];
+        new Random(42).nextBytes(pcm16);
+        output = new byte[frames * FLOAT32.getFrameSize()];
+    }
+
+    private int convert(AudioFormat target) throws IOException {
+        AudioInputStream source = new AudioInputStream(new ByteArrayInputStream(pcm16),
+                PcmKernelBenchmark.PCM16, frames);
+        try (AudioInputStream converted = AudioSystem.getAudioInputStream(target, source)) {
+            int total = 0;
+            int n;
+            while (total < output.length && (n = converted.read(output, total, output.length - total)) > 0) {
+                total += n;
+            }
+            return total;
+        }
+    }
+
+    @Benchmark
+    public int toFloat16() throws IOException {
+        return convert(FLOAT32);
+    }
+
+    @Benchmark
+    public int swapEndian16() throws IOException {
+        return convert(PCM16_BE);
+    }
+}
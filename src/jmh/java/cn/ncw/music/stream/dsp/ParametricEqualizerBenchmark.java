@@ -0,0 +1,53 @@
+package cn.ncw.music.stream.dsp;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 软件均衡器基准测试：48 kHz 立体声，每次处理一个数据块
+ * <p>
+ * 一秒音频约为 48000 / frames 个数据块，据此换算CPU占用比例。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParametricEqualizerBenchmark {
+
+    @Param({"1024"})
+    public int frames;
+
+    @Param({"1", "10"})
+    public int activeBands;
+
+    private ParametricEqualizer equalizer;
+    private float[] source;
+    private float[] buffer;
+
+    @Setup
+    public void setup() {
+        equalizer = ParametricEqualizer.graphic();
+        equalizer.configure(48000f, 2);
+        for (int i = 0; i < activeBands; i++) {
+            equalizer.setBandGain(i, i % 2 == 0 ? 6 : -6);
+        }
+
+        Random random = new Random(42);
+        source = new float[frames * 2];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = random.nextFloat() * 2 - 1;
+        }
+        buffer = new float[frames * 2];
+    }
+
+    @Benchmark
+    public float[] process() {
+        System.arraycopy(source, 0, buffer, 0, buffer.length);
+        equalizer.process(buffer, 0, frames);
+        return buffer;
+    }
+}
@@ -0,0 +1,101 @@
+package cn.ncw.music.stream.dsp;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PCM内核基准测试：标量实现与向量化实现对比
+ * <p>
+ * 每次操作处理一个立体声数据块；Java Sound 转换流的对照见 {@link JavaSoundConversionBenchmark}。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PcmKernelBenchmark {
+
+    static final AudioFormat PCM16 = new AudioFormat(44100f, 16, 2, true, false);
+    static final AudioFormat PCM24 = new AudioFormat(44100f, 24, 2, true, false);
+
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    @Param({"4096"})
+    public int frames;
+
+    private PcmKernel pcmKernel;
+    private byte[] pcm16;
+    private byte[] pcm24;
+    private float[] samples;
+    private float[] other;
+
+    @Setup
+    public void setup() {
+        pcmKernel = "vector".equals(kernel) ? PcmKernels.vector() : PcmKernels.scalar();
+        if (pcmKernel == null) {
+            throw new IllegalStateException("jdk.incubator.vector 模块未加载");
+        }
+
+        int count = frames * 2;
+        Random random = new Random(42);
+        pcm16 = new byte[count * 2];
+        pcm24 = new byte[count * 3];
+        random.nextBytes(pcm16);
+        random.nextBytes(pcm24);
+        samples = new float[count];
+        other = new float[count];
+        for (int i = 0; i < count; i++) {
+            samples[i] = random.nextFloat() * 2 - 1;
+            other[i] = random.nextFloat() * 2 - 1;
+        }
+    }
+
+    @Benchmark
+    public float[] toFloat16() {
+        pcmKernel.toFloat(PCM16, pcm16, 0, samples, 0, frames * 2);
+        return samples;
+    }
+
+    @Benchmark
+    public float[] toFloat24() {
+        pcmKernel.toFloat(PCM24, pcm24, 0, samples, 0, frames * 2);
+        return samples;
+    }
+
+    @Benchmark
+    public byte[] fromFloat16() {
+        pcmKernel.fromFloat(other, 0, PCM16, pcm16, 0, frames * 2);
+        return pcm16;
+    }
+
+    @Benchmark
+    public byte[] swapEndian16() {
+        pcmKernel.swapEndian(pcm16, 0, frames * 2, 2);
+        return pcm16;
+    }
+
+    @Benchmark
+    public float[] gainRamp() {
+        // 每次从原始数据开始，避免反复衰减成非规格化数影响测量
+        System.arraycopy(other, 0, samples, 0, frames * 2);
+        pcmKernel.applyGainRamp(samples, 0, frames, 2, 0.25f, 0.75f);
+        return samples;
+    }
+
+    @Benchmark
+    public float[] mix() {
+        pcmKernel.mix(samples, 0, other, 0, frames * 2, 0.5f);
+        return samples;
+    }
+
+    @Benchmark
+    public float[] clip() {
+        pcmKernel.clip(samples, 0, frames * 2);
+        return samples;
+    }
+}
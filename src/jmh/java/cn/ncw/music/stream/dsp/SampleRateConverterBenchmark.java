@@ -0,0 +1,54 @@
+package cn.ncw.music.stream.dsp;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 重采样基准测试：立体声，每次操作送入一个数据块
+ * <p>
+ * 结果为每秒处理的输入帧数，除以输入采样率即为实时倍数。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SampleRateConverterBenchmark {
+
+    @Param({"4096"})
+    public int frames;
+
+    @Param({"FAST", "MEDIUM", "HIGH", "BEST"})
+    public SampleRateConverter.Quality quality;
+
+    @Param({"44100:48000", "48000:44100", "44100:96000"})
+    public String conversion;
+
+    private SampleRateConverter converter;
+    private float[] input;
+    private float[] output;
+
+    @Setup
+    public void setup() {
+        String[] rates = conversion.split(":");
+        converter = new SampleRateConverter(Double.parseDouble(rates[0]), Double.parseDouble(rates[1]),
+                2, quality, frames);
+
+        Random random = new Random(42);
+        input = new float[frames * 2];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = random.nextFloat() * 2 - 1;
+        }
+        output = new float[converter.getMaxOutputFrames(frames) * 2];
+    }
+
+    // 按帧计数，需与 frames 参数保持一致
+    @Benchmark
+    @OperationsPerInvocation(4096)
+    public int process() {
+        return converter.process(input, 0, frames, output, 0);
+    }
+}
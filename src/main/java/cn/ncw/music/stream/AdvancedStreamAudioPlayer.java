@@ -1,6 +1,27 @@
 package cn.ncw.music.stream;
 
 import cn.ncw.logger.log.NCWLoggerFactory;
+import cn.ncw.music.stream.control.CommandQueue;
+import cn.ncw.music.stream.dsp.CrossfadeMixer;
+import cn.ncw.music.stream.dsp.ParametricEqualizer;
+import cn.ncw.music.stream.dsp.PcmKernel;
+import cn.ncw.music.stream.dsp.PcmKernels;
+import cn.ncw.music.stream.dsp.SampleRateConverter;
+import cn.ncw.music.stream.event.PlaybackEvent;
+import cn.ncw.music.stream.event.PlaybackEventBus;
+import cn.ncw.music.stream.metrics.PlaybackHealthMonitor;
+import cn.ncw.music.stream.output.AdaptiveBufferSizer;
+import cn.ncw.music.stream.output.AudioSink;
+import cn.ncw.music.stream.output.FirstSampleTimer;
+import cn.ncw.music.stream.output.LatencyProfile;
+import cn.ncw.music.stream.output.LineAudioSink;
+import cn.ncw.music.stream.output.WavFileSink;
+import cn.ncw.music.stream.pipeline.DecodeAheadPipeline;
+import cn.ncw.music.stream.position.PlaybackClock;
+import cn.ncw.music.stream.position.PositionReporter;
+import cn.ncw.music.stream.source.PcmCache;
+import cn.ncw.music.stream.source.PcmSource;
+import cn.ncw.music.stream.source.PcmSources;
 import lombok.Getter;
 
 import javax.sound.sampled.*;
@@ -11,7 +32,8 @@ import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * 多功能流式媒体播放器 - 支持多种音频格式和高级功能
@@ -68,12 +90,22 @@ public class AdvancedStreamAudioPlayer {
     // 常量配置
     private static final int DEFAULT_BUFFER_SIZE = 8192;
     private static final double DEFAULT_VOLUME = 0.8;
-    private static final int POSITION_UPDATE_THRESHOLD = 1000; // 位置更新阈值（帧）
+    private static final int DEFAULT_READ_AHEAD_DEPTH = 8; // 预解码深度（数据块）
+    private static final long CHUNK_POLL_TIMEOUT_MS = 50; // 写入线程等待数据块的超时时间
+    private static final double DEFAULT_GAPLESS_PRELOAD_SECONDS = 5.0; // 无缝播放预加载提前量（秒）
+    private static final int RENDER_BLOCK_FRAMES = 65536; // 离线渲染每个数据块的帧数
+    private static final int RENDER_TRACK_BUFFER_BYTES = 4 * 1024 * 1024; // 离线渲染每首曲目最多缓冲的字节数
+    private static final long SCHEDULE_LEAD_NANOS = 50_000_000L; // 定时开始时提前启动设备的时间
+    private static final int KERNEL_WARM_UP_ITERATIONS = 200; // 定时开始前预热音效内核的数据块数
 
     // 核心音频组件
-    private volatile SourceDataLine sourceDataLine;
+    // 音频输出（设备、文件、内存等），activeSink 在输出打开期间指向它，其余时间为null
+    private final AudioSink audioSink;
+    private volatile AudioSink activeSink;
+    private volatile SinkLease sinkLease;
+    private final FirstSampleTimer firstSampleTimer = new FirstSampleTimer();
     private volatile Thread playbackThread;
-    private volatile AudioInputStream audioStream;
+    private volatile PcmSource audioSource;
     private final Object audioStreamLock = new Object();
 
     // 播放控制
@@ -81,15 +113,93 @@ public class AdvancedStreamAudioPlayer {
     private final AtomicBoolean paused = new AtomicBoolean(false);
     @Getter
     private volatile PlaybackState playbackState = PlaybackState.STOPPED;
-    private final Object playControlLock = new Object();
+    // 暂停、恢复、跳转、音量命令由写入线程在数据块边界执行，暂停时写入线程挂起（park）
+    private final CommandQueue commandQueue = new CommandQueue();
+    // 切换曲目：每次播放请求递增，较早的未完成请求被取代；渲染循环运行期间由写入线程原地切换数据源
+    private final AtomicLong switchRequests = new AtomicLong(0);
+    private final Object switchLock = new Object();
+    private volatile RenderLoop renderLoop;
+    // 尚未开始的异步切换只保留最新一个，由同一个后台任务依次执行
+    private final AtomicReference<PendingSwitch> pendingSwitch = new AtomicReference<>();
+    private final AtomicBoolean switchWorkerActive = new AtomicBoolean(false);
+
+    /**
+     * 等待后台执行的播放请求
+     */
+    private record PendingSwitch(File file, long request, CompletableFuture<Void> done) {
+    }
+
+    /**
+     * 运行中的渲染循环：所属写入线程和播放会话，原地切换曲目时由该写入线程更新会话
+     */
+    private static final class RenderLoop {
+        final Thread thread = Thread.currentThread();
+        long session; // 仅所属写入线程访问
+
+        RenderLoop(long session) {
+            this.session = session;
+        }
+    }
+
+    /**
+     * 写入线程对输出的使用权，每次打开输出时创建，释放输出前撤销
+     * <p>
+     * 写入在持有租约时进行；撤销后写入直接返回-1，撤销等待正在进行的写入返回（最多一个数据块），
+     * 已被放弃的旧写入线程的数据不会落入之后被复用的输出。
+     */
+    private static final class SinkLease {
+        final AudioSink sink;
+        private volatile boolean revoked;
+
+        SinkLease(AudioSink sink) {
+            this.sink = sink;
+        }
+
+        synchronized int write(byte[] data, int offset, int length) throws IOException {
+            return revoked ? -1 : sink.write(data, offset, length);
+        }
+
+        synchronized void flush() {
+            if (!revoked) {
+                sink.flush();
+            }
+        }
+
+        boolean isRevoked() {
+            return revoked;
+        }
+
+        void revoke() {
+            revoked = true;
+            // 唤醒阻塞在输出缓冲区上的写入，再等待它返回
+            sink.flush();
+            synchronized (this) {
+                // 之后的写入看到 revoked 直接返回
+            }
+        }
+    }
 
     // 音频信息
-    private File currentAudioFile;
+    private volatile File currentAudioFile;
     private AudioFormat originalFormat;
     @Getter
     private final AtomicLong totalFrames = new AtomicLong(0);
     @Getter
-    private final AtomicLong currentFrame = new AtomicLong(0);
+    private final AtomicLong currentFrame = new AtomicLong(0); // 已写入设备的曲目帧位置
+    private final PlaybackClock playbackClock = new PlaybackClock(); // 已听到的曲目帧位置
+    private volatile boolean clockResync; // 下一次写入前按设备位置重新锚定播放时钟
+
+    // 定时开始和停止
+    private boolean startScheduled;           // 启动写入线程前设置
+    private long scheduledStartNanos;         // 启动写入线程前设置
+    private volatile long scheduledStartLateNanos;
+    private volatile ScheduledStop scheduledStop;
+
+    /**
+     * 定时停止点：写入到设备帧位置 deviceFrame 为止
+     */
+    private record ScheduledStop(long deviceFrame, CompletableFuture<Void> done) {
+    }
     private int frameSize;
 
     // 音量控制
@@ -100,6 +210,12 @@ public class AdvancedStreamAudioPlayer {
     private float maxVolume;
     @Getter
     private boolean volumeSupported = false;
+    // 设备没有音量控件时改用软件增益（写入线程在写入设备前处理）
+    @Getter
+    private volatile boolean softwareVolume = false;
+    private final PcmKernel pcmKernel = PcmKernels.get();
+    private float appliedSoftwareGain = Float.NaN; // 仅写入线程访问
+    private float[] gainBuffer;                    // 仅写入线程访问
 
     // 播放列表管理
     private final PlaylistManager playlistManager;
@@ -108,22 +224,86 @@ public class AdvancedStreamAudioPlayer {
     private final Map<String, FloatControl> soundControls = new ConcurrentHashMap<>();
     @Getter
     private boolean equalizerSupported = false;
+    // 软件均衡器（十段，音效名 EQ_31HZ ... EQ_16KHZ，值为dB）
+    @Getter
+    private final ParametricEqualizer equalizer = ParametricEqualizer.graphic();
+    private static final String EQUALIZER_EFFECT_PREFIX = "EQ_";
 
     // 事件系统
     private final PlaybackEventPublisher eventPublisher;
+    private final PositionReporter positionReporter;
 
     // 统计信息
     private final AtomicLong totalPlayTime = new AtomicLong(0);
-    private volatile long startTime = 0;
+    private volatile long startTime = 0; // 本段播放开始时间，暂停或停止时为0
+    private final PlaybackHealthMonitor healthMonitor = new PlaybackHealthMonitor();
     private final Map<String, AtomicInteger> playCount = new ConcurrentHashMap<>();
 
     // 线程池
     private final ExecutorService executorService;
+    private final boolean ownsExecutor;
     private final AtomicBoolean executorShutdown = new AtomicBoolean(false);
+    private final PlayerExecutors.Mode threadingMode;
+    private final ThreadFactory decoderThreadFactory;
+    private final ThreadFactory writerThreadFactory;
 
     // 缓冲控制
-    private final byte[] audioBuffer;
+    private byte[] audioBuffer;          // 开始播放时按最大数据块分配，写入线程使用
     private final int bufferSize;
+    private volatile int readAheadDepth = DEFAULT_READ_AHEAD_DEPTH;
+    private volatile DecodeAheadPipeline decodePipeline;
+
+    // 延迟档位：未选择时使用构造时指定的数据块大小和设备默认缓冲区
+    private volatile LatencyProfile latencyProfile;
+    private volatile boolean adaptiveBuffering = false;
+    private final AdaptiveBufferSizer bufferSizer = new AdaptiveBufferSizer();
+    // 本次播放换算出的大小（字节，整帧），开始播放时计算，自适应时由写入线程调整
+    private volatile boolean adaptiveActive;
+    private volatile int baseChunkBytes;
+    private volatile int chunkBytes;
+    private volatile int baseTargetBufferBytes;   // 0表示不限制，写满设备缓冲区
+    private volatile int targetBufferBytes;
+
+    // 已解码PCM缓存（默认使用进程内共享实例）
+    private volatile PcmCache pcmCache = PcmCache.shared();
+
+    // 无缝播放
+    private volatile boolean gaplessEnabled = false;
+    private volatile double gaplessPreloadSeconds = DEFAULT_GAPLESS_PRELOAD_SECONDS;
+    private final AtomicLong playSession = new AtomicLong(0);
+    private final AtomicReference<PreparedTrack> preparedTrack = new AtomicReference<>();
+    private final Queue<TrackBoundary> pendingBoundaries = new ConcurrentLinkedQueue<>();
+    private long decodedSourceFrames;    // 仅解码线程访问（持有audioStreamLock）
+    private boolean nextTrackRequested;  // 仅解码线程访问（持有audioStreamLock）
+
+    // 交叉淡入淡出（以下状态均在持有audioStreamLock时访问）
+    private volatile double crossfadeSeconds = 0;
+    private PcmSource fadeOutSource;          // 正在淡出的上一首
+    private PreparedTrack requestedCrossfade; // 手动切歌请求的淡入曲目
+    private long fadePosition;
+    private long fadeLength;
+    private byte[] fadeBuffer;
+    private final CrossfadeMixer crossfadeMixer = new CrossfadeMixer(pcmKernel);
+    private boolean crossfadeAttempted;
+
+    // 统一输出采样率，0表示使用曲目原采样率
+    private volatile float outputSampleRate = 0;
+    private volatile SampleRateConverter.Quality resamplerQuality = SampleRateConverter.Quality.HIGH;
+    // 播放数据的帧率（重采样后与文件原始格式不同），用于帧与时间的换算
+    private volatile float playbackFrameRate;
+
+    /**
+     * 预先打开的下一首曲目
+     */
+    private record PreparedTrack(long session, int index, File file, PcmSource source) {
+    }
+
+    /**
+     * 曲目衔接点：写入线程读到该位置时切换当前曲目信息
+     */
+    private record TrackBoundary(long position, int index, File file,
+                                 AudioFormat sourceFormat, float frameRate, long totalFrames) {
+    }
 
     /**
      * 内部类：线程安全的Double值
@@ -299,6 +479,53 @@ public class AdvancedStreamAudioPlayer {
             }
         }
 
+        /**
+         * 按当前播放模式从当前曲目开始播放一遍的曲目顺序（单曲循环只包含当前曲目）
+         */
+        public List<Integer> getRenderOrder() {
+            int size = playlist.size();
+            if (size == 0) {
+                return Collections.emptyList();
+            }
+            int start = currentIndex.get();
+            if (start < 0 || start >= size) {
+                start = 0;
+            }
+
+            List<Integer> order = new ArrayList<>(size);
+            switch (playMode) {
+                case REPEAT_ONE:
+                    order.add(start);
+                    break;
+
+                case REPEAT_ALL:
+                    for (int i = 0; i < size; i++) {
+                        order.add((start + i) % size);
+                    }
+                    break;
+
+                case SHUFFLE:
+                    if (!shuffleGenerated.get()) {
+                        generateShuffleList();
+                    }
+                    int shuffleStart = findCurrentShuffleIndex();
+                    synchronized (shuffleLock) {
+                        for (int i = 0; i < shuffleIndices.size(); i++) {
+                            order.add(shuffleIndices.get((shuffleStart + i) % shuffleIndices.size()));
+                        }
+                    }
+                    break;
+
+                case NORMAL:
+                default:
+                    for (int i = start; i < size; i++) {
+                        order.add(i);
+                    }
+                    break;
+            }
+            return order;
+        }
+
         public int size() {
             return playlist.size();
         }
@@ -333,81 +560,108 @@ public class AdvancedStreamAudioPlayer {
 
     /**
      * 事件发布器 - 职责分离
+     * <p>
+     * 事件写入 {@link PlaybackEventBus}，每个监听器有独立的投递线程，按发布顺序串行收到事件；
+     * 慢监听器只积压自己的事件，位置事件按背压策略合并或丢弃，状态事件不丢弃。
      */
     private class PlaybackEventPublisher {
-        private final List<PlaybackEventListener> listeners = new CopyOnWriteArrayList<>();
-        private final ExecutorService executor;
+        private final PlaybackEventBus bus;
+        private final Map<PlaybackEventListener, Flow.Subscription> listeners = new ConcurrentHashMap<>();
 
-        public PlaybackEventPublisher(ExecutorService executor) {
-            this.executor = executor;
+        public PlaybackEventPublisher(ThreadFactory threadFactory) {
+            this.bus = new PlaybackEventBus(threadFactory, logger);
         }
 
         public void addListener(PlaybackEventListener listener) {
-            listeners.add(listener);
+            if (listener == null) {
+                throw new IllegalArgumentException("监听器不能为空");
+            }
+            listeners.computeIfAbsent(listener, l -> bus.subscribe(
+                    (type, sequence, file, previousFile, value, detail) ->
+                            dispatch(l, type, file, previousFile, value, detail)));
         }
 
         public void removeListener(PlaybackEventListener listener) {
-            listeners.remove(listener);
+            Flow.Subscription subscription = listeners.remove(listener);
+            if (subscription != null) {
+                subscription.cancel();
+            }
         }
 
         public void removeAllListeners() {
-            listeners.clear();
+            for (PlaybackEventListener listener : listeners.keySet()) {
+                removeListener(listener);
+            }
         }
 
         public void firePlaybackStarted(File file) {
-            fireEvent(listener -> listener.onPlaybackStarted(file), "onPlaybackStarted");
+            bus.publish(PlaybackEvent.Type.STARTED, file, null, 0, null);
         }
 
         public void firePlaybackPaused() {
-            fireEvent(PlaybackEventListener::onPlaybackPaused, "onPlaybackPaused");
+            bus.publish(PlaybackEvent.Type.PAUSED);
         }
 
         public void firePlaybackResumed() {
-            fireEvent(PlaybackEventListener::onPlaybackResumed, "onPlaybackResumed");
+            bus.publish(PlaybackEvent.Type.RESUMED);
         }
 
         public void firePlaybackStopped() {
-            fireEvent(PlaybackEventListener::onPlaybackStopped, "onPlaybackStopped");
+            bus.publish(PlaybackEvent.Type.STOPPED);
         }
 
         public void firePlaybackFinished() {
-            fireEvent(PlaybackEventListener::onPlaybackFinished, "onPlaybackFinished");
+            bus.publish(PlaybackEvent.Type.FINISHED);
         }
 
         public void fireTrackChanged(File previous, File next) {
-            fireEvent(listener -> listener.onTrackChanged(previous, next), "onTrackChanged");
+            bus.publish(PlaybackEvent.Type.TRACK_CHANGED, next, previous, 0, null);
         }
 
         public void fireError(Exception e) {
-            fireEvent(listener -> listener.onError(e), "onError");
+            bus.publish(PlaybackEvent.Type.ERROR, null, null, 0, e);
         }
 
         public void firePositionChanged(double position) {
-            fireEvent(listener -> listener.onPositionChanged(position), "onPositionChanged");
+            bus.publish(PlaybackEvent.Type.POSITION, null, null, position, null);
         }
 
         public void fireVolumeChanged(double volume) {
-            fireEvent(listener -> listener.onVolumeChanged(volume), "onVolumeChanged");
+            bus.publish(PlaybackEvent.Type.VOLUME, null, null, volume, null);
         }
 
         public void firePlayModeChanged(PlayMode newMode) {
-            fireEvent(listener -> listener.onPlayModeChanged(newMode), "onPlayModeChanged");
+            bus.publish(PlaybackEvent.Type.PLAY_MODE, null, null, 0, newMode);
         }
 
         public void firePlaylistUpdated() {
-            fireEvent(PlaybackEventListener::onPlaylistUpdated, "onPlaylistUpdated");
+            bus.publish(PlaybackEvent.Type.PLAYLIST_UPDATED);
         }
 
-        private void fireEvent(Consumer<PlaybackEventListener> action, String eventName) {
-            executor.submit(() -> {
-                for (PlaybackEventListener listener : listeners) {
-                    try {
-                        action.accept(listener);
-                    } catch (Exception e) {
-                        logger.error("Error in listener during " + eventName + " event", "fireEvent", e);
-                    }
+        public void close() {
+            listeners.clear();
+            bus.close();
+        }
+
+        private void dispatch(PlaybackEventListener listener, PlaybackEvent.Type type,
+                              File file, File previousFile, double value, Object detail) {
+            try {
+                switch (type) {
+                    case STARTED -> listener.onPlaybackStarted(file);
+                    case PAUSED -> listener.onPlaybackPaused();
+                    case RESUMED -> listener.onPlaybackResumed();
+                    case STOPPED -> listener.onPlaybackStopped();
+                    case FINISHED -> listener.onPlaybackFinished();
+                    case TRACK_CHANGED -> listener.onTrackChanged(previousFile, file);
+                    case ERROR -> listener.onError((Exception) detail);
+                    case POSITION -> listener.onPositionChanged(value);
+                    case VOLUME -> listener.onVolumeChanged(value);
+                    case PLAY_MODE -> listener.onPlayModeChanged((PlayMode) detail);
+                    case PLAYLIST_UPDATED -> listener.onPlaylistUpdated();
                 }
-            });
+            } catch (Exception e) {
+                logger.error("Error in listener during " + type + " event", "fireEvent", e);
+            }
         }
     }
 
@@ -439,22 +693,108 @@ public class AdvancedStreamAudioPlayer {
      * 可配置缓冲大小的构造函数
      */
     public AdvancedStreamAudioPlayer(int bufferSize, NCWLoggerFactory loggerFactory) {
+        this(bufferSize, PlayerExecutors.platform(), loggerFactory);
+    }
+
+    /**
+     * 指定线程配置的构造函数
+     * <p>
+     * 同一JVM中创建大量播放器时，可使用 {@link PlayerExecutors#virtual()} 或注入共享执行器，
+     * 避免每个播放器各自持有平台线程池。
+     */
+    public AdvancedStreamAudioPlayer(int bufferSize, PlayerExecutors executors, NCWLoggerFactory loggerFactory) {
+        this(bufferSize, new LineAudioSink(), executors, loggerFactory);
+    }
+
+    /**
+     * 指定音频输出的构造函数
+     * <p>
+     * 可输出到声卡（{@link LineAudioSink}）、WAV文件、内存缓冲区，或直接丢弃（无声卡的服务器和基准测试）。
+     */
+    public AdvancedStreamAudioPlayer(AudioSink audioSink, NCWLoggerFactory loggerFactory) {
+        this(DEFAULT_BUFFER_SIZE, audioSink, PlayerExecutors.platform(), loggerFactory);
+    }
+
+    /**
+     * 完整配置的构造函数
+     */
+    @SuppressWarnings("this-escape") // 位置报告器只在 start() 之后的报告线程上读取位置，此时构造已完成
+    public AdvancedStreamAudioPlayer(int bufferSize, AudioSink audioSink, PlayerExecutors executors,
+                                     NCWLoggerFactory loggerFactory) {
+        if (audioSink == null) {
+            throw new IllegalArgumentException("音频输出不能为空");
+        }
+        if (executors == null) {
+            throw new IllegalArgumentException("线程配置不能为空");
+        }
         this.logger = loggerFactory;
+        this.audioSink = audioSink;
         this.bufferSize = bufferSize > 0 ? bufferSize : DEFAULT_BUFFER_SIZE;
-        this.audioBuffer = new byte[this.bufferSize];
         this.playlistManager = new PlaylistManager();
+        this.threadingMode = executors.mode();
+        boolean virtual = threadingMode == PlayerExecutors.Mode.VIRTUAL;
 
         // 初始化线程池
-        this.executorService = Executors.newCachedThreadPool(r -> {
-            Thread thread = new Thread(r);
-            thread.setDaemon(true);
-            thread.setName("AudioPlayer-Worker-" + thread.threadId());
-            thread.setUncaughtExceptionHandler((t, e) ->
-                    logger.error("Uncaught exception in AudioPlayer worker thread", "AudioPlayer", (Exception) e));
-            return thread;
-        });
+        if (executors.taskExecutor() != null) {
+            this.executorService = executors.taskExecutor();
+            this.ownsExecutor = false;
+        } else if (virtual) {
+            this.executorService = Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+                    .name("AudioPlayer-Worker-", 0)
+                    .uncaughtExceptionHandler(this::handleUncaughtException)
+                    .factory());
+            this.ownsExecutor = true;
+        } else {
+            this.executorService = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r);
+                thread.setDaemon(true);
+                thread.setName("AudioPlayer-Worker-" + thread.threadId());
+                thread.setUncaughtExceptionHandler(this::handleUncaughtException);
+                return thread;
+            });
+            this.ownsExecutor = true;
+        }
 
-        this.eventPublisher = new PlaybackEventPublisher(executorService);
+        // 解码线程只做磁盘读取和解码，虚拟线程模式下同样使用虚拟线程
+        if (executors.decoderThreadFactory() != null) {
+            this.decoderThreadFactory = executors.decoderThreadFactory();
+        } else if (virtual) {
+            this.decoderThreadFactory = Thread.ofVirtual().name("AudioPlayer-Decoder-", 0).factory();
+        } else {
+            this.decoderThreadFactory = Thread.ofPlatform().daemon().name("AudioPlayer-Decoder-", 0).factory();
+        }
+
+        // 设备写入线程始终为最高优先级的平台线程
+        this.writerThreadFactory = executors.writerThreadFactory() != null
+                ? executors.writerThreadFactory()
+                : Thread.ofPlatform().daemon().priority(Thread.MAX_PRIORITY).name("AudioPlayer-Playback-", 0).factory();
+
+        // 每个事件监听器一个投递线程
+        this.eventPublisher = new PlaybackEventPublisher(virtual
+                ? Thread.ofVirtual().name("AudioPlayer-Events-", 0).factory()
+                : Thread.ofPlatform().daemon().name("AudioPlayer-Events-", 0).factory());
+        this.positionReporter = new PositionReporter(this::getPlaybackProgress, eventPublisher::firePositionChanged,
+                virtual ? Thread.ofVirtual().name("AudioPlayer-Position-", 0).factory()
+                        : Thread.ofPlatform().daemon().name("AudioPlayer-Position-", 0).factory());
+    }
+
+    /**
+     * 等待命令完成，命令抛出的运行时异常原样抛出
+     */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void handleUncaughtException(Thread thread, Throwable e) {
+        logger.error("Uncaught exception in AudioPlayer worker thread", "AudioPlayer",
+                e instanceof Exception ex ? ex : new RuntimeException(e));
     }
 
     public void play(int index) throws UnsupportedAudioFileException,
@@ -482,14 +822,173 @@ public class AdvancedStreamAudioPlayer {
     }
 
     /**
-     * 播放指定文件
+     * 播放指定文件，切换完成后返回
+     * <p>
+     * 与 {@link #playAsync(File)} 相同，但在调用线程上打开文件；已被更新的播放请求取代时直接返回。
      */
     public void play(File file) throws UnsupportedAudioFileException,
             IOException, LineUnavailableException, InterruptedException {
         validateFile(file);
+        firstSampleTimer.markRequested();
+        try {
+            switchTrack(file, switchRequests.incrementAndGet());
+        } catch (CancellationException e) {
+            // 已被更新的播放请求取代
+        }
+    }
+
+    /**
+     * 异步播放指定文件，立即返回
+     * <p>
+     * 文件在后台打开和预读。正在播放且输出格式相同时，写入线程在下一个数据块边界切换数据源，
+     * 设备和写入线程保持运行，切换耗时不取决于上一首的线程何时退出；否则在后台重新打开设备。
+     * 连续切换时只有最后一次请求生效，之前尚未完成的请求以 {@link CancellationException} 结束。
+     *
+     * @return 开始播放新曲目时完成
+     */
+    public CompletableFuture<Void> playAsync(File file) {
+        validateFile(file);
+        firstSampleTimer.markRequested();
+        PendingSwitch next = new PendingSwitch(file, switchRequests.incrementAndGet(), new CompletableFuture<>());
+        PendingSwitch superseded = pendingSwitch.getAndSet(next);
+        if (superseded != null) {
+            superseded.done().completeExceptionally(supersededException());
+        }
+        scheduleSwitchWorker();
+        return next.done();
+    }
 
-        // 停止当前播放
-        stop();
+    private void scheduleSwitchWorker() {
+        if (!switchWorkerActive.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executorService.execute(this::runPendingSwitches);
+        } catch (RejectedExecutionException e) {
+            switchWorkerActive.set(false);
+            PendingSwitch rejected = pendingSwitch.getAndSet(null);
+            if (rejected != null) {
+                rejected.done().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void runPendingSwitches() {
+        try {
+            PendingSwitch next;
+            while ((next = pendingSwitch.getAndSet(null)) != null) {
+                try {
+                    switchTrack(next.file(), next.request());
+                    next.done().complete(null);
+                } catch (Throwable e) {
+                    next.done().completeExceptionally(e);
+                }
+            }
+        } finally {
+            switchWorkerActive.set(false);
+            if (pendingSwitch.get() != null) {
+                scheduleSwitchWorker();
+            }
+        }
+    }
+
+    /**
+     * 在指定时刻开始播放
+     * <p>
+     * 调用时即完成文件解析、打开设备和预解码，写入线程在开始时刻前启动设备并写入静音，
+     * 静音长度由设备帧位置和帧率换算，曲目第一帧在 startNanos 时刻输出。多个播放器使用同一时刻可同步开始。
+     * 开始前播放状态为 {@link PlaybackState#BUFFERING}；开始时刻已过时立即开始，延迟计入统计。
+     *
+     * @param startNanos 开始时刻（{@link System#nanoTime()} 时间）
+     */
+    public void playAt(File file, long startNanos) throws UnsupportedAudioFileException,
+            IOException, LineUnavailableException, InterruptedException {
+        playAt(file, startNanos, 0);
+    }
+
+    /**
+     * 在指定时刻从曲目的 startFrame 开始播放（如从提示点开始）
+     *
+     * @param startNanos 开始时刻（{@link System#nanoTime()} 时间）
+     * @param startFrame 曲目中的起始帧
+     */
+    public void playAt(File file, long startNanos, long startFrame) throws UnsupportedAudioFileException,
+            IOException, LineUnavailableException, InterruptedException {
+        if (startFrame < 0) {
+            throw new IllegalArgumentException("起始帧不能为负数");
+        }
+        validateFile(file);
+
+        // 先打开并检查起始帧，失败时当前播放不受影响
+        PcmSource source = openSource(file);
+        boolean handedOff = false;
+        try {
+            long total = getTotalFrames(source, file);
+            if (total > 0 && startFrame >= total) {
+                throw new IllegalArgumentException("起始帧超出曲目长度: " + startFrame);
+            }
+            switchRequests.incrementAndGet();
+            synchronized (switchLock) {
+                handedOff = true;
+                startPlayback(file, source, true, startNanos, startFrame);
+            }
+        } finally {
+            if (!handedOff) {
+                closeQuietly(source);
+            }
+        }
+    }
+
+    /**
+     * 切换到指定文件：先在当前线程打开数据源，再交给渲染循环原地切换，无法切换时重新开始播放
+     *
+     * @param request 播放请求序号，已被更新的请求取代时抛出 {@link CancellationException}
+     */
+    private void switchTrack(File file, long request)
+            throws UnsupportedAudioFileException, IOException, LineUnavailableException, InterruptedException {
+        checkSwitchRequest(request);
+        PcmSource source = openSource(file);
+        boolean handedOff = false;
+        try {
+            checkSwitchRequest(request);
+            if (renderLoop != null) {
+                // 写入线程在数据块边界执行，最多等待一个数据块
+                if (commandQueue.submit(() -> applySwitch(file, source, request)).join()) {
+                    handedOff = true;
+                    return;
+                }
+            }
+
+            synchronized (switchLock) {
+                checkSwitchRequest(request);
+                handedOff = true;
+                startPlayback(file, source, false, 0, 0);
+            }
+        } finally {
+            if (!handedOff) {
+                closeQuietly(source);
+            }
+        }
+    }
+
+    private void checkSwitchRequest(long request) {
+        if (switchRequests.get() != request) {
+            throw supersededException();
+        }
+    }
+
+    private static CancellationException supersededException() {
+        return new CancellationException("播放请求已被更新的请求取代");
+    }
+
+    /**
+     * @param source 已打开的数据源，为null时在此打开；调用后归播放器所有
+     */
+    private void startPlayback(File file, PcmSource source, boolean scheduled, long startNanos, long startFrame)
+            throws UnsupportedAudioFileException, IOException, LineUnavailableException, InterruptedException {
+        // 停止当前播放（同时开始新的播放会话）
+        File previous = currentAudioFile;
+        stopPlayback();
 
         // 更新当前文件
         currentAudioFile = file;
@@ -499,9 +998,22 @@ public class AdvancedStreamAudioPlayer {
                 .incrementAndGet();
 
         // 准备音频流
-        prepareAudioStream(file);
+        if (source != null) {
+            synchronized (audioStreamLock) {
+                closeAudioStream();
+                installAudioStream(file, source);
+            }
+        } else {
+            prepareAudioStream(file);
+        }
+        if (startFrame > 0) {
+            cueAudioStream(startFrame);
+        }
+        // 设备开始输出前位置停在起始帧
+        playbackClock.anchor(0, startFrame, 0);
 
         // 打开音频设备
+        configureBuffers(audioSource.getFormat());
         openAudioDevice();
 
         // 初始化控制功能
@@ -510,18 +1022,41 @@ public class AdvancedStreamAudioPlayer {
         // 设置播放状态
         playing.set(true);
         paused.set(false);
-        playbackState = PlaybackState.PLAYING;
-        startTime = System.currentTimeMillis();
+        startScheduled = scheduled;
+        scheduledStartNanos = startNanos;
+        if (scheduled) {
+            playbackState = PlaybackState.BUFFERING;
+        } else {
+            playbackState = PlaybackState.PLAYING;
+            startTime = System.currentTimeMillis();
+        }
 
         // 通知监听器
         eventPublisher.firePlaybackStarted(file);
+        if (previous != null) {
+            eventPublisher.fireTrackChanged(previous, file);
+        }
+        positionReporter.start();
 
         // 启动播放线程
         startPlaybackThread();
     }
 
+    /**
+     * 将刚打开的音频流定位到起始帧
+     */
+    private void cueAudioStream(long startFrame) throws IOException {
+        synchronized (audioStreamLock) {
+            audioSource.seekToFrame(startFrame);
+            currentFrame.set(startFrame);
+            decodedSourceFrames = startFrame;
+        }
+    }
+
     /**
      * 准备音频流
+     * <p>
+     * 未压缩且设备可直接播放的文件使用可随机访问的数据源，其余格式通过 Java Sound 解码转换。
      */
     private void prepareAudioStream(File file) throws UnsupportedAudioFileException, IOException {
         synchronized (audioStreamLock) {
@@ -529,192 +1064,732 @@ public class AdvancedStreamAudioPlayer {
             closeAudioStream();
 
             // 创建新流
-            audioStream = AudioSystem.getAudioInputStream(file);
-            originalFormat = audioStream.getFormat();
-
-            // 计算音频信息
-            long totalFramesValue = audioStream.getFrameLength();
-            if (totalFramesValue == AudioSystem.NOT_SPECIFIED) {
-                // 如果帧数未指定，尝试获取近似值
-                totalFramesValue = estimateTotalFrames(file.length(), originalFormat);
-            }
-            totalFrames.set(totalFramesValue);
-            frameSize = originalFormat.getFrameSize();
-            currentFrame.set(0);
-
-            // 格式转换（如果需要）
-            if (isFormatSupported(originalFormat)) {
-                AudioFormat targetFormat = new AudioFormat(
-                        AudioFormat.Encoding.PCM_SIGNED,
-                        originalFormat.getSampleRate(),
-                        16,
-                        originalFormat.getChannels(),
-                        originalFormat.getChannels() * 2,
-                        originalFormat.getSampleRate(),
-                        false
-                );
-                audioStream = AudioSystem.getAudioInputStream(targetFormat, audioStream);
-                frameSize = targetFormat.getFrameSize();
-                long convertedFrames = audioStream.getFrameLength();
-                if (convertedFrames != AudioSystem.NOT_SPECIFIED) {
-                    totalFrames.set(convertedFrames);
-                }
-            }
+            installAudioStream(file, openSource(file));
         }
     }
 
     /**
-     * 估算总帧数
+     * 将已打开的数据源设为当前音频流（持有audioStreamLock）
      */
-    private long estimateTotalFrames(long fileSize, AudioFormat format) {
-        if (frameSize <= 0) {
-            return 0;
-        }
-        return fileSize / frameSize;
+    private void installAudioStream(File file, PcmSource source) {
+        audioSource = source;
+        originalFormat = source.getSourceFormat();
+        playbackFrameRate = source.getFormat().getFrameRate();
+        frameSize = source.getFormat().getFrameSize();
+
+        // 计算音频信息
+        totalFrames.set(getTotalFrames(source, file));
+        currentFrame.set(0);
+        decodedSourceFrames = 0;
+        nextTrackRequested = false;
+        crossfadeAttempted = false;
     }
 
     /**
-     * 打开音频设备
+     * 打开曲目数据源，设置了统一输出采样率时按需重采样
      */
-    private void openAudioDevice() throws LineUnavailableException {
-        AudioFormat format = audioStream.getFormat();
-        DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
-        sourceDataLine = (SourceDataLine) AudioSystem.getLine(info);
-        sourceDataLine.open(format);
+    private PcmSource openSource(File file) throws UnsupportedAudioFileException, IOException {
+        return openSource(file, true);
     }
 
     /**
-     * 启动播放线程
+     * @param populateCache 缓存未命中时是否将解码数据放入缓存（只读取一遍时传入false，不累积整首曲目）
      */
-    private void startPlaybackThread() {
-        // 清理之前的线程
-        cleanupPlaybackThread();
-
-        playbackThread = new Thread(this::streamPlayback,
-                "AudioPlayer-Playback-" + System.currentTimeMillis());
-        playbackThread.setDaemon(true);
-        playbackThread.setPriority(Thread.MAX_PRIORITY);
-        playbackThread.start();
+    private PcmSource openSource(File file, boolean populateCache) throws UnsupportedAudioFileException, IOException {
+        PcmSource source = PcmSources.open(file, pcmCache, populateCache);
+        try {
+            return PcmSources.resample(source, outputSampleRate, resamplerQuality);
+        } catch (RuntimeException e) {
+            closeQuietly(source);
+            throw e;
+        }
     }
 
     /**
-     * 清理播放线程
+     * 获取数据源总帧数，未指定时估算
      */
-    private void cleanupPlaybackThread() {
-        if (playbackThread != null && playbackThread.isAlive()) {
-            playing.set(false);
-            paused.set(false);
-
-            // 中断线程
-            playbackThread.interrupt();
-
-            // 等待线程结束
-            try {
-                playbackThread.join(1000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.error("Interrupted while waiting for playback thread to finish", "cleanup", e);
-            } finally {
-                playbackThread = null;
-            }
+    private long getTotalFrames(PcmSource source, File file) {
+        long totalFramesValue = source.getFrameLength();
+        if (totalFramesValue == AudioSystem.NOT_SPECIFIED) {
+            // 如果帧数未指定，尝试获取近似值
+            totalFramesValue = estimateTotalFrames(file.length(), source.getFormat());
         }
+        return totalFramesValue;
     }
 
     /**
-     * 初始化音频控制功能
+     * 估算总帧数
      */
-    private void initAudioControls() {
-        // 音量控制
-        initVolumeControl();
-
-        // 音效控制
-        initSoundControls();
+    private long estimateTotalFrames(long fileSize, AudioFormat format) {
+        int size = format.getFrameSize();
+        if (size <= 0) {
+            return 0;
+        }
+        return fileSize / size;
     }
 
     /**
-     * 初始化音量控制
+     * 按延迟档位和输出格式换算本次播放的数据块和缓冲区大小（整帧）
+     * <p>
+     * 开启自适应时设备缓冲区按最大倍数预留容量，实际排队的数据由写入线程限制在目标大小以内，
+     * 放大和缩回都无需重新打开设备。
      */
-    private void initVolumeControl() {
-        try {
-            volumeControl = (FloatControl) sourceDataLine.getControl(FloatControl.Type.MASTER_GAIN);
-            volumeSupported = true;
-            minVolume = volumeControl.getMinimum();
-            maxVolume = volumeControl.getMaximum();
-            setVolume(currentVolume.get());
-        } catch (IllegalArgumentException e) {
-            try {
-                volumeControl = (FloatControl) sourceDataLine.getControl(FloatControl.Type.VOLUME);
-                volumeSupported = true;
-                minVolume = volumeControl.getMinimum();
-                maxVolume = volumeControl.getMaximum();
-                setVolume(currentVolume.get());
-            } catch (IllegalArgumentException ex) {
-                volumeSupported = false;
-                logger.error("Volume control not supported on this audio line", "initVolume", ex);
+    private void configureBuffers(AudioFormat format) {
+        boolean adaptive = adaptiveBuffering;
+        LatencyProfile profile = latencyProfile;
+        if (profile == null && adaptive) {
+            profile = LatencyProfile.BALANCED;
+        }
+        int maxScale = adaptive ? AdaptiveBufferSizer.getMaxScale() : 1;
+
+        if (profile == null) {
+            baseChunkBytes = LatencyProfile.alignToFrame(bufferSize, format.getFrameSize());
+            baseTargetBufferBytes = 0;
+            if (audioSink instanceof LineAudioSink lineSink) {
+                // 取消档位后恢复设备默认缓冲区，避免沿用上一个档位的大小
+                lineSink.setBufferSize(AudioSystem.NOT_SPECIFIED);
+            }
+        } else {
+            baseChunkBytes = profile.getChunkBytes(format);
+            baseTargetBufferBytes = profile.getBufferBytes(format);
+            if (audioSink instanceof LineAudioSink lineSink) {
+                lineSink.setBufferSize((int) Math.min(Integer.MAX_VALUE, (long) baseTargetBufferBytes * maxScale));
             }
         }
+
+        int maxChunkBytes = baseChunkBytes * maxScale;
+        if (audioBuffer == null || audioBuffer.length < maxChunkBytes) {
+            audioBuffer = new byte[maxChunkBytes];
+        }
+        adaptiveActive = adaptive;
+        applyBufferScale(adaptive ? bufferSizer.getScale() : 1);
+    }
+
+    private void applyBufferScale(int scale) {
+        chunkBytes = baseChunkBytes * scale;
+        targetBufferBytes = baseTargetBufferBytes * scale;
     }
 
     /**
-     * 初始化音效控制
+     * 写入一个数据块后调整缓冲大小（写入线程）：新的欠载放大一级，稳定期后缩回一级
      */
-    private void initSoundControls() {
-        soundControls.clear();
-
-        if (sourceDataLine != null) {
-            Control[] controls = sourceDataLine.getControls();
-            for (Control control : controls) {
-                if (control instanceof FloatControl floatControl) {
-                    soundControls.put(floatControl.getType().toString(), floatControl);
-                }
-            }
+    private void adaptBuffers() {
+        if (!bufferSizer.update(healthMonitor.getUnderruns(), System.nanoTime())) {
+            return;
+        }
+        int previousTarget = targetBufferBytes;
+        applyBufferScale(bufferSizer.getScale());
+        if (targetBufferBytes > previousTarget) {
+            logger.warn("Output underrun, growing buffers to chunk=" + chunkBytes + "B target=" +
+                    targetBufferBytes + "B", "adaptiveBuffer");
         }
-
-        equalizerSupported = !soundControls.isEmpty();
     }
 
-    // ==================== 播放控制方法 ====================
-
     /**
-     * 暂停播放
+     * 设备缓冲区容量大于目标大小时，等待排队的数据降到目标以内再写入，使写入到听到的延迟保持在档位设定值
      */
-    public void pause() {
-        synchronized (playControlLock) {
-            if (sourceDataLine != null && sourceDataLine.isRunning() && playing.get()) {
-                sourceDataLine.stop();
-                paused.set(true);
-                playbackState = PlaybackState.PAUSED;
-                eventPublisher.firePlaybackPaused();
+    private void awaitOutputSpace(AudioSink line, int length) {
+        int target = targetBufferBytes;
+        int capacity = line.getBufferSize();
+        if (target <= 0 || capacity <= target) {
+            return;
+        }
+        double bytesPerNano = line.getFormat().getFrameRate() * frameSize / 1e9;
+        int pending = Math.min(length, target);
+        while (playing.get() && line.isRunning() && !Thread.currentThread().isInterrupted()) {
+            int queued = capacity - line.available();
+            long excess = (long) queued + pending - target;
+            if (excess <= 0 || bytesPerNano <= 0) {
+                return;
             }
+            LockSupport.parkNanos(this, (long) (excess / bytesPerNano));
         }
     }
 
     /**
-     * 恢复播放
+     * 打开音频输出，格式与上一首相同时由输出自行复用已打开的资源
      */
-    public void resume() {
-        synchronized (playControlLock) {
-            if (sourceDataLine != null && !sourceDataLine.isRunning() &&
-                    paused.get() && playing.get()) {
-                sourceDataLine.start();
-                paused.set(false);
-                playbackState = PlaybackState.PLAYING;
-                playControlLock.notifyAll();
-                eventPublisher.firePlaybackResumed();
+    private void openAudioDevice() throws LineUnavailableException, IOException {
+        audioSink.open(audioSource.getFormat());
+        sinkLease = new SinkLease(audioSink);
+        activeSink = audioSink;
+    }
+
+    /**
+     * 启动播放线程
+     */
+    private void startPlaybackThread() {
+        // 清理之前的线程
+        cleanupPlaybackThread();
+
+        // 启动解码阶段（自适应时按最大倍数预留预解码空间）
+        int depth = adaptiveActive ? readAheadDepth * AdaptiveBufferSizer.getMaxScale() : readAheadDepth;
+        DecodeAheadPipeline pipeline = new DecodeAheadPipeline(baseChunkBytes, depth, frameSize, audioStreamLock);
+        decodePipeline = pipeline;
+        pipeline.start(this::readAudioStreamTimed, decoderThreadFactory);
+
+        // 写入线程所属的会话和输出在启动前确定，线程开始运行前播放已被重新开始时不会误认新会话
+        long session = playSession.get();
+        SinkLease lease = sinkLease;
+        byte[] buffer = audioBuffer;
+        playbackThread = writerThreadFactory.newThread(() -> streamPlayback(session, lease, pipeline, buffer));
+        if (playbackThread.isVirtual()) {
+            logger.warn("Device writer is running on a virtual thread, audio may stutter under load", "playback");
+        }
+        commandQueue.bind(playbackThread);
+        playbackThread.start();
+    }
+
+    /**
+     * 解码阶段读取音频流（调用方已持有audioStreamLock）
+     * <p>
+     * 无缝播放模式下，当前曲目接近结尾时预先打开下一首，读到结尾后直接衔接下一首的PCM数据；
+     * 启用交叉淡入淡出时，在结尾前的过渡时长内同时解码两首曲目并混音。
+     */
+    private int readAudioStreamTimed(byte[] buffer, int offset, int length) throws IOException {
+        long start = System.nanoTime();
+        int bytesRead = readAudioStream(buffer, offset, length);
+        if (bytesRead > 0) {
+            healthMonitor.recordDecode(System.nanoTime() - start);
+        }
+        return bytesRead;
+    }
+
+    private int readAudioStream(byte[] buffer, int offset, int length) throws IOException {
+        PcmSource source = audioSource;
+        if (source == null) {
+            return -1;
+        }
+
+        boolean crossfade = crossfadeSeconds > 0;
+        if (requestedCrossfade != null) {
+            // 手动切歌：从当前位置开始过渡
+            PreparedTrack requested = requestedCrossfade;
+            requestedCrossfade = null;
+            source = beginCrossfade(source, requested, getCrossfadeFrames(source.getFormat()));
+        } else if (crossfade && fadeOutSource == null && !crossfadeAttempted
+                && CrossfadeMixer.isSupported(source.getFormat())) {
+            long frameLength = source.getFrameLength();
+            long fadeFrames = getCrossfadeFrames(source.getFormat());
+            if (frameLength != AudioSystem.NOT_SPECIFIED && frameLength - decodedSourceFrames <= fadeFrames) {
+                crossfadeAttempted = true;
+                PreparedTrack next = takeNextTrack(source);
+                if (next != null) {
+                    source = beginCrossfade(source, next, frameLength - decodedSourceFrames);
+                }
+            }
+        }
+
+        int bytesRead = source.read(buffer, offset, length);
+        if (fadeOutSource != null) {
+            mixFadeOut(source.getFormat(), buffer, offset, bytesRead);
+        }
+        if (!gaplessEnabled && !crossfade) {
+            return bytesRead;
+        }
+
+        if (bytesRead > 0) {
+            decodedSourceFrames += bytesRead / frameSize;
+            long frameLength = source.getFrameLength();
+            long preloadFrames = (long) ((gaplessPreloadSeconds + crossfadeSeconds) * source.getFormat().getFrameRate());
+            if (!nextTrackRequested && frameLength != AudioSystem.NOT_SPECIFIED
+                    && frameLength - decodedSourceFrames <= preloadFrames) {
+                nextTrackRequested = true;
+                prepareNextTrackAsync();
             }
+        } else if (bytesRead < 0) {
+            PcmSource next = spliceNextTrack(source);
+            if (next != null) {
+                bytesRead = next.read(buffer, offset, length);
+                if (bytesRead > 0) {
+                    decodedSourceFrames += bytesRead / frameSize;
+                }
+            }
+        }
+        return bytesRead;
+    }
+
+    /**
+     * 在后台预先打开下一首曲目
+     */
+    private void prepareNextTrackAsync() {
+        long session = playSession.get();
+        try {
+            executorService.submit(() -> {
+                PreparedTrack track = openNextTrack(session);
+                if (track == null) {
+                    return;
+                }
+                if (session != playSession.get() || !preparedTrack.compareAndSet(null, track)) {
+                    closeQuietly(track.source());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Executor rejected next track preparation", "gapless");
+        }
+    }
+
+    /**
+     * 打开播放列表中的下一首曲目
+     */
+    private PreparedTrack openNextTrack(long session) {
+        int nextIndex = playlistManager.getNextIndex();
+        if (nextIndex < 0) {
+            return null;
+        }
+        try {
+            File file = playlistManager.playlist.get(nextIndex);
+            return new PreparedTrack(session, nextIndex, file, openSource(file));
+        } catch (Exception e) {
+            logger.error("Failed to prepare next track.", "gapless", e);
+            return null;
+        }
+    }
+
+    /**
+     * 取出可与当前曲目直接衔接的下一首（解码线程，持有audioStreamLock）
+     *
+     * @return 下一首；格式不同或播放列表已变化时返回null
+     */
+    private PreparedTrack takeNextTrack(PcmSource current) {
+        PreparedTrack next = preparedTrack.getAndSet(null);
+        if (next == null) {
+            // 未能提前准备（如总帧数未知），在此同步打开
+            next = openNextTrack(playSession.get());
+        }
+        if (next == null || decodePipeline == null) {
+            return null;
+        }
+
+        // 格式不同需要重新打开音频设备，播放列表已变化则以当前列表为准
+        boolean valid = next.session() == playSession.get()
+                && next.source().getFormat().matches(current.getFormat())
+                && next.index() == playlistManager.getNextIndex()
+                && next.file().equals(playlistManager.playlist.get(next.index()));
+        if (!valid) {
+            closeQuietly(next.source());
+            return null;
         }
+        return next;
+    }
+
+    /**
+     * 在解码位置记录曲目衔接点
+     */
+    private void addTrackBoundary(PreparedTrack next) {
+        pendingBoundaries.add(new TrackBoundary(decodePipeline.getWritePosition(), next.index(), next.file(),
+                next.source().getSourceFormat(), next.source().getFormat().getFrameRate(),
+                getTotalFrames(next.source(), next.file())));
+    }
+
+    /**
+     * 衔接下一首曲目（解码线程，持有audioStreamLock）
+     *
+     * @return 衔接后的数据源；无法无缝衔接时返回null，按普通结束处理
+     */
+    private PcmSource spliceNextTrack(PcmSource current) {
+        PreparedTrack next = takeNextTrack(current);
+        if (next == null) {
+            return null;
+        }
+
+        addTrackBoundary(next);
+        closeQuietly(current);
+        audioSource = next.source();
+        decodedSourceFrames = 0;
+        nextTrackRequested = false;
+        crossfadeAttempted = false;
+        return next.source();
+    }
+
+    /**
+     * 开始交叉淡入淡出（解码线程，持有audioStreamLock）
+     * <p>
+     * 下一首成为当前数据源，上一首转为淡出数据源，在过渡时长内混音。
+     *
+     * @return 淡入曲目的数据源
+     */
+    private PcmSource beginCrossfade(PcmSource current, PreparedTrack next, long frames) {
+        addTrackBoundary(next);
+        if (fadeOutSource != null) {
+            // 过渡尚未结束又切歌，直接丢弃更早的曲目
+            closeQuietly(fadeOutSource);
+        }
+        fadeOutSource = current;
+        fadePosition = 0;
+        fadeLength = Math.max(1, frames);
+        audioSource = next.source();
+        decodedSourceFrames = 0;
+        nextTrackRequested = false;
+        crossfadeAttempted = false;
+        return next.source();
+    }
+
+    /**
+     * 读取淡出曲目并混入本次解码的数据（解码线程，持有audioStreamLock）
+     */
+    private void mixFadeOut(AudioFormat format, byte[] buffer, int offset, int length) throws IOException {
+        if (length <= 0) {
+            // 淡入曲目比过渡时长还短
+            endCrossfade();
+            return;
+        }
+
+        if (fadeBuffer == null || fadeBuffer.length < length) {
+            fadeBuffer = new byte[length];
+        }
+        int fadeOutBytes = 0;
+        boolean ended = false;
+        while (fadeOutBytes < length) {
+            int n = fadeOutSource.read(fadeBuffer, fadeOutBytes, length - fadeOutBytes);
+            if (n < 0) {
+                ended = true;
+                break;
+            }
+            if (n == 0) {
+                break;
+            }
+            fadeOutBytes += n;
+        }
+
+        crossfadeMixer.mix(format, buffer, offset, fadeBuffer, 0, fadeOutBytes, length, fadePosition, fadeLength);
+        fadePosition += length / frameSize;
+        if (ended || fadePosition >= fadeLength) {
+            endCrossfade();
+        }
+    }
+
+    private void endCrossfade() {
+        closeQuietly(fadeOutSource);
+        fadeOutSource = null;
+    }
+
+    private long getCrossfadeFrames(AudioFormat format) {
+        return (long) (crossfadeSeconds * format.getFrameRate());
+    }
+
+    /**
+     * 手动切歌时交叉淡入淡出到指定曲目：在调用线程上打开下一首，再交给写入线程在数据块边界开始过渡
+     *
+     * @param request 播放请求序号，已被更新的请求取代时抛出 {@link CancellationException}
+     * @return 是否已开始过渡；返回false时按普通方式切歌
+     */
+    private boolean crossfadeToTrack(int index, File file, long request) {
+        if (crossfadeSeconds <= 0 || playbackState != PlaybackState.PLAYING || renderLoop == null) {
+            return false;
+        }
+        checkSwitchRequest(request);
+
+        PcmSource next;
+        try {
+            next = openSource(file);
+        } catch (Exception e) {
+            logger.error("Failed to open track for crossfade: " + file.getName(), "crossfade", e);
+            return false;
+        }
+
+        boolean handedOff = false;
+        try {
+            checkSwitchRequest(request);
+            // 写入线程在数据块边界执行，最多等待一个数据块
+            handedOff = commandQueue.submit(() -> applyCrossfade(index, file, next, request)).join();
+            return handedOff;
+        } finally {
+            if (!handedOff) {
+                closeQuietly(next);
+            }
+        }
+    }
+
+    /**
+     * 从正在播放的位置开始向已打开的数据源过渡（写入线程执行）
+     * <p>
+     * 丢弃已预解码和设备中尚未播放的数据，解码阶段从设备实际播放到的位置开始淡出。
+     * 写入线程已退出、当前曲目不支持混音或格式不同时返回false。
+     */
+    private boolean applyCrossfade(int index, File file, PcmSource next, long request) {
+        PcmSource current = audioSource;
+        AudioSink line = activeSink;
+        DecodeAheadPipeline pipeline = decodePipeline;
+        RenderLoop loop = renderLoop;
+        if (loop == null || loop.thread != Thread.currentThread() || playbackState != PlaybackState.PLAYING
+                || current == null || line == null || pipeline == null
+                || !CrossfadeMixer.isSupported(current.getFormat())) {
+            return false;
+        }
+        checkSwitchRequest(request);
+
+        synchronized (audioStreamLock) {
+            if (!pendingBoundaries.isEmpty() || !next.getFormat().matches(current.getFormat())) {
+                return false;
+            }
+            if (current.isRandomAccess()) {
+                long queuedFrames = (line.getBufferSize() - line.available()) / frameSize;
+                try {
+                    current.seekToFrame(Math.max(0, currentFrame.get() - queuedFrames));
+                } catch (IOException e) {
+                    logger.error("Failed to start crossfade.", "crossfade", e);
+                    return false;
+                }
+            }
+            if (requestedCrossfade != null) {
+                closeQuietly(requestedCrossfade.source());
+            }
+            requestedCrossfade = new PreparedTrack(loop.session, index, file, next);
+            pipeline.flush();
+            clockResync = true;
+        }
+        line.flush();
+        healthMonitor.rearm();
+        playlistManager.setCurrentIndex(index);
+        return true;
+    }
+
+    /**
+     * 写入线程到达曲目衔接点，更新当前曲目信息
+     */
+    private void applyTrackTransition(TrackBoundary boundary) {
+        File previous = currentAudioFile;
+        currentAudioFile = boundary.file();
+        originalFormat = boundary.sourceFormat();
+        playbackFrameRate = boundary.frameRate();
+        totalFrames.set(boundary.totalFrames());
+        currentFrame.set(0);
+        playbackClock.startTrack();
+        playlistManager.setCurrentIndex(boundary.index());
+
+        playCount.computeIfAbsent(boundary.file().getName(), k -> new AtomicInteger(0))
+                .incrementAndGet();
+
+        eventPublisher.firePlaybackFinished();
+        eventPublisher.firePlaybackStarted(boundary.file());
+        if (previous != null) {
+            eventPublisher.fireTrackChanged(previous, boundary.file());
+        }
+    }
+
+    private void closeQuietly(PcmSource source) {
+        if (source == null) {
+            return;
+        }
+        try {
+            source.close();
+        } catch (IOException e) {
+            logger.error("Error closing audio source.", "closeSource", e);
+        }
+    }
+
+    /**
+     * 清理播放线程
+     * <p>
+     * 不等待旧写入线程退出：调用前播放会话已更新，旧线程被中断后发现会话已过期自行退出，
+     * 不再写入设备，也不释放新会话的资源。切歌和停止不会阻塞在旧线程正在进行的设备写入上。
+     */
+    private void cleanupPlaybackThread() {
+        DecodeAheadPipeline pipeline = decodePipeline;
+        if (pipeline != null) {
+            pipeline.close();
+        }
+
+        Thread writer = playbackThread;
+        playbackThread = null;
+        if (writer != null && writer.isAlive()) {
+            playing.set(false);
+            paused.set(false);
+
+            // 中断线程
+            writer.interrupt();
+
+            // 旧线程可能仍在处理最后一个数据块，新写入线程使用新的缓冲区
+            audioBuffer = null;
+        }
+    }
+
+    /**
+     * 初始化音频控制功能
+     */
+    private void initAudioControls() {
+        // 音量控制
+        initVolumeControl();
+
+        // 音效控制
+        initSoundControls();
+    }
+
+    /**
+     * 初始化音量控制
+     */
+    private void initVolumeControl() {
+        softwareVolume = false;
+        volumeControl = null;
+        try {
+            volumeControl = (FloatControl) activeSink.getControl(FloatControl.Type.MASTER_GAIN);
+            volumeSupported = true;
+            minVolume = volumeControl.getMinimum();
+            maxVolume = volumeControl.getMaximum();
+            applyVolume(currentVolume.get());
+        } catch (IllegalArgumentException e) {
+            try {
+                volumeControl = (FloatControl) activeSink.getControl(FloatControl.Type.VOLUME);
+                volumeSupported = true;
+                minVolume = volumeControl.getMinimum();
+                maxVolume = volumeControl.getMaximum();
+                applyVolume(currentVolume.get());
+            } catch (IllegalArgumentException ex) {
+                if (PcmKernels.isSupported(activeSink.getFormat())) {
+                    softwareVolume = true;
+                    volumeSupported = true;
+                } else {
+                    volumeSupported = false;
+                    logger.error("Volume control not supported on this audio line", "initVolume", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * 初始化音效控制
+     */
+    private void initSoundControls() {
+        soundControls.clear();
+
+        AudioSink sink = activeSink;
+        if (sink != null) {
+            Control[] controls = sink.getControls();
+            for (Control control : controls) {
+                if (control instanceof FloatControl floatControl) {
+                    soundControls.put(floatControl.getType().toString(), floatControl);
+                }
+            }
+        }
+
+        // 软件均衡器在写入设备前处理，不依赖设备控件
+        boolean softwareSupported = sink != null && PcmKernels.isSupported(sink.getFormat());
+        if (softwareSupported) {
+            AudioFormat format = sink.getFormat();
+            equalizer.configure(format.getSampleRate(), format.getChannels());
+        }
+        equalizerSupported = !soundControls.isEmpty() || softwareSupported;
+    }
+
+    /**
+     * 均衡器频段对应的音效名，如 EQ_125HZ、EQ_1KHZ
+     */
+    private static String equalizerEffectName(double frequency) {
+        if (frequency >= 1000) {
+            return EQUALIZER_EFFECT_PREFIX + Math.round(frequency / 1000) + "KHZ";
+        }
+        return EQUALIZER_EFFECT_PREFIX + Math.round(frequency) + "HZ";
+    }
+
+    private int findEqualizerBand(String effectName) {
+        for (int i = 0; i < equalizer.getBandCount(); i++) {
+            if (equalizerEffectName(equalizer.getBand(i).frequency()).equals(effectName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // ==================== 播放控制方法 ====================
+
+    /**
+     * 暂停播放，等待写入线程在下一个数据块边界执行
+     */
+    public void pause() {
+        await(pauseAsync());
+    }
+
+    /**
+     * 提交暂停命令
+     *
+     * @return 暂停生效（输出已停止）时完成
+     */
+    public CompletableFuture<Void> pauseAsync() {
+        return commandQueue.submit(() -> {
+            applyPause();
+            return null;
+        });
+    }
+
+    /**
+     * 恢复播放，等待写入线程执行
+     */
+    public void resume() {
+        await(resumeAsync());
+    }
+
+    /**
+     * 提交恢复命令
+     *
+     * @return 输出已重新开始时完成
+     */
+    public CompletableFuture<Void> resumeAsync() {
+        return commandQueue.submit(() -> {
+            applyResume();
+            return null;
+        });
+    }
+
+    private void applyPause() {
+        AudioSink sink = activeSink;
+        if (sink != null && sink.isRunning() && playing.get()) {
+            sink.stop();
+            playbackClock.stop(sink.getFramePosition());
+            paused.set(true);
+            playbackState = PlaybackState.PAUSED;
+            accumulatePlayTime();
+            positionReporter.stop();
+            eventPublisher.firePlaybackPaused();
+        }
+    }
+
+    private void applyResume() {
+        AudioSink sink = activeSink;
+        if (sink != null && !sink.isRunning() &&
+                paused.get() && playing.get()) {
+            sink.start();
+            playbackClock.start();
+            paused.set(false);
+            playbackState = PlaybackState.PLAYING;
+            startTime = System.currentTimeMillis();
+            positionReporter.start();
+            eventPublisher.firePlaybackResumed();
+        }
+    }
+
+    /**
+     * 提交停止命令，在工作线程上停止
+     *
+     * @return 播放已停止、资源已释放时完成
+     */
+    public CompletableFuture<Void> stopAsync() {
+        return CompletableFuture.runAsync(this::stop, executorService);
     }
 
     /**
      * 停止播放
+     * <p>
+     * 停止不进入命令队列排队：直接清除播放标志并唤醒写入线程，写入线程退出时执行尚未执行的命令。
+     * 尚未完成的 {@link #playAsync(File)} 请求被取消。
      */
     public void stop() {
+        switchRequests.incrementAndGet();
+        synchronized (switchLock) {
+            stopPlayback();
+        }
+    }
+
+    private void stopPlayback() {
         playing.set(false);
         paused.set(false);
+        // 结束本次播放会话：旧写入线程退出时不再清理资源，迟到的完成通知和预备曲目一并作废
+        playSession.incrementAndGet();
 
-        // 唤醒可能等待的线程
-        synchronized (playControlLock) {
-            playControlLock.notifyAll();
+        // 唤醒可能挂起的写入线程
+        Thread writer = playbackThread;
+        if (writer != null) {
+            LockSupport.unpark(writer);
         }
 
         cleanupPlaybackThread();
@@ -722,24 +1797,53 @@ public class AdvancedStreamAudioPlayer {
 
         playbackState = PlaybackState.STOPPED;
         currentFrame.set(0);
+        playbackClock.reset();
+        clearScheduledStop();
 
         // 更新总播放时间
-        if (startTime > 0) {
-            totalPlayTime.addAndGet(System.currentTimeMillis() - startTime);
-            startTime = 0;
-        }
+        accumulatePlayTime();
+        positionReporter.stop();
 
         eventPublisher.firePlaybackStopped();
     }
 
+    /**
+     * 取消定时停止，等待停止的调用方随之返回（停止播放或切换曲目时调用）
+     */
+    private void clearScheduledStop() {
+        ScheduledStop stopPoint = scheduledStop;
+        scheduledStop = null;
+        if (stopPoint != null) {
+            stopPoint.done().complete(null);
+        }
+    }
+
+    /**
+     * 将本段播放时长计入总播放时间（暂停和停止时调用）
+     */
+    private void accumulatePlayTime() {
+        long start = startTime;
+        if (start > 0) {
+            startTime = 0;
+            totalPlayTime.addAndGet(System.currentTimeMillis() - start);
+        }
+    }
+
     /**
      * 安全停止播放器，清理所有资源
      */
     public void shutdown() {
         stop();
+        positionReporter.close();
+        eventPublisher.close();
+        try {
+            audioSink.close();
+        } catch (IOException e) {
+            logger.error("Error closing audio sink.", "shutdown", e);
+        }
 
-        // 关闭线程池
-        if (!executorShutdown.getAndSet(true)) {
+        // 关闭线程池（注入的执行器由调用方管理）
+        if (ownsExecutor && !executorShutdown.getAndSet(true)) {
             executorService.shutdown();
             try {
                 if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -758,10 +1862,23 @@ public class AdvancedStreamAudioPlayer {
     // ==================== 音量控制 ====================
 
     /**
-     * 设置音量
+     * 设置音量，等待写入线程执行
      */
     public boolean setVolume(double volume) {
-        if (!volumeSupported || volumeControl == null) {
+        return await(setVolumeAsync(volume));
+    }
+
+    /**
+     * 提交设置音量命令
+     *
+     * @return 音量是否设置成功
+     */
+    public CompletableFuture<Boolean> setVolumeAsync(double volume) {
+        return commandQueue.submit(() -> applyVolume(volume));
+    }
+
+    private boolean applyVolume(double volume) {
+        if (!volumeSupported || (volumeControl == null && !softwareVolume)) {
             return false;
         }
 
@@ -769,7 +1886,8 @@ public class AdvancedStreamAudioPlayer {
         double oldVolume = currentVolume.getAndSet(newVolume);
 
         try {
-            if (volumeControl.getType() == FloatControl.Type.MASTER_GAIN) {
+            // 软件音量由写入线程在下一个数据块生效
+            if (volumeControl != null && volumeControl.getType() == FloatControl.Type.MASTER_GAIN) {
 
                 float linearVolume = (float) (minVolume + (maxVolume - minVolume) * newVolume);
                 volumeControl.setValue(linearVolume);
@@ -817,56 +1935,78 @@ public class AdvancedStreamAudioPlayer {
         if (originalFormat == null || seconds < 0) {
             return false;
         }
-        float frameRate = originalFormat.getFrameRate();
+        float frameRate = playbackFrameRate;
         long targetFrame = (long) (seconds * frameRate);
         return seekToFrame(targetFrame);
     }
 
     /**
-     * 跳转到指定帧
+     * 跳转到指定帧，等待写入线程执行
+     * <p>
+     * 可随机访问的数据源直接重定位读取位置，设备保持运行；其余数据源需暂停后重新打开音频流。
      */
     public boolean seekToFrame(long frame) {
-        if (currentAudioFile == null || originalFormat == null ||
+        return await(seekToFrameAsync(frame));
+    }
+
+    /**
+     * 提交跳转命令
+     *
+     * @return 是否跳转成功
+     */
+    public CompletableFuture<Boolean> seekToFrameAsync(long frame) {
+        return commandQueue.submit(() -> applySeek(frame));
+    }
+
+    private boolean applySeek(long frame) {
+        PcmSource source = audioSource;
+        if (currentAudioFile == null || originalFormat == null || source == null ||
                 frame < 0 || frame >= totalFrames.get()) {
             return false;
         }
 
-        boolean wasPlaying = (playbackState == PlaybackState.PLAYING);
+        boolean wasPlaying = !source.isRandomAccess() && (playbackState == PlaybackState.PLAYING);
 
         if (wasPlaying) {
-            pause();
+            applyPause();
         }
 
         try {
             synchronized (audioStreamLock) {
-                closeAudioStream();
+                // 数据源已切换，或已衔接下一首但尚未播放到衔接点
+                if (audioSource != source || !pendingBoundaries.isEmpty()) {
+                    if (wasPlaying) {
+                        applyResume();
+                    }
+                    return false;
+                }
+                if (fadeOutSource != null) {
+                    endCrossfade();
+                }
+                source.seekToFrame(frame);
+                currentFrame.set(frame);
+                decodedSourceFrames = frame;
 
-                // 重新打开音频流
-                audioStream = AudioSystem.getAudioInputStream(currentAudioFile);
-
-                if (isFormatSupported(originalFormat)) {
-                    AudioFormat targetFormat = new AudioFormat(
-                            AudioFormat.Encoding.PCM_SIGNED,
-                            originalFormat.getSampleRate(),
-                            16,
-                            originalFormat.getChannels(),
-                            originalFormat.getChannels() * 2,
-                            originalFormat.getSampleRate(),
-                            false
-                    );
-                    audioStream = AudioSystem.getAudioInputStream(targetFormat, audioStream);
+                // 丢弃跳转前已预解码的数据
+                DecodeAheadPipeline pipeline = decodePipeline;
+                if (pipeline != null) {
+                    pipeline.flush();
                 }
+            }
 
-                long bytesToSkip = frame * frameSize;
-                long skipped = audioStream.skip(bytesToSkip);
-                currentFrame.set(frame);
+            // 丢弃设备中尚未播放的旧数据，播放时钟从设备当前位置重新开始（跳转在写入线程上执行，无需等待下一次写入）
+            AudioSink line = activeSink;
+            if (line != null) {
+                line.flush();
+                healthMonitor.rearm();
+                playbackClock.anchor(line.getFramePosition(), frame, line.getFormat().getFrameRate());
             }
 
             if (wasPlaying) {
-                resume();
+                applyResume();
             }
 
-            eventPublisher.firePositionChanged(getPlaybackProgress());
+            positionReporter.requestUpdate();
             return true;
         } catch (Exception e) {
             logger.error("Failed to seek to frame: " + frame, "seekToFrame", e);
@@ -875,6 +2015,55 @@ public class AdvancedStreamAudioPlayer {
         }
     }
 
+    /**
+     * 在渲染循环中切换到已打开的数据源（写入线程执行）
+     * <p>
+     * 丢弃旧曲目已预解码和设备中尚未播放的数据，设备、写入线程和解码线程继续运行。
+     * 写入线程已退出、正在等待定时开始或输出格式不同时返回false，由调用方重新开始播放。
+     */
+    private boolean applySwitch(File file, PcmSource source, long request) {
+        AudioSink sink = activeSink;
+        DecodeAheadPipeline pipeline = decodePipeline;
+        RenderLoop loop = renderLoop;
+        if (loop == null || loop.thread != Thread.currentThread() || !playing.get() || sink == null || pipeline == null
+                || !source.getFormat().matches(sink.getFormat())) {
+            return false;
+        }
+        checkSwitchRequest(request);
+
+        // 新曲目开始新的播放会话：上一首迟到的完成通知和预备曲目作废，写入线程改属新会话
+        loop.session = playSession.incrementAndGet();
+        clearScheduledStop();
+
+        synchronized (audioStreamLock) {
+            closeAudioStream();
+            discardPendingTracks();
+            installAudioStream(file, source);
+
+            // 丢弃上一首已预解码的数据
+            pipeline.flush();
+        }
+
+        // 设备中尚未播放的旧数据同样丢弃，播放时钟从设备当前位置开始新曲目
+        sink.flush();
+        healthMonitor.rearm();
+        playbackClock.anchor(sink.getFramePosition(), 0, sink.getFormat().getFrameRate());
+
+        File previous = currentAudioFile;
+        currentAudioFile = file;
+        playCount.computeIfAbsent(file.getName(), k -> new AtomicInteger(0))
+                .incrementAndGet();
+        if (paused.get()) {
+            applyResume();
+        }
+        eventPublisher.firePlaybackStarted(file);
+        if (previous != null) {
+            eventPublisher.fireTrackChanged(previous, file);
+        }
+        positionReporter.requestUpdate();
+        return true;
+    }
+
     // ==================== 播放列表管理 ====================
 
     public void addToPlaylist(String filePath) {
@@ -967,7 +2156,9 @@ public class AdvancedStreamAudioPlayer {
 
 
     /**
-     * 播放下一首
+     * 播放下一首，切换完成后返回
+     * <p>
+     * 与播放请求一样，较早的未完成请求被取代；开启交叉淡入淡出时由写入线程在数据块边界开始过渡。
      */
     public void nextTrack() {
         int nextIndex = playlistManager.getNextIndex();
@@ -976,16 +2167,10 @@ public class AdvancedStreamAudioPlayer {
             eventPublisher.firePlaybackFinished();
             return;
         }
-
         try {
-            File current = getCurrentFile();
-            playlistManager.setCurrentIndex(nextIndex);
-            File next = playlistManager.getPlaylist().get(nextIndex);
-
-            play(next);
-            if (current != null) {
-                eventPublisher.fireTrackChanged(current, next);
-            }
+            switchToIndex(nextIndex, switchRequests.incrementAndGet());
+        } catch (CancellationException e) {
+            // 已被更新的播放请求取代
         } catch (Exception e) {
             logger.error("Failed to play next track.", "nextTrack", e);
             eventPublisher.fireError(e);
@@ -993,29 +2178,84 @@ public class AdvancedStreamAudioPlayer {
     }
 
     /**
-     * 播放上一首
+     * 异步播放下一首，立即返回
+     *
+     * @return 开始播放（或开始过渡到）下一首时完成；没有下一首时停止播放后完成
+     */
+    public CompletableFuture<Void> nextTrackAsync() {
+        int nextIndex = playlistManager.getNextIndex();
+        if (nextIndex == -1) {
+            return stopAsync().thenRun(eventPublisher::firePlaybackFinished);
+        }
+        return switchToIndexAsync(nextIndex);
+    }
+
+    /**
+     * 播放上一首，切换完成后返回
      */
     public void previousTrack() {
         int prevIndex = playlistManager.getPreviousIndex();
         if (prevIndex == -1) {
             return;
         }
-
         try {
-            File current = getCurrentFile();
-            playlistManager.setCurrentIndex(prevIndex);
-            File previous = playlistManager.getPlaylist().get(prevIndex);
-
-            play(previous);
-            if (current != null) {
-                eventPublisher.fireTrackChanged(current, previous);
-            }
+            switchToIndex(prevIndex, switchRequests.incrementAndGet());
+        } catch (CancellationException e) {
+            // 已被更新的播放请求取代
         } catch (Exception e) {
             logger.error("Failed to play previous track.", "previousTrack", e);
             eventPublisher.fireError(e);
         }
     }
 
+    /**
+     * 异步播放上一首，立即返回
+     *
+     * @return 开始播放（或开始过渡到）上一首时完成；没有上一首时直接完成
+     */
+    public CompletableFuture<Void> previousTrackAsync() {
+        int prevIndex = playlistManager.getPreviousIndex();
+        if (prevIndex == -1) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return switchToIndexAsync(prevIndex);
+    }
+
+    private CompletableFuture<Void> switchToIndexAsync(int index) {
+        long request = switchRequests.incrementAndGet();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        try {
+            executorService.execute(() -> {
+                try {
+                    switchToIndex(index, request);
+                    done.complete(null);
+                } catch (Throwable e) {
+                    done.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            done.completeExceptionally(e);
+        }
+        return done;
+    }
+
+    /**
+     * 切换到播放列表中的曲目：能交叉淡入淡出时交给写入线程过渡，否则按普通方式切换
+     *
+     * @param request 播放请求序号，已被更新的请求取代时抛出 {@link CancellationException}
+     */
+    private void switchToIndex(int index, long request)
+            throws UnsupportedAudioFileException, IOException, LineUnavailableException, InterruptedException {
+        File file = playlistManager.getPlaylist().get(index);
+        validateFile(file);
+        firstSampleTimer.markRequested();
+        if (crossfadeToTrack(index, file, request)) {
+            return;
+        }
+        playlistManager.setCurrentIndex(index);
+        switchTrack(file, request);
+    }
+
     // ==================== 事件监听器管理 ====================
 
     public void addPlaybackEventListener(PlaybackEventListener listener) {
@@ -1030,117 +2270,461 @@ public class AdvancedStreamAudioPlayer {
         eventPublisher.removeAllListeners();
     }
 
+    /**
+     * 以 {@link Flow.Publisher} 形式订阅播放事件，事件顺序与监听器相同，投递量受订阅者请求数控制
+     * <p>
+     * 播放器关闭后订阅者收到 onComplete。
+     */
+    public Flow.Publisher<PlaybackEvent> getEventPublisher() {
+        return eventPublisher.bus;
+    }
+
+    /**
+     * 设置监听器积压时位置事件的处理方式（默认合并为最新位置），状态事件始终不丢弃
+     */
+    public void setPositionEventPolicy(PlaybackEventBus.PositionPolicy policy) {
+        eventPublisher.bus.setPositionPolicy(policy);
+    }
+
+    /**
+     * 获取事件投递统计：发布数、投递数、合并和丢弃的位置事件数、积压
+     */
+    public Map<String, Object> getEventStatistics() {
+        return eventPublisher.bus.getStatistics();
+    }
+
+    /**
+     * 获取控制命令统计：提交数、未播放时直接执行的数量、提交到生效的延迟分布
+     */
+    public Map<String, Object> getCommandStatistics() {
+        return commandQueue.getStatistics();
+    }
+
     // ==================== 核心播放逻辑 ====================
 
     /**
-     * 流式播放核心逻辑 - 修复字节写入不匹配问题
+     * 流式播放核心逻辑 - 写入阶段，只负责将预解码的数据块写入音频设备
      */
-    private void streamPlayback() {
+    private void streamPlayback(long startSession, SinkLease lease, DecodeAheadPipeline pipeline, byte[] buffer) {
+        RenderLoop loop = new RenderLoop(startSession);
+        boolean completed = false;
         try {
-            sourceDataLine.start();
-
-            while (playing.get() && !Thread.currentThread().isInterrupted()) {
-                synchronized (playControlLock) {
-                    while (paused.get() && playing.get()) {
-                        try {
-                            playControlLock.wait();
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            break;
-                        }
+            if (!isActiveWriter(loop.session) || lease == null) {
+                return;
+            }
+            healthMonitor.rearm();
+            bufferSizer.reset(healthMonitor.getUnderruns(), System.nanoTime());
+            clockResync = true;
+            if (startScheduled) {
+                startAtScheduledTime(loop.session, lease, scheduledStartNanos);
+            } else {
+                lease.sink.start();
+                playbackClock.start();
+            }
+
+            renderLoop = loop;
+            while (isActiveWriter(loop.session)) {
+                applyCommands(loop.session);
+
+                // 命令中可能原地切换了曲目，此时 loop.session 已是新会话
+                if (!isActiveWriter(loop.session)) {
+                    break;
+                }
+
+                // 无缝播放：到达衔接点时切换曲目信息，读取不跨越衔接点
+                int readLimit = chunkBytes;
+                TrackBoundary boundary = pendingBoundaries.peek();
+                if (boundary != null) {
+                    long untilBoundary = boundary.position() - pipeline.getReadPosition();
+                    if (untilBoundary <= 0) {
+                        pendingBoundaries.poll();
+                        applyTrackTransition(boundary);
+                        continue;
                     }
+                    readLimit = (int) Math.min(readLimit, untilBoundary);
                 }
 
-                if (Thread.currentThread().isInterrupted() || !playing.get()) {
+                // 从预解码缓冲区读取数据
+                int bytesRead;
+                try {
+                    bytesRead = pipeline.read(buffer, 0, readLimit,
+                            CHUNK_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                     break;
                 }
 
-                // 读取音频数据
-                int bytesRead = 0;
-                synchronized (audioStreamLock) {
-                    if (audioStream != null) {
-                        bytesRead = audioStream.read(audioBuffer, 0, bufferSize);
-                    } else {
-                        break;
+                if (bytesRead == -1) {
+                    // 播放完成，设备播放完剩余数据后再通知
+                    completed = true;
+                    break;
+                }
+
+                if (bytesRead > 0) {
+                    writeChunk(loop.session, lease, pipeline, buffer, bytesRead);
+                    if (adaptiveActive) {
+                        adaptBuffers();
                     }
                 }
+                // bytesRead == 0：解码阶段暂未就绪，重新检查播放状态
 
-                if (bytesRead == -1) {
-                    // 播放完成
-                    handlePlaybackCompletion();
+                if (isStopPointReached()) {
                     break;
                 }
+            }
+
+            // 渲染循环结束，之后的切换请求改为重新开始播放，无需等待设备播放完剩余数据
+            leaveRenderLoop(loop);
+            long session = loop.session;
+
+            // 清空音频线缓冲区（会话已结束时设备可能已归新会话所有，不再等待）
+            boolean stopPointReached = isStopPointReached();
+            if (playSession.get() == session && !lease.isRevoked()) {
+                if (stopPointReached) {
+                    awaitStopPoint(lease);
+                } else {
+                    lease.sink.drain();
+                }
+            }
+
+            // 定时停止：设备已播放到停止点
+            if (stopPointReached) {
+                executorService.submit(() -> {
+                    if (playSession.get() == session) {
+                        stop();
+                    }
+                });
+            }
+        } catch (IOException e) {
+            if (!Thread.currentThread().isInterrupted()) {
+                logger.error("I/O error during playback.", "playback", e);
+                eventPublisher.fireError(e);
+            }
+        } finally {
+            // 写入线程退出后，尚未执行的命令在本线程上直接执行
+            leaveRenderLoop(loop);
+            commandQueue.unbind(Thread.currentThread());
+
+            // 已开始新的播放时，复用的线路和数据源归新会话所有；
+            // 持有switchLock检查，检查之后不会有新会话开始，不会释放新会话刚打开的资源
+            synchronized (switchLock) {
+                if (playSession.get() == loop.session) {
+                    closeResources();
+                    playbackState = PlaybackState.STOPPED;
+                    positionReporter.stop();
+                }
+            }
+            if (completed) {
+                handlePlaybackCompletion(loop.session);
+            }
+        }
+    }
+
+    /**
+     * 写入线程是否仍属于当前播放会话且未被停止
+     */
+    private boolean isActiveWriter(long session) {
+        return playing.get() && playSession.get() == session && !Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * 尚未退出的旧写入线程不会清除新写入线程的标记
+     */
+    private void leaveRenderLoop(RenderLoop loop) {
+        if (renderLoop == loop) {
+            renderLoop = null;
+        }
+    }
+
+    /**
+     * 等到定时开始时刻前启动设备，先写入静音，使曲目第一帧在开始时刻输出
+     * <p>
+     * 等待期间照常执行控制命令（跳转、音量等）；设备启动时缓冲区为空，静音帧数即开始时刻距现在的帧数。
+     */
+    private void startAtScheduledTime(long session, SinkLease lease, long startNanos) throws IOException {
+        AudioSink sink = lease.sink;
+        AudioFormat format = sink.getFormat();
+        byte[] silence = createSilence(format);
+        warmUpKernel(format, silence, startNanos - SCHEDULE_LEAD_NANOS);
+
+        while (isActiveWriter(session)) {
+            commandQueue.drain();
+            long wait = startNanos - SCHEDULE_LEAD_NANOS - System.nanoTime();
+            if (wait <= 0) {
+                break;
+            }
+            LockSupport.parkNanos(this, wait);
+        }
+        if (!isActiveWriter(session) || lease.isRevoked()) {
+            return;
+        }
 
-                if (bytesRead > 0 && sourceDataLine != null) {
-                    // **修复字节写入不匹配问题** - 确保写入所有读取的数据
-                    int bytesWritten = 0;
+        float frameRate = format.getFrameRate();
+        sink.start();
+        playbackClock.start();
+        playbackClock.anchor(sink.getFramePosition(), currentFrame.get(), frameRate);
+        clockResync = false;
+
+        long padFrames = (long) ((startNanos - System.nanoTime()) * (double) frameRate / 1_000_000_000L);
+        if (padFrames < 0) {
+            scheduledStartLateNanos = (long) (-padFrames * 1_000_000_000.0 / frameRate);
+            logger.warn("Scheduled start missed by " + scheduledStartLateNanos / 1_000_000 + " ms", "playback");
+            padFrames = 0;
+        } else {
+            scheduledStartLateNanos = 0;
+        }
+        writeSilence(lease, silence, padFrames);
+        playbackClock.startTrackAt(currentFrame.get());
+
+        playbackState = PlaybackState.PLAYING;
+        startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 一个数据块长度的静音
+     */
+    private byte[] createSilence(AudioFormat format) {
+        int size = format.getFrameSize();
+        byte[] silence = new byte[LatencyProfile.alignToFrame(chunkBytes, size)];
+        if (AudioFormat.Encoding.PCM_UNSIGNED.equals(format.getEncoding())) {
+            // 无符号PCM的零电平为最高位为1
+            int sampleBytes = Math.max(1, format.getSampleSizeInBits() / 8);
+            int msb = format.isBigEndian() ? 0 : sampleBytes - 1;
+            for (int i = msb; i < silence.length; i += sampleBytes) {
+                silence[i] = (byte) 0x80;
+            }
+        }
+        return silence;
+    }
+
+    /**
+     * 开始前预热软件音效的转换内核，静音转换后不变
+     * <p>
+     * 向量化实现首次调用时类初始化可达数百毫秒，编译前的数据块处理也明显变慢，
+     * 第一个数据块来不及在静音播放完之前写入就会推迟开始；预热在 deadline 之前结束。
+     */
+    private void warmUpKernel(AudioFormat format, byte[] silence, long deadline) {
+        if (!PcmKernels.isSupported(format)) {
+            return;
+        }
+        int channels = format.getChannels();
+        int samples = silence.length / (format.getSampleSizeInBits() / 8);
+        float[] samplesBuffer = new float[samples];
+        for (int i = 0; i < KERNEL_WARM_UP_ITERATIONS && System.nanoTime() < deadline; i++) {
+            pcmKernel.toFloat(format, silence, 0, samplesBuffer, 0, samples);
+            pcmKernel.applyGainRamp(samplesBuffer, 0, samples / channels, channels, 1.0f, 1.0f);
+            pcmKernel.applyGain(samplesBuffer, 0, samples, 1.0f);
+            pcmKernel.fromFloat(samplesBuffer, 0, format, silence, 0, samples);
+        }
+    }
+
+    private void writeSilence(SinkLease lease, byte[] silence, long frames) throws IOException {
+        int size = lease.sink.getFormat().getFrameSize();
+        long remaining = frames * size;
+        while (remaining > 0 && playing.get() && !Thread.currentThread().isInterrupted()) {
+            int written = lease.write(silence, 0, (int) Math.min(silence.length, remaining));
+            if (written <= 0) {
+                break;
+            }
+            remaining -= written;
+            playbackClock.written(written / size, lease.sink.getFramePosition());
+        }
+    }
+
+    /**
+     * 在指定时刻停止播放
+     * <p>
+     * 写入线程按设备帧位置换算停止点，写入的数据截断在停止点；设备播放到停止点后清空缓冲区并停止。
+     *
+     * @param stopNanos 停止时刻（{@link System#nanoTime()} 时间）
+     * @return 播放停止时完成（包括提前被停止或切歌）
+     */
+    public CompletableFuture<Void> stopAt(long stopNanos) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        commandQueue.submit(() -> {
+            AudioSink sink = activeSink;
+            if (!playing.get() || sink == null) {
+                done.complete(null);
+                return null;
+            }
+            long frames = (long) ((stopNanos - System.nanoTime()) * (double) sink.getFormat().getFrameRate() / 1_000_000_000L);
+            ScheduledStop previous = scheduledStop;
+            scheduledStop = new ScheduledStop(sink.getFramePosition() + Math.max(0, frames), done);
+            if (previous != null) {
+                previous.done().complete(null);
+            }
+            return null;
+        });
+        return done;
+    }
+
+    /**
+     * 等待设备播放到停止点，丢弃停止点之后已写入的数据
+     */
+    private void awaitStopPoint(SinkLease lease) {
+        AudioSink sink = lease.sink;
+        ScheduledStop stopPoint = scheduledStop;
+        float frameRate = sink.getFormat().getFrameRate();
+        while (stopPoint != null && playing.get() && !Thread.currentThread().isInterrupted()) {
+            long left = stopPoint.deviceFrame() - sink.getFramePosition();
+            if (left <= 0) {
+                break;
+            }
+            LockSupport.parkNanos(this, (long) (left * 1_000_000_000.0 / frameRate));
+        }
+        lease.flush();
+    }
+
+    private boolean isStopPointReached() {
+        ScheduledStop stopPoint = scheduledStop;
+        return stopPoint != null && playbackClock.getWrittenDeviceFrame() >= stopPoint.deviceFrame();
+    }
+
+    /**
+     * 执行已提交的控制命令；暂停期间挂起写入线程，直到恢复、停止或中断
+     * <p>
+     * 会话已结束的旧写入线程不再执行命令，命令留给新的写入线程或在提交线程上执行。
+     */
+    private void applyCommands(long session) {
+        if (!isActiveWriter(session)) {
+            return;
+        }
+        commandQueue.drain();
+        while (paused.get() && isActiveWriter(session)) {
+            LockSupport.park(this);
+            commandQueue.drain();
+        }
+    }
+
+    /**
+     * 软件音效：均衡器和软件音量在同一次浮点转换中完成
+     * <p>
+     * 软件音量按线性幅度缩放，音量变化在一个数据块内平滑过渡。
+     */
+    private void applySoftwareEffects(AudioFormat format, byte[] data, int length) {
+        boolean equalize = !equalizer.isBypassed();
+        float target = 1.0f;
+        float start = 1.0f;
+        if (softwareVolume) {
+            target = (float) currentVolume.get();
+            start = Float.isNaN(appliedSoftwareGain) ? target : appliedSoftwareGain;
+            appliedSoftwareGain = target;
+        }
+        if (!equalize && start == 1.0f && target == 1.0f) {
+            return;
+        }
+        if (!PcmKernels.isSupported(format)) {
+            return;
+        }
+
+        int channels = format.getChannels();
+        int samples = length / (format.getSampleSizeInBits() / 8);
+        if (gainBuffer == null || gainBuffer.length < samples) {
+            gainBuffer = new float[samples];
+        }
+        pcmKernel.toFloat(format, data, 0, gainBuffer, 0, samples);
+        if (equalize) {
+            equalizer.process(gainBuffer, 0, samples / channels);
+        }
+        if (start != target) {
+            pcmKernel.applyGainRamp(gainBuffer, 0, samples / channels, channels, start, target);
+        } else if (target != 1.0f) {
+            pcmKernel.applyGain(gainBuffer, 0, samples, target);
+        }
+        pcmKernel.fromFloat(gainBuffer, 0, format, data, 0, samples);
+    }
 
-                    // 循环写入，直到所有数据都被写入
-                    while (bytesWritten < bytesRead &&
-                            playing.get() && !Thread.currentThread().isInterrupted()) {
+    private void writeChunk(long session, SinkLease lease, DecodeAheadPipeline pipeline, byte[] data, int length)
+            throws IOException {
+        AudioSink line = lease.sink;
+        if (playSession.get() != session || lease.isRevoked()) {
+            return;
+        }
 
-                        int writeResult = sourceDataLine.write(
-                                audioBuffer, bytesWritten, bytesRead - bytesWritten);
+        long chunkGeneration = pipeline.getReadGeneration();
+        int bytesWritten = 0;
 
-                        if (writeResult < 0) {
-                            // 写入错误
-                            logger.error("Failed to write to audio line, result: " + writeResult, "playback");
-                            break;
-                        }
+        if (softwareVolume || !equalizer.isBypassed()) {
+            applySoftwareEffects(line.getFormat(), data, length);
+        }
 
-                        bytesWritten += writeResult;
-
-                        // 检查是否需要暂停
-                        synchronized (playControlLock) {
-                            while (paused.get() && playing.get()) {
-                                try {
-                                    playControlLock.wait();
-                                } catch (InterruptedException e) {
-                                    Thread.currentThread().interrupt();
-                                    break;
-                                }
-                            }
-                        }
-                    }
+        // 定时停止：只写到停止点
+        ScheduledStop stopPoint = scheduledStop;
+        if (stopPoint != null) {
+            long remaining = stopPoint.deviceFrame() - playbackClock.getWrittenDeviceFrame();
+            length = (int) Math.max(0, Math.min(length, remaining * frameSize));
+            if (length == 0) {
+                return;
+            }
+        }
 
-                    if (bytesWritten != bytesRead) {
-                        logger.warn("Bytes written (" + bytesWritten + ") doesn't match bytes read (" + bytesRead + ")", "playback");
-                    }
+        // 开始播放或清空缓冲区后的第一次写入：设备当前位置即为本数据块开始被听到的位置
+        if (clockResync) {
+            clockResync = false;
+            playbackClock.anchor(line.getFramePosition(), currentFrame.get(), line.getFormat().getFrameRate());
+        }
 
-                    // 更新当前位置
-                    int framesRead = bytesRead / frameSize;
-                    long newFrame = currentFrame.addAndGet(framesRead);
+        // 循环写入，直到所有数据都被写入
+        while (bytesWritten < length && isActiveWriter(session)) {
 
-                    // 通知位置变化（降低频率）
-                    if (newFrame % POSITION_UPDATE_THRESHOLD == 0) {
-                        eventPublisher.firePositionChanged(getPlaybackProgress());
-                    }
-                }
+            // 发生了跳转，剩余数据已过期
+            if (chunkGeneration != pipeline.getGeneration()) {
+                return;
             }
 
-            // 清空音频线缓冲区
-            if (sourceDataLine != null) {
-                sourceDataLine.drain();
+            // 在等待之后采样，等待期间设备被播放空同样计为欠载
+            awaitOutputSpace(line, length - bytesWritten);
+            healthMonitor.sampleFill(line.getBufferSize(), line.available());
+            long writeStart = System.nanoTime();
+            int writeResult = lease.write(data, bytesWritten, length - bytesWritten);
+            healthMonitor.recordWrite(System.nanoTime() - writeStart, Math.max(0, writeResult) / frameSize);
+            if (writeResult > 0 && playSession.get() == session) {
+                playbackClock.written(writeResult / frameSize, line.getFramePosition());
             }
-        } catch (IOException e) {
-            if (!Thread.currentThread().isInterrupted()) {
-                logger.error("I/O error during playback.", "playback", e);
-                eventPublisher.fireError(e);
+
+            if (writeResult < 0) {
+                // 写入错误（会话已结束时设备已被释放，不属于错误）
+                if (playSession.get() == session) {
+                    logger.error("Failed to write to audio line, result: " + writeResult, "playback");
+                }
+                break;
             }
-        } finally {
-            closeResources();
-            playbackState = PlaybackState.STOPPED;
+
+            bytesWritten += writeResult;
+
+            // 数据块边界：执行控制命令，暂停时在此挂起（会话已结束时不执行）
+            applyCommands(session);
         }
+
+        // 跳转后的旧数据不计入播放位置；会话已结束时位置和时钟归新会话所有
+        if (chunkGeneration != pipeline.getGeneration() || playSession.get() != session) {
+            return;
+        }
+
+        if (bytesWritten > 0) {
+            firstSampleTimer.markFirstSample();
+        }
+
+        if (bytesWritten != length) {
+            logger.warn("Bytes written (" + bytesWritten + ") doesn't match bytes read (" + length + ")", "playback");
+        }
+
+        // 更新当前位置（位置事件由位置报告器按固定频率发布）
+        currentFrame.addAndGet(length / frameSize);
     }
 
     /**
      * 处理播放完成
      */
-    private void handlePlaybackCompletion() {
+    private void handlePlaybackCompletion(long session) {
         eventPublisher.firePlaybackFinished();
 
         executorService.submit(() -> {
             try {
+                // 监听器已开始了新的播放，不再停止或切歌
+                if (playSession.get() != session) {
+                    return;
+                }
                 if (playlistManager.isEmpty()) {
                     stop();
                 } else {
@@ -1187,12 +2771,6 @@ public class AdvancedStreamAudioPlayer {
         return SUPPORTED_FORMATS.contains(extension);
     }
 
-    private boolean isFormatSupported(AudioFormat format) {
-        if (format == null) return true;
-        DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
-        return !AudioSystem.isLineSupported(info);
-    }
-
     private String getFileExtension(File file) {
         String name = file.getName();
         int lastDot = name.lastIndexOf('.');
@@ -1204,53 +2782,362 @@ public class AdvancedStreamAudioPlayer {
      */
     private void closeAudioStream() {
         try {
-            if (audioStream != null) {
-                audioStream.close();
-                audioStream = null;
+            if (audioSource != null) {
+                audioSource.close();
+                audioSource = null;
             }
         } catch (IOException e) {
             logger.error("Error closing audio stream.", "closeStream", e);
         }
     }
 
+    /**
+     * 丢弃已预备的下一首、尚未到达的衔接点和交叉淡入淡出（持有audioStreamLock）
+     */
+    private void discardPendingTracks() {
+        pendingBoundaries.clear();
+        PreparedTrack prepared = preparedTrack.getAndSet(null);
+        if (prepared != null) {
+            closeQuietly(prepared.source());
+        }
+        if (requestedCrossfade != null) {
+            closeQuietly(requestedCrossfade.source());
+            requestedCrossfade = null;
+        }
+        if (fadeOutSource != null) {
+            endCrossfade();
+        }
+    }
+
     /**
      * 关闭所有资源
      */
     private void closeResources() {
         synchronized (audioStreamLock) {
             closeAudioStream();
+            discardPendingTracks();
         }
 
-        if (sourceDataLine != null) {
+        AudioSink sink = activeSink;
+        SinkLease lease = sinkLease;
+        sinkLease = null;
+        if (lease != null) {
+            // 等待旧写入线程正在进行的写入返回，之后输出才能被复用
+            lease.revoke();
+        }
+        if (sink != null) {
+            activeSink = null;
             try {
-                if (sourceDataLine.isRunning()) {
-                    sourceDataLine.stop();
-                }
-                sourceDataLine.close();
+                sink.release();
             } catch (Exception e) {
-                logger.error("Error closing source data line.", "closeResources", e);
+                logger.error("Error releasing audio sink.", "closeResources", e);
+            }
+        }
+    }
+
+    // ==================== 离线渲染 ====================
+
+    /**
+     * 离线渲染中的单首曲目：解码线程将已应用音量和音效的数据块放入有界队列，写入方按顺序取出，
+     * 队列满时解码线程等待，每首曲目占用的内存与曲目长度无关
+     */
+    private static final class RenderingTrack {
+        static final byte[] END = new byte[0];
+
+        final File file;
+        final BlockingQueue<byte[]> blocks;
+        volatile Exception error; // 放入END之前设置
+
+        RenderingTrack(File file, int capacity) {
+            this.file = file;
+            this.blocks = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void finish() {
+            try {
+                blocks.put(END);
+            } catch (InterruptedException e) {
+                // 渲染已取消，写入方不再读取
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 将播放列表离线渲染为WAV文件
+     *
+     * @see #renderPlaylist(AudioSink)
+     */
+    public Map<String, Object> renderPlaylist(File output) throws IOException, LineUnavailableException, InterruptedException {
+        if (output == null) {
+            throw new IllegalArgumentException("输出文件不能为null");
+        }
+        try (WavFileSink sink = new WavFileSink(output)) {
+            return renderPlaylist(sink);
+        }
+    }
+
+    /**
+     * 将播放列表按当前播放模式渲染到指定输出，不按实时速度限速
+     * <p>
+     * 从当前曲目开始按播放模式播放一遍（顺序播放到列表末尾，循环和随机模式覆盖整个列表，单曲循环只渲染当前曲目），
+     * 应用当前音量、均衡器和输出采样率设置。曲目在多个线程上并行解码和处理，再按顺序首尾相接写入输出：
+     * 写入当前曲目的同时，后续曲目解码到各自的有界缓冲区，缓冲区满时暂停解码。
+     * 同时进行的曲目不超过并行度加一，每首最多缓冲约 4MB，内存占用与曲目长度无关。
+     * 与输出格式不一致或无法解码的曲目会被跳过，解码中途失败的曲目保留已写出的部分，均记录日志。
+     * <p>
+     * 与实时播放互不影响，可在播放期间调用。
+     *
+     * @param sink 输出，渲染结束后调用 {@link AudioSink#release()}，由调用方关闭
+     * @return 渲染统计：曲目数、跳过数、中途截断数、总帧数、音频时长、耗时和相对实时的倍速
+     */
+    public Map<String, Object> renderPlaylist(AudioSink sink) throws IOException, LineUnavailableException, InterruptedException {
+        return renderPlaylist(sink, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism 并行解码的线程数
+     */
+    public Map<String, Object> renderPlaylist(AudioSink sink, int parallelism)
+            throws IOException, LineUnavailableException, InterruptedException {
+        if (sink == null) {
+            throw new IllegalArgumentException("音频输出不能为空");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("并行度必须大于0");
+        }
+
+        List<File> files = new ArrayList<>();
+        for (int index : playlistManager.getRenderOrder()) {
+            files.add(playlistManager.playlist.get(index));
+        }
+
+        long start = System.nanoTime();
+        AudioFormat format = resolveRenderFormat(files);
+        long frames = 0;
+        int rendered = 0;
+        int skipped = 0;
+        int truncated = 0;
+
+        if (format != null) {
+            float volume = (float) currentVolume.get();
+            ParametricEqualizer.Band[] bands = equalizer.getBands();
+            boolean equalize = equalizer.isEnabled();
+
+            int frameBytes = format.getFrameSize();
+            int capacity = Math.max(1, RENDER_TRACK_BUFFER_BYTES / (RENDER_BLOCK_FRAMES * frameBytes));
+
+            sink.open(format);
+            sink.start();
+            ExecutorService decoders = Executors.newFixedThreadPool(parallelism, decoderThreadFactory);
+            try {
+                // 按顺序提交，已提交未写完的曲目不超过 parallelism + 1 首；
+                // 线程池按提交顺序开始任务，正在写出的曲目总是已经在解码，不会被后续曲目占满线程
+                Deque<RenderingTrack> window = new ArrayDeque<>();
+                int next = 0;
+                while (next < files.size() || !window.isEmpty()) {
+                    while (next < files.size() && window.size() <= parallelism) {
+                        RenderingTrack pending = new RenderingTrack(files.get(next++), capacity);
+                        window.add(pending);
+                        decoders.execute(() -> renderTrack(pending, format, volume, bands, equalize));
+                    }
+
+                    RenderingTrack track = window.poll();
+                    long trackFrames = 0;
+                    byte[] block;
+                    while ((block = track.blocks.take()) != RenderingTrack.END) {
+                        sink.write(block, 0, block.length);
+                        trackFrames += block.length / frameBytes;
+                    }
+
+                    Exception error = track.error;
+                    if (error != null) {
+                        if (trackFrames == 0) {
+                            skipped++;
+                            logger.warn("Skipped track in offline render: " + track.file.getName()
+                                    + " (" + error.getMessage() + ")", "renderPlaylist");
+                            continue;
+                        }
+                        truncated++;
+                        logger.warn("Track truncated in offline render: " + track.file.getName()
+                                + " (" + error.getMessage() + ")", "renderPlaylist");
+                    }
+                    frames += trackFrames;
+                    rendered++;
+                }
+                sink.drain();
             } finally {
-                sourceDataLine = null;
+                decoders.shutdownNow();
+                sink.release();
+            }
+        } else {
+            skipped = files.size();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        double audioSeconds = format == null ? 0 : frames / (double) format.getFrameRate();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("tracks", rendered);
+        stats.put("skippedTracks", skipped);
+        stats.put("truncatedTracks", truncated);
+        stats.put("frames", frames);
+        stats.put("audioSeconds", audioSeconds);
+        stats.put("elapsedMillis", elapsed / 1_000_000.0);
+        stats.put("speedFactor", elapsed > 0 ? audioSeconds / (elapsed / 1e9) : 0.0);
+        stats.put("parallelism", parallelism);
+        if (format != null) {
+            stats.put("format", format.toString());
+        }
+        return stats;
+    }
+
+    /**
+     * 以第一首能打开的曲目的输出格式作为渲染格式（只读取格式，不放入缓存）
+     */
+    private AudioFormat resolveRenderFormat(List<File> files) {
+        for (File file : files) {
+            try (PcmSource source = openSource(file, false)) {
+                return source.getFormat();
+            } catch (Exception e) {
+                logger.warn("Cannot open track for offline render: " + file.getName(), "renderPlaylist");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 解码曲目并应用音量和均衡器，处理后的数据块依次放入曲目的有界队列
+     * （在解码线程上执行，每首曲目使用独立的均衡器状态；不放入缓存，解码线程不累积整首曲目）
+     */
+    private void renderTrack(RenderingTrack track, AudioFormat format, float volume,
+                             ParametricEqualizer.Band[] bands, boolean equalize) {
+        PcmSource source = null;
+        try {
+            source = openSource(track.file, false);
+            if (source.getFormat().getSampleRate() != format.getSampleRate()) {
+                source = PcmSources.resample(source, format.getSampleRate(), resamplerQuality);
+            }
+            if (!source.getFormat().matches(format)) {
+                throw new UnsupportedAudioFileException("曲目格式与输出格式不一致: " + source.getFormat());
+            }
+
+            boolean effects = PcmKernels.isSupported(format);
+            ParametricEqualizer trackEqualizer = null;
+            if (effects && equalize && Arrays.stream(bands).anyMatch(band -> band.gainDb() != 0)) {
+                trackEqualizer = new ParametricEqualizer(bands);
+                trackEqualizer.configure(format.getSampleRate(), format.getChannels());
+            }
+            boolean gain = effects && volume != 1.0f;
+
+            int frameBytes = format.getFrameSize();
+            int bytesPerSample = format.getSampleSizeInBits() / 8;
+            float[] samples = effects && (gain || trackEqualizer != null)
+                    ? new float[RENDER_BLOCK_FRAMES * format.getChannels()] : null;
+            while (true) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                byte[] block = new byte[RENDER_BLOCK_FRAMES * frameBytes];
+                int filled = 0;
+                int read;
+                while (filled < block.length && (read = source.read(block, filled, block.length - filled)) >= 0) {
+                    filled += read;
+                }
+                if (filled == 0) {
+                    break;
+                }
+                if (filled < block.length) {
+                    block = Arrays.copyOf(block, filled);
+                }
+
+                if (samples != null) {
+                    int count = filled / bytesPerSample;
+                    pcmKernel.toFloat(format, block, 0, samples, 0, count);
+                    if (trackEqualizer != null) {
+                        trackEqualizer.process(samples, 0, count / format.getChannels());
+                    }
+                    if (gain) {
+                        pcmKernel.applyGain(samples, 0, count, volume);
+                    }
+                    pcmKernel.fromFloat(samples, 0, format, block, 0, count);
+                }
+                // 写入方未取走时在此等待
+                track.blocks.put(block);
+                if (filled < RENDER_BLOCK_FRAMES * frameBytes) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            // 渲染已取消
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            track.error = e;
+        } finally {
+            if (source != null) {
+                closeQuietly(source);
             }
+            track.finish();
         }
     }
 
     // ==================== 查询方法 ====================
 
+    /**
+     * 当前听到的播放时间（秒），以输出设备的播放位置为准，不含输出缓冲区中尚未播放的数据
+     */
     public double getCurrentTime() {
         if (originalFormat == null) return 0;
-        return currentFrame.get() / originalFormat.getFrameRate();
+        return getPlayedFrame() / playbackFrameRate;
+    }
+
+    /**
+     * 指定 {@link System#nanoTime()} 时刻听到的播放时间（秒），用于将歌词、视频帧对齐到显示时刻
+     */
+    public double getCurrentTimeAt(long nanoTime) {
+        if (originalFormat == null) return 0;
+        return playbackClock.getFrame(nanoTime) / playbackFrameRate;
     }
 
     public double getTotalTime() {
         if (originalFormat == null) return 0;
-        return totalFrames.get() / originalFormat.getFrameRate();
+        return totalFrames.get() / playbackFrameRate;
     }
 
     public double getPlaybackProgress() {
         long total = totalFrames.get();
         if (total <= 0) return 0;
-        return (double) currentFrame.get() / total;
+        return Math.min(1.0, (double) getPlayedFrame() / total);
+    }
+
+    /**
+     * 当前听到的曲目帧位置
+     * <p>
+     * 由输出设备的帧位置和播放开始、跳转、切歌时记录的锚点换算，在设备位置的两次更新之间按系统时钟插值；
+     * 读取无锁、无分配。
+     */
+    public long getPlayedFrame() {
+        return playbackClock.getFrame();
+    }
+
+    /**
+     * 设置位置事件的发布频率（次/秒，默认30）
+     * <p>
+     * 位置由单个报告线程按该频率读取，变化时发布 {@link PlaybackEventListener#onPositionChanged} 事件；
+     * 监听器处理较慢时按 {@link #setPositionEventPolicy} 合并或丢弃积压的位置事件。
+     */
+    public void setPositionUpdateRate(double hz) {
+        positionReporter.setRate(hz);
+    }
+
+    public double getPositionUpdateRate() {
+        return positionReporter.getRate();
+    }
+
+    /**
+     * 获取位置事件发布统计：已发布次数、因监听器处理较慢而合并的周期数
+     */
+    public Map<String, Object> getPositionReporterStatistics() {
+        return positionReporter.getStatistics();
     }
 
     public String getFormattedCurrentTime() {
@@ -1303,13 +3190,263 @@ public class AdvancedStreamAudioPlayer {
 
     public Map<String, Object> getPlaybackStatistics() {
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalPlayTimeMs", totalPlayTime.get());
+        long start = startTime;
+        stats.put("totalPlayTimeMs", totalPlayTime.get() + (start > 0 ? System.currentTimeMillis() - start : 0));
         stats.put("currentTrackPlayCount",
                 playCount.getOrDefault(currentAudioFile != null ?
                         currentAudioFile.getName() : "", new AtomicInteger(0)).get());
         stats.put("playlistSize", playlistManager.size());
         stats.put("playMode", playlistManager.getPlayMode().getDescription());
         stats.put("playbackState", playbackState.name());
+        stats.put("threadingMode", threadingMode.name());
+        stats.put("underruns", healthMonitor.getUnderruns());
+        stats.put("framesRendered", healthMonitor.getFramesRendered());
+        return stats;
+    }
+
+    /**
+     * 获取播放健康指标快照：欠载次数、写入阻塞和解码耗时分布、输出缓冲区填充率、渲染速率
+     * <p>
+     * 开销很小，可供监控程序定期轮询；瞬时渲染速率和最低填充率按相邻两次快照之间的区间计算。
+     */
+    public PlaybackHealthMonitor.Snapshot getHealthSnapshot() {
+        return healthMonitor.snapshot();
+    }
+
+    /**
+     * 设置预解码深度（数据块数量），下次播放时生效
+     */
+    public void setReadAheadDepth(int depth) {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("预解码深度必须大于0");
+        }
+        this.readAheadDepth = depth;
+    }
+
+    public int getReadAheadDepth() {
+        return readAheadDepth;
+    }
+
+    /**
+     * 选择延迟档位，下次播放时生效
+     * <p>
+     * 档位决定写入数据块大小、输出缓冲区时长和预解码深度（会覆盖 {@link #setReadAheadDepth(int)} 的设置）；
+     * 使用声卡输出时同时设置 {@link LineAudioSink#setBufferSize(int)}。
+     * 为null时恢复构造时指定的数据块大小和设备默认缓冲区。
+     */
+    public void setLatencyProfile(LatencyProfile profile) {
+        this.latencyProfile = profile;
+        if (profile != null) {
+            this.readAheadDepth = profile.getReadAheadDepth();
+        } else if (audioSink instanceof LineAudioSink lineSink) {
+            lineSink.setBufferSize(AudioSystem.NOT_SPECIFIED);
+        }
+    }
+
+    public LatencyProfile getLatencyProfile() {
+        return latencyProfile;
+    }
+
+    /**
+     * 设置自适应缓冲，下次播放时生效
+     * <p>
+     * 检测到欠载后数据块和输出缓冲区逐级放大（最多 {@link AdaptiveBufferSizer#getMaxScale()} 倍），
+     * 稳定期内没有欠载则逐级缩回档位的基础大小。未选择延迟档位时以 {@link LatencyProfile#BALANCED} 为基础。
+     */
+    public void setAdaptiveBuffering(boolean enabled) {
+        this.adaptiveBuffering = enabled;
+    }
+
+    public boolean isAdaptiveBuffering() {
+        return adaptiveBuffering;
+    }
+
+    /**
+     * 设置自适应缓冲缩回前需要保持无欠载的时长
+     */
+    public void setAdaptiveStablePeriod(long duration, TimeUnit unit) {
+        bufferSizer.setStablePeriod(duration, unit);
+    }
+
+    /**
+     * 获取缓冲配置和欠载统计：延迟档位、当前数据块和目标缓冲区大小（字节和毫秒）、设备缓冲区容量、
+     * 预解码深度、欠载次数，以及自适应缓冲的级别和调整次数
+     */
+    public Map<String, Object> getBufferStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        LatencyProfile profile = latencyProfile;
+        stats.put("latencyProfile", profile != null ? profile.name() : "FIXED");
+        stats.put("adaptive", adaptiveActive);
+        stats.put("chunkBytes", chunkBytes);
+        stats.put("chunkMillis", bytesToMillis(chunkBytes));
+        stats.put("targetBufferBytes", targetBufferBytes);
+        stats.put("targetBufferMillis", bytesToMillis(targetBufferBytes));
+        AudioSink sink = activeSink;
+        int outputBufferBytes = sink != null ? sink.getBufferSize() : 0;
+        stats.put("outputBufferBytes", outputBufferBytes);
+        stats.put("outputBufferMillis", bytesToMillis(outputBufferBytes));
+        stats.put("readAheadDepth", readAheadDepth);
+        stats.put("underruns", healthMonitor.getUnderruns());
+        stats.put("adaptiveBuffering", bufferSizer.getStatistics());
+        return stats;
+    }
+
+    private double bytesToMillis(int bytes) {
+        float frameRate = playbackFrameRate;
+        int size = frameSize;
+        if (bytes <= 0 || frameRate <= 0 || size <= 0) {
+            return 0.0;
+        }
+        return bytes / (double) size / frameRate * 1000.0;
+    }
+
+    /**
+     * 获取预解码队列统计信息
+     */
+    public Map<String, Object> getDecodeAheadStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        DecodeAheadPipeline pipeline = decodePipeline;
+        stats.put("readAheadDepth", readAheadDepth);
+        stats.put("chunkSize", chunkBytes > 0 ? chunkBytes : bufferSize);
+        if (pipeline != null) {
+            stats.put("capacityBytes", pipeline.getCapacityBytes());
+            stats.put("queuedBytes", pipeline.getQueuedBytes());
+            stats.put("queuedChunks", pipeline.getQueuedChunks());
+            stats.put("peakQueuedChunks", pipeline.getPeakQueuedChunks());
+            stats.put("averageQueuedChunks", pipeline.getAverageQueuedChunks());
+            stats.put("underflowCount", pipeline.getUnderflowCount());
+            stats.put("decoderStallCount", pipeline.getDecoderStallCount());
+            stats.put("droppedBytes", pipeline.getDroppedBytes());
+            stats.put("decodedChunks", pipeline.getDecodedChunks());
+            stats.put("decodedBytes", pipeline.getDecodedBytes());
+        }
+        return stats;
+    }
+
+    /**
+     * 设置无缝播放模式
+     * <p>
+     * 启用后，当前曲目结束前预先打开播放列表中的下一首，格式相同时在同一音频设备上直接衔接PCM数据，曲目之间没有静音间隙。
+     */
+    public void setGaplessEnabled(boolean enabled) {
+        this.gaplessEnabled = enabled;
+    }
+
+    public boolean isGaplessEnabled() {
+        return gaplessEnabled;
+    }
+
+    /**
+     * 设置无缝播放的预加载提前量（秒）
+     */
+    public void setGaplessPreloadTime(double seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("预加载时间不能为负数");
+        }
+        this.gaplessPreloadSeconds = seconds;
+    }
+
+    public double getGaplessPreloadTime() {
+        return gaplessPreloadSeconds;
+    }
+
+    /**
+     * 设置交叉淡入淡出时长（秒），0表示关闭
+     * <p>
+     * 当前曲目结束前的过渡时长内同时解码下一首，按等功率曲线混音；手动切换上一首/下一首时同样生效。
+     * 两首曲目输出格式不同时不做过渡。
+     */
+    public void setCrossfadeTime(double seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("交叉淡入淡出时长不能为负数");
+        }
+        this.crossfadeSeconds = seconds;
+    }
+
+    public double getCrossfadeTime() {
+        return crossfadeSeconds;
+    }
+
+    /**
+     * 设置统一输出采样率（Hz），0表示使用曲目原采样率
+     * <p>
+     * 设置后采样率不同的曲目在解码后重采样，所有曲目共用同一设备格式，
+     * 混合采样率的播放列表也能无缝衔接和交叉淡入淡出。从下一次打开曲目起生效。
+     */
+    public void setOutputSampleRate(float sampleRate) {
+        if (sampleRate < 0) {
+            throw new IllegalArgumentException("采样率不能为负数");
+        }
+        this.outputSampleRate = sampleRate;
+    }
+
+    public float getOutputSampleRate() {
+        return outputSampleRate;
+    }
+
+    /**
+     * 设置重采样质量
+     */
+    public void setResamplerQuality(SampleRateConverter.Quality quality) {
+        if (quality == null) {
+            throw new IllegalArgumentException("重采样质量不能为空");
+        }
+        this.resamplerQuality = quality;
+    }
+
+    public SampleRateConverter.Quality getResamplerQuality() {
+        return resamplerQuality;
+    }
+
+    /**
+     * 获取音频输出
+     * <p>
+     * 使用声卡输出时可通过 {@link LineAudioSink#setKeepOpen(boolean)} 设置曲目之间是否保持线路打开。
+     */
+    public AudioSink getAudioSink() {
+        return audioSink;
+    }
+
+    /**
+     * 获取输出统计信息：输出自身的统计（如线路打开/复用次数），以及从请求播放到首批数据写入输出的耗时
+     */
+    public Map<String, Object> getOutputStatistics() {
+        Map<String, Object> stats = new HashMap<>(audioSink.getStatistics());
+        stats.putAll(firstSampleTimer.getStatistics());
+        stats.put("lastScheduledStartLateMicros", scheduledStartLateNanos / 1000.0);
+        return stats;
+    }
+
+    /**
+     * 设置已解码PCM缓存，传入null禁用缓存
+     */
+    public void setPcmCache(PcmCache cache) {
+        this.pcmCache = cache;
+    }
+
+    public PcmCache getPcmCache() {
+        return pcmCache;
+    }
+
+    /**
+     * 获取已解码PCM缓存统计信息
+     */
+    public Map<String, Object> getPcmCacheStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        PcmCache cache = pcmCache;
+        stats.put("enabled", cache != null && cache.getMaxBytes() > 0);
+        if (cache != null) {
+            stats.put("maxBytes", cache.getMaxBytes());
+            stats.put("currentBytes", cache.getCurrentBytes());
+            stats.put("reservedBytes", cache.getReservedBytes());
+            stats.put("entryCount", cache.getEntryCount());
+            stats.put("offHeap", cache.isOffHeap());
+            stats.put("hitCount", cache.getHitCount());
+            stats.put("missCount", cache.getMissCount());
+            stats.put("evictionCount", cache.getEvictionCount());
+            stats.put("insertionCount", cache.getInsertionCount());
+            stats.put("rejectionCount", cache.getRejectionCount());
+        }
         return stats;
     }
 
@@ -1326,10 +3463,25 @@ public class AdvancedStreamAudioPlayer {
     }
 
     public List<String> getSupportedSoundEffects() {
-        return new ArrayList<>(soundControls.keySet());
+        List<String> effects = new ArrayList<>(soundControls.keySet());
+        for (int i = 0; i < equalizer.getBandCount(); i++) {
+            effects.add(equalizerEffectName(equalizer.getBand(i).frequency()));
+        }
+        return effects;
     }
 
     public boolean setSoundEffect(String effectType, float value) {
+        int band = findEqualizerBand(effectType.toUpperCase());
+        if (band >= 0) {
+            try {
+                equalizer.setBandGain(band, value);
+                return true;
+            } catch (IllegalArgumentException e) {
+                logger.error("Invalid value for sound effect: " + effectType, "setEffect", e);
+                return false;
+            }
+        }
+
         FloatControl control = soundControls.get(effectType.toUpperCase());
         if (control != null) {
             try {
@@ -0,0 +1,75 @@
+package cn.ncw.music.stream;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 播放器线程配置
+ * <p>
+ * 播放器使用三类线程：后台任务（事件分发、播放完成处理、预打开下一首）、解码线程（磁盘读取与解码）
+ * 和设备写入线程。{@link Mode#VIRTUAL} 模式下前两类运行在虚拟线程上，同一JVM中的大量播放器
+ * 不再各自持有平台线程池；设备写入线程对调度延迟敏感，始终使用最高优先级的平台线程。
+ * <p>
+ * 未指定的部分由播放器按模式创建。注入的任务执行器由调用方管理，播放器关闭时不会将其关闭。
+ *
+ * @param mode                 线程模式
+ * @param taskExecutor         后台任务执行器，为null时由播放器创建
+ * @param decoderThreadFactory 解码线程工厂，为null时按模式创建
+ * @param writerThreadFactory  设备写入线程工厂，为null时使用最高优先级的平台守护线程
+ */
+public record PlayerExecutors(Mode mode, ExecutorService taskExecutor,
+                              ThreadFactory decoderThreadFactory, ThreadFactory writerThreadFactory) {
+
+    public enum Mode {
+        /**
+         * 每个播放器使用独立的平台线程池
+         */
+        PLATFORM,
+        /**
+         * 后台任务和解码使用虚拟线程
+         */
+        VIRTUAL
+    }
+
+    public PlayerExecutors {
+        if (mode == null) {
+            throw new IllegalArgumentException("线程模式不能为空");
+        }
+    }
+
+    /**
+     * 平台线程模式（默认）
+     */
+    public static PlayerExecutors platform() {
+        return new PlayerExecutors(Mode.PLATFORM, null, null, null);
+    }
+
+    /**
+     * 虚拟线程模式
+     */
+    public static PlayerExecutors virtual() {
+        return new PlayerExecutors(Mode.VIRTUAL, null, null, null);
+    }
+
+    /**
+     * 使用共享的任务执行器，多个播放器可共用同一个执行器
+     */
+    public static PlayerExecutors shared(ExecutorService taskExecutor) {
+        if (taskExecutor == null) {
+            throw new IllegalArgumentException("任务执行器不能为空");
+        }
+        return new PlayerExecutors(Mode.PLATFORM, taskExecutor, null, null);
+    }
+
+    public PlayerExecutors withTaskExecutor(ExecutorService executor) {
+        return new PlayerExecutors(mode, executor, decoderThreadFactory, writerThreadFactory);
+    }
+
+    public PlayerExecutors withDecoderThreadFactory(ThreadFactory factory) {
+        return new PlayerExecutors(mode, taskExecutor, factory, writerThreadFactory);
+    }
+
+    public PlayerExecutors withWriterThreadFactory(ThreadFactory factory) {
+        return new PlayerExecutors(mode, taskExecutor, decoderThreadFactory, factory);
+    }
+}
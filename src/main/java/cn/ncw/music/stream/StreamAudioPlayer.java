@@ -1,5 +1,7 @@
 package cn.ncw.music.stream;
 
+import cn.ncw.music.stream.source.PcmSource;
+import cn.ncw.music.stream.source.PcmSources;
 import lombok.Getter;
 
 import javax.sound.sampled.*;
@@ -20,7 +22,8 @@ public class StreamAudioPlayer {
     // 成员变量
     private SourceDataLine sourceDataLine;
     private Thread playbackThread;
-    private AudioInputStream audioStream;
+    private PcmSource audioSource;
+    private final Object sourceLock = new Object();
     private volatile boolean playing;
     private volatile boolean paused;
     /**
@@ -62,6 +65,7 @@ public class StreamAudioPlayer {
      */
     @Getter
     private long currentFrame; // 当前帧位置
+    private long seekGeneration; // 跳转次数，持有sourceLock时访问，用于识别跳转前读取的数据
     private int frameSize; // 每帧的字节数
     /**
      * -- GETTER --
@@ -89,37 +93,20 @@ public class StreamAudioPlayer {
         // 停止当前播放
         stop();
 
-        // 准备音频流
+        // 准备音频流（不支持的格式会转换为标准PCM格式）
         audioFile = new File(filePath);
-        audioStream = AudioSystem.getAudioInputStream(audioFile);
-        originalFormat = audioStream.getFormat();
+        audioSource = PcmSources.open(audioFile);
+        originalFormat = audioSource.getSourceFormat();
 
         // 计算总帧数和帧大小
-        totalFrames = audioStream.getFrameLength();
-        frameSize = originalFormat.getFrameSize();
+        totalFrames = audioSource.getFrameLength();
+        frameSize = audioSource.getFormat().getFrameSize();
 
         // 重置当前位置
         currentFrame = 0;
 
-        // 如果不支持此格式，则转换为标准PCM格式
-        if (!isFormatSupported(originalFormat)) {
-            AudioFormat targetFormat = new AudioFormat(
-                    AudioFormat.Encoding.PCM_SIGNED,
-                    originalFormat.getSampleRate(),
-                    16,
-                    originalFormat.getChannels(),
-                    originalFormat.getChannels() * 2,
-                    originalFormat.getSampleRate(),
-                    false);
-            audioStream = AudioSystem.getAudioInputStream(targetFormat, audioStream);
-            // 更新帧信息
-            frameSize = targetFormat.getFrameSize();
-            // 重新计算总帧数（转换后可能不同）
-            totalFrames = audioStream.getFrameLength();
-        }
-
         // 打开数据行
-        AudioFormat format = audioStream.getFormat();
+        AudioFormat format = audioSource.getFormat();
         DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
         sourceDataLine = (SourceDataLine) AudioSystem.getLine(info);
         sourceDataLine.open(format);
@@ -196,7 +183,7 @@ public class StreamAudioPlayer {
      * @return 是否跳转成功
      */
     public boolean seekToTime(double seconds) {
-        if (!positionSupported || audioStream == null) {
+        if (!positionSupported || audioSource == null) {
             return false;
         }
 
@@ -207,17 +194,20 @@ public class StreamAudioPlayer {
 
     /**
      * 跳转到指定帧位置
+     * <p>
+     * 未压缩文件直接重定位读取位置，播放不中断；其他格式需要暂停并重新打开音频流。
      *
      * @param frame 目标帧位置
      * @return 是否跳转成功
      */
     public boolean seekToFrame(long frame) {
-        if (!positionSupported || audioFile == null || frame < 0 || frame >= totalFrames) {
+        PcmSource source = audioSource;
+        if (!positionSupported || audioFile == null || source == null || frame < 0 || frame >= totalFrames) {
             return false;
         }
 
         // 保存当前状态
-        boolean wasPlaying = (playbackState == STATE_PLAYING);
+        boolean wasPlaying = !source.isRandomAccess() && (playbackState == STATE_PLAYING);
 
         // 暂停播放
         if (wasPlaying) {
@@ -225,37 +215,17 @@ public class StreamAudioPlayer {
         }
 
         try {
-            // 关闭当前流
-            if (audioStream != null) {
-                audioStream.close();
-            }
-
-            // 重新打开音频流并跳转到指定位置
-            audioStream = AudioSystem.getAudioInputStream(audioFile);
-
-            // 如果需要格式转换
-            if (!isFormatSupported(originalFormat)) {
-                AudioFormat targetFormat = new AudioFormat(
-                        AudioFormat.Encoding.PCM_SIGNED,
-                        originalFormat.getSampleRate(),
-                        16,
-                        originalFormat.getChannels(),
-                        originalFormat.getChannels() * 2,
-                        originalFormat.getSampleRate(),
-                        false);
-                audioStream = AudioSystem.getAudioInputStream(targetFormat, audioStream);
-            }
-
-            // 跳过指定数量的帧
-            long bytesToSkip = frame * frameSize;
-            long skipped = audioStream.skip(bytesToSkip);
-
-            if (skipped != bytesToSkip) {
-                System.out.println("跳转不精确: 期望 " + bytesToSkip + " 字节, 实际跳过 " + skipped + " 字节");
+            synchronized (sourceLock) {
+                source.seekToFrame(frame);
+                currentFrame = frame;
+                seekGeneration++;
+
+                // 丢弃设备中尚未播放的旧数据
+                if (sourceDataLine != null) {
+                    sourceDataLine.flush();
+                }
             }
 
-            currentFrame = frame;
-
             // 如果之前正在播放，则恢复播放
             if (wasPlaying) {
                 resume();
@@ -490,6 +460,7 @@ public class StreamAudioPlayer {
             int bufferSize = 4096; // 4KB缓冲区
             byte[] buffer = new byte[bufferSize];
             int bytesRead;
+            long generation;
 
             // 播放循环
             while (playing) {
@@ -506,7 +477,10 @@ public class StreamAudioPlayer {
                 }
 
                 // 读取数据
-                bytesRead = audioStream.read(buffer, 0, buffer.length);
+                synchronized (sourceLock) {
+                    bytesRead = audioSource.read(buffer, 0, buffer.length);
+                    generation = seekGeneration;
+                }
 
                 if (bytesRead == -1) {
                     break; // 文件结束
@@ -514,10 +488,20 @@ public class StreamAudioPlayer {
 
                 // 写入数据行
                 if (bytesRead > 0) {
+                    // 读取后发生了跳转：这块数据属于旧位置，丢弃
+                    synchronized (sourceLock) {
+                        if (generation != seekGeneration) {
+                            continue;
+                        }
+                    }
                     sourceDataLine.write(buffer, 0, bytesRead);
-                    // 更新当前位置（基于读取的字节数计算帧数）
+                    // 更新当前位置（基于读取的字节数计算帧数），写入期间发生跳转时不再计入
                     int framesRead = bytesRead / frameSize;
-                    currentFrame += framesRead;
+                    synchronized (sourceLock) {
+                        if (generation == seekGeneration) {
+                            currentFrame += framesRead;
+                        }
+                    }
                 }
             }
 
@@ -541,21 +525,15 @@ public class StreamAudioPlayer {
                 sourceDataLine.close();
                 sourceDataLine = null;
             }
-            if (audioStream != null) {
-                audioStream.close();
-                audioStream = null;
+            if (audioSource != null) {
+                audioSource.close();
+                audioSource = null;
             }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    // 检查格式是否支持
-    private boolean isFormatSupported(AudioFormat format) {
-        DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
-        return AudioSystem.isLineSupported(info);
-    }
-
     public static void main(String[] args) throws UnsupportedAudioFileException, LineUnavailableException, IOException, InterruptedException {
         StreamAudioPlayer player = new StreamAudioPlayer();
         player.play("wait.wav");
@@ -0,0 +1,265 @@
+package cn.ncw.music.stream.buffer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+
+/**
+ * 单生产者/单消费者无锁环形缓冲区 - 用于PCM数据交接
+ * <p>
+ * 数据存储在堆外直接缓冲区中，读写计数器按缓存行填充隔离，避免伪共享。
+ * 生产者只修改写入计数器，消费者只修改读取计数器，全程不获取监视器锁，也不产生逐块分配。
+ * <p>
+ * 线程约束：write/writable 只能由生产者线程调用，read/skip/readable 只能由消费者线程调用。
+ */
+public final class PcmRingBuffer extends PcmRingBufferHeadPad {
+
+    private static final VarHandle TAIL;
+    private static final VarHandle HEAD;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TAIL = lookup.findVarHandle(PcmRingBufferTail.class, "tail", long.class);
+            HEAD = lookup.findVarHandle(PcmRingBufferHead.class, "head", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final int mask;
+
+    /**
+     * @param minCapacity 最小容量（字节），实际容量向上取整为2的幂
+     */
+    public PcmRingBuffer(int minCapacity) {
+        if (minCapacity <= 0 || minCapacity > (1 << 30)) {
+            throw new IllegalArgumentException("环形缓冲区容量无效: " + minCapacity);
+        }
+        this.capacity = minCapacity == 1 ? 1 : Integer.highestOneBit(minCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // ==================== 生产者 ====================
+
+    /**
+     * 写入数据，空间不足时只写入部分数据
+     *
+     * @return 实际写入的字节数
+     */
+    public int write(byte[] src, int offset, int length) {
+        long tail = (long) TAIL.getOpaque(this);
+        int free = capacity - (int) (tail - headCache);
+        if (free < length) {
+            headCache = (long) HEAD.getAcquire(this);
+            free = capacity - (int) (tail - headCache);
+        }
+
+        int toWrite = Math.min(free, length);
+        if (toWrite <= 0) {
+            return 0;
+        }
+
+        int index = (int) tail & mask;
+        int firstPart = Math.min(toWrite, capacity - index);
+        buffer.put(index, src, offset, firstPart);
+        if (firstPart < toWrite) {
+            buffer.put(0, src, offset + firstPart, toWrite - firstPart);
+        }
+
+        TAIL.setRelease(this, tail + toWrite);
+        return toWrite;
+    }
+
+    /**
+     * 写入直接缓冲区中的数据（从其position开始），并推进src的position
+     *
+     * @return 实际写入的字节数
+     */
+    public int write(ByteBuffer src) {
+        long tail = (long) TAIL.getOpaque(this);
+        int length = src.remaining();
+        int free = capacity - (int) (tail - headCache);
+        if (free < length) {
+            headCache = (long) HEAD.getAcquire(this);
+            free = capacity - (int) (tail - headCache);
+        }
+
+        int toWrite = Math.min(free, length);
+        if (toWrite <= 0) {
+            return 0;
+        }
+
+        int position = src.position();
+        int index = (int) tail & mask;
+        int firstPart = Math.min(toWrite, capacity - index);
+        buffer.put(index, src, position, firstPart);
+        if (firstPart < toWrite) {
+            buffer.put(0, src, position + firstPart, toWrite - firstPart);
+        }
+        src.position(position + toWrite);
+
+        TAIL.setRelease(this, tail + toWrite);
+        return toWrite;
+    }
+
+    /**
+     * 当前可写入的字节数（生产者视角）
+     */
+    public int writable() {
+        long tail = (long) TAIL.getOpaque(this);
+        headCache = (long) HEAD.getAcquire(this);
+        return capacity - (int) (tail - headCache);
+    }
+
+    /**
+     * 累计写入的字节位置
+     */
+    public long writePosition() {
+        return (long) TAIL.getAcquire(this);
+    }
+
+    // ==================== 消费者 ====================
+
+    /**
+     * 读取数据，数据不足时只读取部分数据
+     *
+     * @return 实际读取的字节数
+     */
+    public int read(byte[] dst, int offset, int length) {
+        long head = (long) HEAD.getOpaque(this);
+        int available = (int) (tailCache - head);
+        if (available < length) {
+            tailCache = (long) TAIL.getAcquire(this);
+            available = (int) (tailCache - head);
+        }
+
+        int toRead = Math.min(available, length);
+        if (toRead <= 0) {
+            return 0;
+        }
+
+        int index = (int) head & mask;
+        int firstPart = Math.min(toRead, capacity - index);
+        buffer.get(index, dst, offset, firstPart);
+        if (firstPart < toRead) {
+            buffer.get(0, dst, offset + firstPart, toRead - firstPart);
+        }
+
+        HEAD.setRelease(this, head + toRead);
+        return toRead;
+    }
+
+    /**
+     * 读取数据到目标缓冲区（从其position开始），并推进dst的position
+     *
+     * @return 实际读取的字节数
+     */
+    public int read(ByteBuffer dst) {
+        long head = (long) HEAD.getOpaque(this);
+        int length = dst.remaining();
+        int available = (int) (tailCache - head);
+        if (available < length) {
+            tailCache = (long) TAIL.getAcquire(this);
+            available = (int) (tailCache - head);
+        }
+
+        int toRead = Math.min(available, length);
+        if (toRead <= 0) {
+            return 0;
+        }
+
+        int position = dst.position();
+        int index = (int) head & mask;
+        int firstPart = Math.min(toRead, capacity - index);
+        dst.put(position, buffer, index, firstPart);
+        if (firstPart < toRead) {
+            dst.put(position + firstPart, buffer, 0, toRead - firstPart);
+        }
+        dst.position(position + toRead);
+
+        HEAD.setRelease(this, head + toRead);
+        return toRead;
+    }
+
+    /**
+     * 丢弃数据直到指定的写入位置（不超过已写入位置）
+     *
+     * @return 实际丢弃的字节数
+     */
+    public int skipTo(long position) {
+        long head = (long) HEAD.getOpaque(this);
+        tailCache = (long) TAIL.getAcquire(this);
+        long target = Math.min(position, tailCache);
+        if (target <= head) {
+            return 0;
+        }
+        HEAD.setRelease(this, target);
+        return (int) (target - head);
+    }
+
+    /**
+     * 当前可读取的字节数（消费者视角）
+     */
+    public int readable() {
+        long head = (long) HEAD.getOpaque(this);
+        tailCache = (long) TAIL.getAcquire(this);
+        return (int) (tailCache - head);
+    }
+
+    /**
+     * 累计读取的字节位置
+     */
+    public long readPosition() {
+        return (long) HEAD.getAcquire(this);
+    }
+
+    /**
+     * 任意线程可调用的近似占用量
+     */
+    public int size() {
+        long head = (long) HEAD.getAcquire(this);
+        long tail = (long) TAIL.getAcquire(this);
+        return (int) Math.max(0, Math.min(capacity, tail - head));
+    }
+}
+
+/**
+ * 以下类只用于按缓存行隔离计数器字段，字段布局依赖继承顺序
+ */
+@SuppressWarnings("unused")
+abstract class PcmRingBufferPad0 {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+    long p08, p09, p0a, p0b, p0c, p0d, p0e, p0f;
+}
+
+abstract class PcmRingBufferTail extends PcmRingBufferPad0 {
+    // 生产者写入计数器及其缓存的读取计数器
+    volatile long tail;
+    long headCache;
+}
+
+@SuppressWarnings("unused")
+abstract class PcmRingBufferTailPad extends PcmRingBufferTail {
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+    long p18, p19, p1a, p1b, p1c, p1d, p1e, p1f;
+}
+
+abstract class PcmRingBufferHead extends PcmRingBufferTailPad {
+    // 消费者读取计数器及其缓存的写入计数器
+    volatile long head;
+    long tailCache;
+}
+
+@SuppressWarnings("unused")
+abstract class PcmRingBufferHeadPad extends PcmRingBufferHead {
+    long p20, p21, p22, p23, p24, p25, p26, p27;
+    long p28, p29, p2a, p2b, p2c, p2d, p2e, p2f;
+}
@@ -0,0 +1,142 @@
+package cn.ncw.music.stream.control;
+
+import cn.ncw.music.stream.metrics.LatencyHistogram;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 播放控制命令队列 - 任意线程提交，音频线程在数据块边界按提交顺序执行
+ * <p>
+ * 提交无锁（多生产者单消费者），提交后唤醒挂起的音频线程；音频线程调用 {@link #drain()} 执行积压的命令，
+ * 队列为空时只有一次读取。没有绑定音频线程（未播放）时命令在提交线程上直接执行。
+ * 每个命令返回完成时的 {@link CompletableFuture}，并记录从提交到执行完成的延迟。
+ */
+public class CommandQueue {
+
+    private final ConcurrentLinkedQueue<Command<?>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<Thread> consumer = new AtomicReference<>();
+    private final Object inlineLock = new Object();
+
+    // 统计信息
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong submitted = new AtomicLong(0);
+    private final AtomicLong inlineExecuted = new AtomicLong(0);
+    private final AtomicLong failed = new AtomicLong(0);
+
+    private static final class Command<T> {
+        private final Callable<T> action;
+        private final long submitNanos = System.nanoTime();
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Command(Callable<T> action) {
+            this.action = action;
+        }
+    }
+
+    /**
+     * 提交命令
+     * <p>
+     * 在音频线程上提交（如监听器回调中）时直接执行，避免等待自己。
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> action) {
+        Command<T> command = new Command<>(action);
+        submitted.incrementAndGet();
+        if (consumer.get() == Thread.currentThread()) {
+            execute(command);
+            return command.future;
+        }
+
+        queue.offer(command);
+        Thread thread = consumer.get();
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        } else {
+            drainInline();
+        }
+        return command.future;
+    }
+
+    /**
+     * 绑定执行命令的音频线程（在线程启动前调用）
+     */
+    public void bind(Thread thread) {
+        synchronized (inlineLock) {
+            consumer.set(thread);
+        }
+    }
+
+    /**
+     * 解除绑定，并在调用线程上执行尚未执行的命令
+     */
+    public void unbind(Thread thread) {
+        if (consumer.compareAndSet(thread, null)) {
+            drainInline();
+        }
+    }
+
+    /**
+     * 执行所有已提交的命令（仅绑定的音频线程调用）
+     * <p>
+     * 调用线程已不是绑定的音频线程时（已被新的音频线程取代）不执行，命令留给绑定的线程。
+     */
+    public void drain() {
+        if (consumer.get() != Thread.currentThread()) {
+            return;
+        }
+        Command<?> command;
+        while ((command = queue.poll()) != null) {
+            execute(command);
+        }
+    }
+
+    private void drainInline() {
+        synchronized (inlineLock) {
+            Thread thread = consumer.get();
+            if (thread != null) {
+                // 已绑定新的音频线程，由它执行
+                LockSupport.unpark(thread);
+                return;
+            }
+            Command<?> command;
+            while ((command = queue.poll()) != null) {
+                inlineExecuted.incrementAndGet();
+                execute(command);
+            }
+        }
+    }
+
+    private <T> void execute(Command<T> command) {
+        try {
+            T result = command.action.call();
+            latency.record(System.nanoTime() - command.submitNanos);
+            command.future.complete(result);
+        } catch (Throwable e) {
+            failed.incrementAndGet();
+            command.future.completeExceptionally(e);
+        }
+    }
+
+    public boolean hasPending() {
+        return !queue.isEmpty();
+    }
+
+    /**
+     * 获取命令统计信息：提交数、在提交线程上执行的数量、失败数和提交到完成的延迟分布
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("submitted", submitted.get());
+        stats.put("inlineExecuted", inlineExecuted.get());
+        stats.put("failed", failed.get());
+        stats.put("pending", queue.size());
+        stats.put("latency", latency.snapshot().toMap());
+        return stats;
+    }
+}
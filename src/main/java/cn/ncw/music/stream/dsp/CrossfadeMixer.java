@@ -0,0 +1,148 @@
+package cn.ncw.music.stream.dsp;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * 交叉淡入淡出混音 - 等功率增益曲线
+ * <p>
+ * 淡入增益为 sin(t·π/2)，淡出增益为 cos(t·π/2)，两者平方和恒为1，过渡期间响度保持稳定。
+ * 增益按帧查表，16位PCM走专用路径；其余整数/浮点格式经 {@link PcmKernel} 转为浮点样本，
+ * 按增益不变的帧段批量处理后再转回。
+ * <p>
+ * 实例持有浮点缓冲区，不是线程安全的，由写入线程独占使用。
+ */
+public final class CrossfadeMixer {
+
+    private static final int CURVE_RESOLUTION = 1024;
+
+    // 四分之一周期正弦表：SINE[i] = sin(i / RESOLUTION · π/2)
+    private static final float[] SINE = new float[CURVE_RESOLUTION + 1];
+
+    static {
+        for (int i = 0; i <= CURVE_RESOLUTION; i++) {
+            SINE[i] = (float) Math.sin((double) i / CURVE_RESOLUTION * Math.PI / 2);
+        }
+    }
+
+    private final PcmKernel kernel;
+    private float[] targetSamples;
+    private float[] fadeOutSamples;
+
+    public CrossfadeMixer() {
+        this(PcmKernels.get());
+    }
+
+    public CrossfadeMixer(PcmKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    /**
+     * 检查格式是否支持混音
+     */
+    public static boolean isSupported(AudioFormat format) {
+        return PcmKernels.isSupported(format);
+    }
+
+    /**
+     * 将淡出数据按等功率曲线混入淡入数据
+     *
+     * @param format        两路数据共同的PCM格式
+     * @param target        淡入数据，混音结果原地写回
+     * @param targetOffset  淡入数据起始位置
+     * @param fadeOut       淡出数据
+     * @param fadeOutOffset 淡出数据起始位置
+     * @param fadeOutLength 淡出数据有效字节数，不足length的部分视为静音
+     * @param length        混音字节数（整帧）
+     * @param position      本段首帧在过渡中的位置（帧）
+     * @param fadeLength    过渡总长度（帧）
+     */
+    public void mix(AudioFormat format, byte[] target, int targetOffset,
+                    byte[] fadeOut, int fadeOutOffset, int fadeOutLength,
+                    int length, long position, long fadeLength) {
+        int frameSize = format.getFrameSize();
+        int bytesPerSample = format.getSampleSizeInBits() / 8;
+        boolean bigEndian = format.isBigEndian();
+
+        if (bytesPerSample == 2 && AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding())) {
+            mix16(target, targetOffset, fadeOut, fadeOutOffset, fadeOutLength, length,
+                    frameSize, bigEndian, position, fadeLength);
+            return;
+        }
+
+        int channels = format.getChannels();
+        int frames = length / frameSize;
+        int samples = frames * channels;
+        int outSamples = Math.min(samples, Math.max(0, fadeOutLength) / bytesPerSample);
+        if (targetSamples == null || targetSamples.length < samples) {
+            targetSamples = new float[samples];
+            fadeOutSamples = new float[samples];
+        }
+
+        kernel.toFloat(format, target, targetOffset, targetSamples, 0, samples);
+        if (outSamples > 0) {
+            kernel.toFloat(format, fadeOut, fadeOutOffset, fadeOutSamples, 0, outSamples);
+        }
+
+        // 增益曲线按表分级，同一级内的帧增益相同，整段交给内核处理
+        int f = 0;
+        while (f < frames) {
+            int curve = curveIndex(position + f, fadeLength);
+            int end = (int) Math.min(frames, nextCurveFrame(curve, fadeLength) - position);
+            int from = f * channels;
+            int to = end * channels;
+            kernel.applyGain(targetSamples, from, to - from, SINE[curve]);
+            int mixTo = Math.min(to, outSamples);
+            if (mixTo > from) {
+                kernel.mix(targetSamples, from, fadeOutSamples, from, mixTo - from, SINE[CURVE_RESOLUTION - curve]);
+            }
+            f = end;
+        }
+
+        kernel.fromFloat(targetSamples, 0, format, target, targetOffset, samples);
+    }
+
+    private static void mix16(byte[] target, int targetOffset, byte[] fadeOut, int fadeOutOffset,
+                              int fadeOutLength, int length, int frameSize, boolean bigEndian,
+                              long position, long fadeLength) {
+        int hi = bigEndian ? 0 : 1;
+        int lo = bigEndian ? 1 : 0;
+        int frames = length / frameSize;
+        for (int f = 0; f < frames; f++) {
+            int curve = curveIndex(position + f, fadeLength);
+            float gainIn = SINE[curve];
+            float gainOut = SINE[CURVE_RESOLUTION - curve];
+            int frameStart = f * frameSize;
+            for (int s = 0; s < frameSize; s += 2) {
+                int i = targetOffset + frameStart + s;
+                int in = (target[i + hi] << 8) | (target[i + lo] & 0xFF);
+                int out = 0;
+                if (frameStart + s < fadeOutLength) {
+                    int j = fadeOutOffset + frameStart + s;
+                    out = (fadeOut[j + hi] << 8) | (fadeOut[j + lo] & 0xFF);
+                }
+                int mixed = Math.round(in * gainIn + out * gainOut);
+                mixed = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mixed));
+                target[i + hi] = (byte) (mixed >> 8);
+                target[i + lo] = (byte) mixed;
+            }
+        }
+    }
+
+    private static int curveIndex(long position, long fadeLength) {
+        if (fadeLength <= 0 || position >= fadeLength) {
+            return CURVE_RESOLUTION;
+        }
+        return (int) (position * CURVE_RESOLUTION / fadeLength);
+    }
+
+    /**
+     * 增益级别超过 curve 的第一帧
+     */
+    private static long nextCurveFrame(int curve, long fadeLength) {
+        if (curve >= CURVE_RESOLUTION) {
+            return Long.MAX_VALUE;
+        }
+        // 满足 position · RESOLUTION / fadeLength >= curve + 1 的最小 position
+        return ((curve + 1) * fadeLength + CURVE_RESOLUTION - 1) / CURVE_RESOLUTION;
+    }
+}
@@ -0,0 +1,368 @@
+package cn.ncw.music.stream.dsp;
+
+import java.util.Arrays;
+
+/**
+ * 软件参数均衡器 - 级联双二阶滤波器（RBJ Audio EQ Cookbook）
+ * <p>
+ * 每个频段一个双二阶滤波器，按转置直接II型逐声道处理交错浮点样本。
+ * 频段参数可在任意线程修改：新系数先发布，处理线程在 {@link #SMOOTHING_FRAMES} 帧内分小块线性过渡，
+ * 避免播放中调整产生爆音。处理过程不分配内存；增益为0 dB的频段在系数稳定后直接跳过。
+ */
+public class ParametricEqualizer {
+
+    /**
+     * 滤波器类型
+     */
+    public enum FilterType {
+        PEAKING,
+        LOW_SHELF,
+        HIGH_SHELF
+    }
+
+    /**
+     * 频段参数
+     *
+     * @param type      滤波器类型
+     * @param frequency 中心/转折频率（Hz）
+     * @param gainDb    增益（dB）
+     * @param q         品质因数
+     */
+    public record Band(FilterType type, double frequency, double gainDb, double q) {
+        public Band {
+            if (type == null) {
+                throw new IllegalArgumentException("滤波器类型不能为空");
+            }
+            if (!(frequency > 0)) {
+                throw new IllegalArgumentException("频率必须大于0");
+            }
+            if (!(q > 0)) {
+                throw new IllegalArgumentException("品质因数必须大于0");
+            }
+            if (Math.abs(gainDb) > MAX_GAIN_DB) {
+                throw new IllegalArgumentException("增益必须在-" + MAX_GAIN_DB + "到" + MAX_GAIN_DB + " dB之间");
+            }
+        }
+
+        public Band withGain(double gainDb) {
+            return new Band(type, frequency, gainDb, q);
+        }
+    }
+
+    public static final double MAX_GAIN_DB = 24.0;
+    public static final int MAX_CHANNELS = 8;
+
+    /**
+     * 十段图示均衡器的中心频率（ISO倍频程）
+     */
+    public static final double[] GRAPHIC_FREQUENCIES = {31, 62, 125, 250, 500, 1000, 2000, 4000, 8000, 16000};
+    private static final double GRAPHIC_Q = Math.sqrt(2);
+
+    // 系数过渡时长与过渡步长（帧）
+    public static final int SMOOTHING_FRAMES = 1024;
+    private static final int SMOOTHING_BLOCK = 32;
+
+    private static final int COEFFICIENTS = 5; // b0, b1, b2, a1, a2（已按a0归一化）
+    private static final double DENORMAL_THRESHOLD = 1e-20;
+
+    /**
+     * 一组已发布的系数（不可变）
+     */
+    private record Coefficients(double[] values, boolean[] active, boolean flat) {
+    }
+
+    private volatile Band[] bands;
+    private volatile Coefficients published;
+    private volatile boolean enabled = true;
+    private volatile boolean resetRequested = true;
+    private float sampleRate = 44100f;
+    private volatile int channels = 2;
+
+    // 以下状态仅处理线程访问
+    private final double[] current;
+    private final double[] target;
+    private final double[] step;
+    private final double[] state;
+    private Coefficients applied;
+    private int rampRemaining;
+
+    public ParametricEqualizer(Band... bands) {
+        if (bands.length == 0) {
+            throw new IllegalArgumentException("至少需要一个频段");
+        }
+        this.bands = bands.clone();
+        this.current = new double[bands.length * COEFFICIENTS];
+        this.target = new double[bands.length * COEFFICIENTS];
+        this.step = new double[bands.length * COEFFICIENTS];
+        this.state = new double[bands.length * MAX_CHANNELS * 2];
+        publish();
+    }
+
+    /**
+     * 创建十段图示均衡器（全部为0 dB的峰值滤波器）
+     */
+    public static ParametricEqualizer graphic() {
+        Band[] bands = new Band[GRAPHIC_FREQUENCIES.length];
+        for (int i = 0; i < bands.length; i++) {
+            bands[i] = new Band(FilterType.PEAKING, GRAPHIC_FREQUENCIES[i], 0, GRAPHIC_Q);
+        }
+        return new ParametricEqualizer(bands);
+    }
+
+    /**
+     * 设置采样率和声道数，清空滤波器状态（应在开始处理新的音频流之前调用）
+     */
+    public synchronized void configure(float sampleRate, int channels) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("采样率必须大于0");
+        }
+        if (channels <= 0) {
+            throw new IllegalArgumentException("声道数必须大于0");
+        }
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        publish();
+        resetRequested = true;
+    }
+
+    public synchronized void setBand(int index, Band band) {
+        Band[] updated = bands.clone();
+        updated[index] = band;
+        bands = updated;
+        publish();
+    }
+
+    /**
+     * 修改频段增益（dB），播放中修改会平滑过渡
+     */
+    public synchronized void setBandGain(int index, double gainDb) {
+        setBand(index, bands[index].withGain(gainDb));
+    }
+
+    /**
+     * 所有频段恢复为0 dB
+     */
+    public synchronized void resetGains() {
+        Band[] updated = bands.clone();
+        for (int i = 0; i < updated.length; i++) {
+            updated[i] = updated[i].withGain(0);
+        }
+        bands = updated;
+        publish();
+    }
+
+    public Band getBand(int index) {
+        return bands[index];
+    }
+
+    public Band[] getBands() {
+        return bands.clone();
+    }
+
+    public int getBandCount() {
+        return bands.length;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            resetRequested = true;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 当前设置是否不改变信号（全部频段为0 dB或已禁用，处理线程调用）
+     */
+    public boolean isBypassed() {
+        return !enabled || (published.flat() && published == applied && rampRemaining == 0 && !resetRequested);
+    }
+
+    // ==================== 系数计算 ====================
+
+    private void publish() {
+        Band[] snapshot = bands;
+        double[] values = new double[snapshot.length * COEFFICIENTS];
+        boolean[] active = new boolean[snapshot.length];
+        boolean flat = true;
+        for (int i = 0; i < snapshot.length; i++) {
+            computeCoefficients(snapshot[i], sampleRate, values, i * COEFFICIENTS);
+            active[i] = snapshot[i].gainDb() != 0;
+            flat &= !active[i];
+        }
+        published = new Coefficients(values, active, flat);
+    }
+
+    private static void computeCoefficients(Band band, float sampleRate, double[] out, int offset) {
+        // 高于奈奎斯特频率的频段限制在可表示范围内
+        double frequency = Math.min(band.frequency(), sampleRate * 0.45);
+        double a = Math.pow(10, band.gainDb() / 40);
+        double w0 = 2 * Math.PI * frequency / sampleRate;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * band.q());
+
+        double b0, b1, b2, a0, a1, a2;
+        switch (band.type()) {
+            case LOW_SHELF -> {
+                double sqrtA = 2 * Math.sqrt(a) * alpha;
+                b0 = a * ((a + 1) - (a - 1) * cos + sqrtA);
+                b1 = 2 * a * ((a - 1) - (a + 1) * cos);
+                b2 = a * ((a + 1) - (a - 1) * cos - sqrtA);
+                a0 = (a + 1) + (a - 1) * cos + sqrtA;
+                a1 = -2 * ((a - 1) + (a + 1) * cos);
+                a2 = (a + 1) + (a - 1) * cos - sqrtA;
+            }
+            case HIGH_SHELF -> {
+                double sqrtA = 2 * Math.sqrt(a) * alpha;
+                b0 = a * ((a + 1) + (a - 1) * cos + sqrtA);
+                b1 = -2 * a * ((a - 1) + (a + 1) * cos);
+                b2 = a * ((a + 1) + (a - 1) * cos - sqrtA);
+                a0 = (a + 1) - (a - 1) * cos + sqrtA;
+                a1 = 2 * ((a - 1) - (a + 1) * cos);
+                a2 = (a + 1) - (a - 1) * cos - sqrtA;
+            }
+            default -> {
+                b0 = 1 + alpha * a;
+                b1 = -2 * cos;
+                b2 = 1 - alpha * a;
+                a0 = 1 + alpha / a;
+                a1 = -2 * cos;
+                a2 = 1 - alpha / a;
+            }
+        }
+
+        out[offset] = b0 / a0;
+        out[offset + 1] = b1 / a0;
+        out[offset + 2] = b2 / a0;
+        out[offset + 3] = a1 / a0;
+        out[offset + 4] = a2 / a0;
+    }
+
+    // ==================== 处理 ====================
+
+    /**
+     * 原地处理交错排列的浮点样本（处理线程调用）
+     *
+     * @param frames 帧数，声道数由 {@link #configure} 指定
+     */
+    public void process(float[] data, int offset, int frames) {
+        int channelCount = channels;
+        if (!enabled || channelCount > MAX_CHANNELS) {
+            return;
+        }
+
+        Coefficients latest = published;
+        if (resetRequested) {
+            resetRequested = false;
+            Arrays.fill(state, 0);
+            System.arraycopy(latest.values(), 0, current, 0, current.length);
+            rampRemaining = 0;
+            applied = latest;
+        } else if (latest != applied) {
+            System.arraycopy(latest.values(), 0, target, 0, target.length);
+            for (int i = 0; i < step.length; i++) {
+                step[i] = (target[i] - current[i]) / SMOOTHING_FRAMES;
+            }
+            rampRemaining = SMOOTHING_FRAMES;
+            applied = latest;
+        }
+
+        if (rampRemaining == 0 && latest.flat()) {
+            return;
+        }
+
+        int position = 0;
+        while (position < frames) {
+            int block = frames - position;
+            if (rampRemaining > 0) {
+                block = Math.min(block, Math.min(SMOOTHING_BLOCK, rampRemaining));
+            }
+            filterBlock(data, offset + position * channelCount, block, channelCount, rampRemaining > 0 ? null : latest.active());
+            position += block;
+
+            if (rampRemaining > 0) {
+                rampRemaining -= block;
+                if (rampRemaining == 0) {
+                    System.arraycopy(target, 0, current, 0, current.length);
+                } else {
+                    for (int i = 0; i < current.length; i++) {
+                        current[i] += step[i] * block;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 用当前系数依次通过各频段
+     *
+     * @param active 跳过未激活频段；过渡期间传null处理全部频段
+     */
+    private void filterBlock(float[] data, int offset, int frames, int channelCount, boolean[] active) {
+        int bandCount = current.length / COEFFICIENTS;
+        int end = offset + frames * channelCount;
+        for (int band = 0; band < bandCount; band++) {
+            int s = band * MAX_CHANNELS * 2;
+            if (active != null && !active[band]) {
+                // 跳过的频段清空状态，重新激活时从静止开始
+                Arrays.fill(state, s, s + channelCount * 2, 0);
+                continue;
+            }
+
+            int c = band * COEFFICIENTS;
+            double b0 = current[c];
+            double b1 = current[c + 1];
+            double b2 = current[c + 2];
+            double a1 = current[c + 3];
+            double a2 = current[c + 4];
+
+            int ch = 0;
+            // 两个声道一起处理：滤波器递推是串行依赖链，交替计算两条链可以充分利用流水线
+            for (; ch + 1 < channelCount; ch += 2) {
+                double l1 = state[s + ch * 2];
+                double l2 = state[s + ch * 2 + 1];
+                double r1 = state[s + ch * 2 + 2];
+                double r2 = state[s + ch * 2 + 3];
+                for (int i = offset + ch; i < end; i += channelCount) {
+                    double xl = data[i];
+                    double xr = data[i + 1];
+                    double yl = b0 * xl + l1;
+                    double yr = b0 * xr + r1;
+                    l1 = b1 * xl - a1 * yl + l2;
+                    r1 = b1 * xr - a1 * yr + r2;
+                    l2 = b2 * xl - a2 * yl;
+                    r2 = b2 * xr - a2 * yr;
+                    data[i] = (float) yl;
+                    data[i + 1] = (float) yr;
+                }
+                state[s + ch * 2] = flushDenormal(l1);
+                state[s + ch * 2 + 1] = flushDenormal(l2);
+                state[s + ch * 2 + 2] = flushDenormal(r1);
+                state[s + ch * 2 + 3] = flushDenormal(r2);
+            }
+            for (; ch < channelCount; ch++) {
+                double z1 = state[s + ch * 2];
+                double z2 = state[s + ch * 2 + 1];
+                for (int i = offset + ch; i < end; i += channelCount) {
+                    double x = data[i];
+                    double y = b0 * x + z1;
+                    z1 = b1 * x - a1 * y + z2;
+                    z2 = b2 * x - a2 * y;
+                    data[i] = (float) y;
+                }
+                state[s + ch * 2] = flushDenormal(z1);
+                state[s + ch * 2 + 1] = flushDenormal(z2);
+            }
+        }
+    }
+
+    /**
+     * 静音时滤波器状态会衰减为非规格化数，拖慢运算
+     */
+    private static double flushDenormal(double value) {
+        return Math.abs(value) < DENORMAL_THRESHOLD ? 0 : value;
+    }
+}
@@ -0,0 +1,60 @@
+package cn.ncw.music.stream.dsp;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * PCM处理内核 - 播放管线中的逐样本运算
+ * <p>
+ * 浮点样本归一化到 [-1, 1)；整数格式支持 8/16/24/32 位有符号/无符号，另支持32位浮点，大小端均可。
+ * 所有方法只读写调用方提供的数组，不分配内存，可在实时线程中调用。
+ * 通过 {@link PcmKernels#get()} 获取当前平台上最快的实现。
+ */
+public interface PcmKernel {
+
+    /**
+     * 实现名称（scalar / vector）
+     */
+    String getName();
+
+    /**
+     * PCM字节转换为浮点样本
+     *
+     * @param samples 样本数（帧数 × 声道数）
+     */
+    void toFloat(AudioFormat format, byte[] src, int srcOffset, float[] dst, int dstOffset, int samples);
+
+    /**
+     * 浮点样本转换为PCM字节，超出范围的样本削波
+     */
+    void fromFloat(float[] src, int srcOffset, AudioFormat format, byte[] dst, int dstOffset, int samples);
+
+    /**
+     * 原地交换字节序
+     *
+     * @param bytesPerSample 每个样本的字节数（2/3/4）
+     */
+    void swapEndian(byte[] data, int offset, int samples, int bytesPerSample);
+
+    /**
+     * 乘以固定增益
+     */
+    void applyGain(float[] data, int offset, int length, float gain);
+
+    /**
+     * 增益从 startGain 线性过渡到 endGain，同一帧内各声道增益相同
+     *
+     * @param frames   帧数
+     * @param channels 交错排列的声道数
+     */
+    void applyGainRamp(float[] data, int offset, int frames, int channels, float startGain, float endGain);
+
+    /**
+     * 交错样本混音：dst += src × gain
+     */
+    void mix(float[] dst, int dstOffset, float[] src, int srcOffset, int length, float gain);
+
+    /**
+     * 削波到 [-1, 1]
+     */
+    void clip(float[] data, int offset, int length);
+}
@@ -0,0 +1,74 @@
+package cn.ncw.music.stream.dsp;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * PCM处理内核工具类 - 选择当前平台可用的实现
+ * <p>
+ * 运行时加载了 {@code jdk.incubator.vector} 模块（{@code --add-modules jdk.incubator.vector}）时使用向量化实现，
+ * 否则使用标量实现。可通过系统属性 {@code ncw.music.pcmKernel=scalar} 强制使用标量实现。
+ */
+public final class PcmKernels {
+
+    public static final String KERNEL_PROPERTY = "ncw.music.pcmKernel";
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_IMPLEMENTATION = "cn.ncw.music.stream.dsp.VectorPcmKernel";
+
+    private static final PcmKernel DEFAULT = select();
+
+    private PcmKernels() {
+    }
+
+    /**
+     * 当前平台上最快的实现
+     */
+    public static PcmKernel get() {
+        return DEFAULT;
+    }
+
+    /**
+     * 标量实现
+     */
+    public static PcmKernel scalar() {
+        return ScalarPcmKernel.INSTANCE;
+    }
+
+    /**
+     * 向量化实现，模块不可用时返回null
+     */
+    public static PcmKernel vector() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+        try {
+            return (PcmKernel) Class.forName(VECTOR_IMPLEMENTATION).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * 检查格式是否可由内核处理
+     */
+    public static boolean isSupported(AudioFormat format) {
+        int bits = format.getSampleSizeInBits();
+        AudioFormat.Encoding encoding = format.getEncoding();
+        if (bits <= 0 || bits % 8 != 0 || format.getFrameSize() != format.getChannels() * (bits / 8)) {
+            return false;
+        }
+        if (AudioFormat.Encoding.PCM_FLOAT.equals(encoding)) {
+            return bits == 32;
+        }
+        return (AudioFormat.Encoding.PCM_SIGNED.equals(encoding) || AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding))
+                && bits <= 32;
+    }
+
+    private static PcmKernel select() {
+        if ("scalar".equalsIgnoreCase(System.getProperty(KERNEL_PROPERTY))) {
+            return scalar();
+        }
+        PcmKernel vector = vector();
+        return vector != null ? vector : scalar();
+    }
+}
@@ -0,0 +1,274 @@
+package cn.ncw.music.stream.dsp;
+
+import java.util.Arrays;
+
+/**
+ * 流式采样率转换器 - 多相 Kaiser 窗 sinc 插值
+ * <p>
+ * 预先计算一张按分数延迟分相的滤波器表，输出样本在相邻两相之间线性插值，因此支持任意转换比例
+ * （如 44.1k→48k→96k）。输入按块送入，内部保留滤波器所需的历史样本，块与块之间无缝衔接。
+ * 降采样时截止频率随比例降低、滤波器相应加长以抑制混叠。
+ * <p>
+ * 每次调用送入的帧数不超过构造时指定的最大块长时不分配内存。非线程安全。
+ */
+public final class SampleRateConverter {
+
+    /**
+     * 质量档位：越高滤波器越长、阻带衰减越大、通带越宽，耗时也越多
+     */
+    public enum Quality {
+        FAST(8, 64, 0.85, 6.0),
+        MEDIUM(16, 128, 0.90, 8.0),
+        HIGH(32, 256, 0.94, 10.0),
+        BEST(64, 512, 0.96, 12.0);
+
+        private final int halfTaps;
+        private final int phases;
+        private final double rolloff;
+        private final double kaiserBeta;
+
+        Quality(int halfTaps, int phases, double rolloff, double kaiserBeta) {
+            this.halfTaps = halfTaps;
+            this.phases = phases;
+            this.rolloff = rolloff;
+            this.kaiserBeta = kaiserBeta;
+        }
+
+        /**
+         * 升采样时单侧的滤波器抽头数
+         */
+        public int getHalfTaps() {
+            return halfTaps;
+        }
+    }
+
+    public static final int DEFAULT_MAX_BLOCK_FRAMES = 8192;
+
+    private final double inputRate;
+    private final double outputRate;
+    private final int channels;
+    private final Quality quality;
+
+    // 输入帧步长（每个输出帧前进的输入帧数）
+    private final double step;
+    private final int halfTaps;
+    private final int taps;
+    private final int phases;
+    // (phases + 1) × taps，第 p 相对应分数延迟 p / phases
+    private final float[] table;
+
+    // 输入历史（交错排列），有效帧为 [0, bufferedFrames)
+    private float[] buffer;
+    private int bufferedFrames;
+    // 下一个输出帧对应的输入位置（相对 buffer 起点）
+    private double position;
+
+    public SampleRateConverter(double inputRate, double outputRate, int channels, Quality quality) {
+        this(inputRate, outputRate, channels, quality, DEFAULT_MAX_BLOCK_FRAMES);
+    }
+
+    /**
+     * @param maxBlockFrames 单次送入的最大帧数，超过时内部缓冲区会扩容
+     */
+    public SampleRateConverter(double inputRate, double outputRate, int channels, Quality quality, int maxBlockFrames) {
+        if (!(inputRate > 0) || !(outputRate > 0)) {
+            throw new IllegalArgumentException("采样率必须大于0");
+        }
+        if (channels <= 0) {
+            throw new IllegalArgumentException("声道数必须大于0");
+        }
+        if (maxBlockFrames <= 0) {
+            throw new IllegalArgumentException("块长必须大于0");
+        }
+        this.inputRate = inputRate;
+        this.outputRate = outputRate;
+        this.channels = channels;
+        this.quality = quality;
+        this.step = inputRate / outputRate;
+
+        // 降采样时截止频率按比例降低，滤波器等比例加长
+        double scale = Math.min(1.0, outputRate / inputRate);
+        this.halfTaps = (int) Math.ceil(quality.halfTaps / scale);
+        this.taps = halfTaps * 2;
+        this.phases = quality.phases;
+        this.table = buildTable(halfTaps, phases, quality.rolloff * scale, quality.kaiserBeta);
+
+        this.buffer = new float[(taps + maxBlockFrames) * channels];
+        reset();
+    }
+
+    private static float[] buildTable(int halfTaps, int phases, double cutoff, double beta) {
+        int taps = halfTaps * 2;
+        float[] table = new float[(phases + 1) * taps];
+        double i0Beta = besselI0(beta);
+        for (int p = 0; p <= phases; p++) {
+            double fraction = (double) p / phases;
+            for (int k = 0; k < taps; k++) {
+                // 第k个抽头相对输出位置的距离
+                double distance = k - (halfTaps - 1) - fraction;
+                double x = distance / halfTaps;
+                double window = Math.abs(x) >= 1 ? 0 : besselI0(beta * Math.sqrt(1 - x * x)) / i0Beta;
+                table[p * taps + k] = (float) (cutoff * sinc(cutoff * distance) * window);
+            }
+        }
+        return table;
+    }
+
+    private static double sinc(double x) {
+        if (x == 0) {
+            return 1;
+        }
+        double px = Math.PI * x;
+        return Math.sin(px) / px;
+    }
+
+    /**
+     * 第一类零阶修正贝塞尔函数（级数展开）
+     */
+    private static double besselI0(double x) {
+        double sum = 1;
+        double term = 1;
+        double half = x / 2;
+        for (int k = 1; k < 50; k++) {
+            term *= (half / k) * (half / k);
+            sum += term;
+            if (term < sum * 1e-12) {
+                break;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * 清空历史，从静音开始（跳转后调用）
+     */
+    public void reset() {
+        // 预填半个滤波器长度的静音，使第一个输出帧对齐第一个输入帧
+        Arrays.fill(buffer, 0, (halfTaps - 1) * channels, 0f);
+        bufferedFrames = halfTaps - 1;
+        position = halfTaps - 1;
+    }
+
+    /**
+     * 处理一块输入，输入帧全部被消耗
+     *
+     * @param in          交错排列的输入样本
+     * @param inFrames    输入帧数
+     * @param out         输出缓冲区，容量至少为 {@link #getMaxOutputFrames(int)} × 声道数
+     * @return 写入的输出帧数
+     */
+    public int process(float[] in, int inOffset, int inFrames, float[] out, int outOffset) {
+        ensureCapacity(bufferedFrames + inFrames);
+        System.arraycopy(in, inOffset, buffer, bufferedFrames * channels, inFrames * channels);
+        bufferedFrames += inFrames;
+        return drainAvailable(out, outOffset);
+    }
+
+    /**
+     * 输入结束时调用，送入半个滤波器长度的静音，输出尾部剩余的样本
+     */
+    public int flush(float[] out, int outOffset) {
+        int padding = halfTaps;
+        ensureCapacity(bufferedFrames + padding);
+        Arrays.fill(buffer, bufferedFrames * channels, (bufferedFrames + padding) * channels, 0f);
+        bufferedFrames += padding;
+        int produced = drainAvailable(out, outOffset);
+        reset();
+        return produced;
+    }
+
+    /**
+     * 送入 inFrames 帧后最多可能输出的帧数
+     */
+    public int getMaxOutputFrames(int inFrames) {
+        return (int) Math.ceil((inFrames + halfTaps + 1) / step) + 1;
+    }
+
+    private int drainAvailable(float[] out, int outOffset) {
+        int produced = 0;
+        int o = outOffset;
+        float[] table = this.table;
+        float[] buffer = this.buffer;
+        int taps = this.taps;
+        int channels = this.channels;
+
+        // 输出位置 position 需要 [floor(position) - halfTaps + 1, floor(position) + halfTaps] 的输入
+        while (true) {
+            int center = (int) position;
+            if (center + halfTaps >= bufferedFrames) {
+                break;
+            }
+
+            double phase = (position - center) * phases;
+            int p = (int) phase;
+            float alpha = (float) (phase - p);
+            int row0 = p * taps;
+            int row1 = row0 + taps;
+            int base = (center - halfTaps + 1) * channels;
+
+            if (channels == 2) {
+                float left = 0;
+                float right = 0;
+                for (int k = 0, b = base; k < taps; k++, b += 2) {
+                    float h0 = table[row0 + k];
+                    float h = h0 + (table[row1 + k] - h0) * alpha;
+                    left += buffer[b] * h;
+                    right += buffer[b + 1] * h;
+                }
+                out[o] = left;
+                out[o + 1] = right;
+            } else {
+                for (int c = 0; c < channels; c++) {
+                    float sum = 0;
+                    for (int k = 0, b = base + c; k < taps; k++, b += channels) {
+                        float h0 = table[row0 + k];
+                        sum += buffer[b] * (h0 + (table[row1 + k] - h0) * alpha);
+                    }
+                    out[o + c] = sum;
+                }
+            }
+
+            o += channels;
+            produced++;
+            position += step;
+        }
+
+        // 丢弃之后不再需要的输入帧
+        int discard = Math.min((int) position - halfTaps + 1, bufferedFrames);
+        if (discard > 0) {
+            System.arraycopy(buffer, discard * channels, buffer, 0, (bufferedFrames - discard) * channels);
+            bufferedFrames -= discard;
+            position -= discard;
+        }
+        return produced;
+    }
+
+    private void ensureCapacity(int frames) {
+        if (frames * channels > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(frames * channels, buffer.length * 2));
+        }
+    }
+
+    public double getInputRate() {
+        return inputRate;
+    }
+
+    public double getOutputRate() {
+        return outputRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public Quality getQuality() {
+        return quality;
+    }
+
+    /**
+     * 实际滤波器抽头数（降采样时随比例加长）
+     */
+    public int getTaps() {
+        return taps;
+    }
+}
@@ -0,0 +1,158 @@
+package cn.ncw.music.stream.dsp;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * PCM处理内核的标量实现，也是向量化实现处理尾部样本和24位格式时的回退路径
+ */
+public final class ScalarPcmKernel implements PcmKernel {
+
+    public static final ScalarPcmKernel INSTANCE = new ScalarPcmKernel();
+
+    private ScalarPcmKernel() {
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+    @Override
+    public void toFloat(AudioFormat format, byte[] src, int srcOffset, float[] dst, int dstOffset, int samples) {
+        int bytesPerSample = format.getSampleSizeInBits() / 8;
+        boolean bigEndian = format.isBigEndian();
+        AudioFormat.Encoding encoding = format.getEncoding();
+
+        if (bytesPerSample == 2 && AudioFormat.Encoding.PCM_SIGNED.equals(encoding)) {
+            int hi = bigEndian ? 0 : 1;
+            int lo = bigEndian ? 1 : 0;
+            for (int i = 0, b = srcOffset; i < samples; i++, b += 2) {
+                dst[dstOffset + i] = (short) ((src[b + hi] << 8) | (src[b + lo] & 0xFF)) * (1.0f / 32768);
+            }
+            return;
+        }
+
+        boolean isFloat = AudioFormat.Encoding.PCM_FLOAT.equals(encoding);
+        boolean unsigned = AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding);
+        int bits = bytesPerSample * 8;
+        int shift = 32 - bits;
+        float scale = 1.0f / (1L << (bits - 1));
+        for (int i = 0, b = srcOffset; i < samples; i++, b += bytesPerSample) {
+            int raw = 0;
+            for (int k = 0; k < bytesPerSample; k++) {
+                raw = (raw << 8) | (src[b + (bigEndian ? k : bytesPerSample - 1 - k)] & 0xFF);
+            }
+            if (isFloat) {
+                dst[dstOffset + i] = Float.intBitsToFloat(raw);
+                continue;
+            }
+            if (unsigned) {
+                raw ^= 1 << (bits - 1);
+            }
+            // 左移后算术右移完成符号扩展
+            dst[dstOffset + i] = ((raw << shift) >> shift) * scale;
+        }
+    }
+
+    @Override
+    public void fromFloat(float[] src, int srcOffset, AudioFormat format, byte[] dst, int dstOffset, int samples) {
+        int bytesPerSample = format.getSampleSizeInBits() / 8;
+        boolean bigEndian = format.isBigEndian();
+        AudioFormat.Encoding encoding = format.getEncoding();
+
+        if (AudioFormat.Encoding.PCM_FLOAT.equals(encoding)) {
+            for (int i = 0, b = dstOffset; i < samples; i++, b += 4) {
+                float sample = Math.max(-1.0f, Math.min(1.0f, src[srcOffset + i]));
+                putBytes(dst, b, Float.floatToRawIntBits(sample), 4, bigEndian);
+            }
+            return;
+        }
+
+        if (bytesPerSample == 2 && AudioFormat.Encoding.PCM_SIGNED.equals(encoding)) {
+            int hi = bigEndian ? 0 : 1;
+            int lo = bigEndian ? 1 : 0;
+            for (int i = 0, b = dstOffset; i < samples; i++, b += 2) {
+                int value = quantize(src[srcOffset + i], 32768f, 32767f);
+                dst[b + hi] = (byte) (value >> 8);
+                dst[b + lo] = (byte) value;
+            }
+            return;
+        }
+
+        boolean unsigned = AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding);
+        int bits = bytesPerSample * 8;
+        float scale = (float) (1L << (bits - 1));
+        float max = scale - 1;
+        for (int i = 0, b = dstOffset; i < samples; i++, b += bytesPerSample) {
+            int value = quantize(src[srcOffset + i], scale, max);
+            if (unsigned) {
+                value ^= 1 << (bits - 1);
+            }
+            putBytes(dst, b, value, bytesPerSample, bigEndian);
+        }
+    }
+
+    /**
+     * 缩放并削波后截断取整；NaN 转换为0
+     */
+    static int quantize(float sample, float scale, float max) {
+        return (int) Math.max(-scale, Math.min(max, sample * scale));
+    }
+
+    private static void putBytes(byte[] dst, int index, int value, int bytesPerSample, boolean bigEndian) {
+        for (int k = 0; k < bytesPerSample; k++) {
+            int shift = (bytesPerSample - 1 - k) * 8;
+            dst[index + (bigEndian ? k : bytesPerSample - 1 - k)] = (byte) (value >> shift);
+        }
+    }
+
+    @Override
+    public void swapEndian(byte[] data, int offset, int samples, int bytesPerSample) {
+        int end = offset + samples * bytesPerSample;
+        for (int b = offset; b < end; b += bytesPerSample) {
+            for (int lo = b, hi = b + bytesPerSample - 1; lo < hi; lo++, hi--) {
+                byte tmp = data[lo];
+                data[lo] = data[hi];
+                data[hi] = tmp;
+            }
+        }
+    }
+
+    @Override
+    public void applyGain(float[] data, int offset, int length, float gain) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            data[i] *= gain;
+        }
+    }
+
+    @Override
+    public void applyGainRamp(float[] data, int offset, int frames, int channels, float startGain, float endGain) {
+        applyGainRamp(data, offset, 0, frames, channels, startGain, (endGain - startGain) / frames);
+    }
+
+    /**
+     * 从第 fromFrame 帧开始应用增益斜坡，第 f 帧的增益为 startGain + step × f
+     */
+    void applyGainRamp(float[] data, int offset, int fromFrame, int frames, int channels, float startGain, float step) {
+        for (int f = fromFrame; f < frames; f++) {
+            float gain = startGain + step * f;
+            for (int c = 0, i = offset + f * channels; c < channels; c++, i++) {
+                data[i] *= gain;
+            }
+        }
+    }
+
+    @Override
+    public void mix(float[] dst, int dstOffset, float[] src, int srcOffset, int length, float gain) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] += src[srcOffset + i] * gain;
+        }
+    }
+
+    @Override
+    public void clip(float[] data, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            data[i] = Math.max(-1.0f, Math.min(1.0f, data[i]));
+        }
+    }
+}
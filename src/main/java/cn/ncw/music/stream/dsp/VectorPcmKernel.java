@@ -0,0 +1,302 @@
+package cn.ncw.music.stream.dsp;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+import javax.sound.sampled.AudioFormat;
+import java.nio.ByteOrder;
+
+/**
+ * PCM处理内核的向量化实现（jdk.incubator.vector）
+ * <p>
+ * 以平台首选宽度的浮点向量为基准：每次从字节数组载入与浮点通道数相同数量的样本，
+ * 按需重排字节序后重新解释为短整型/整型向量，再转换为浮点。
+ * 24位打包样本没有对应的通道类型，与数组尾部不足一个向量的样本一起交给标量实现处理。
+ */
+public final class VectorPcmKernel implements PcmKernel {
+
+    private static final VectorSpecies<Float> FLOAT = FloatVector.SPECIES_PREFERRED;
+    private static final int LANES = FLOAT.length();
+    private static final boolean NATIVE_BIG_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+
+    private static final ScalarPcmKernel SCALAR = ScalarPcmKernel.INSTANCE;
+
+    // 与浮点向量通道数相同的8/16/32位样本所占的字节向量，宽度不是合法向量形状时为null
+    // 向量种类和重排必须是静态常量，JIT才能将运算编译为向量指令
+    private static final VectorSpecies<Byte> BYTES_8 = byteSpecies(LANES * 8);
+    private static final VectorSpecies<Byte> BYTES_16 = byteSpecies(LANES * 16);
+    private static final VectorSpecies<Byte> BYTES_32 = byteSpecies(LANES * 32);
+    private static final VectorSpecies<Short> SHORTS = BYTES_16 == null ? null : BYTES_16.withLanes(short.class);
+
+    // 字节序交换重排
+    private static final VectorShuffle<Byte> SWAP_16 = BYTES_16 == null ? null : swapShuffle(BYTES_16, 2);
+    private static final VectorShuffle<Byte> SWAP_32 = BYTES_32 == null ? null : swapShuffle(BYTES_32, 4);
+
+    // 增益斜坡中每个通道所在帧相对向量起点的偏移，按声道数索引（仅声道数整除通道数时有效）
+    private static final FloatVector[] LANE_FRAMES = laneFrames();
+
+    private static FloatVector[] laneFrames() {
+        FloatVector[] laneFrames = new FloatVector[LANES + 1];
+        for (int channels = 1; channels <= LANES; channels++) {
+            if (LANES % channels == 0) {
+                float[] offsets = new float[LANES];
+                for (int lane = 0; lane < LANES; lane++) {
+                    offsets[lane] = lane / channels;
+                }
+                laneFrames[channels] = FloatVector.fromArray(FLOAT, offsets, 0);
+            }
+        }
+        return laneFrames;
+    }
+
+    private static VectorSpecies<Byte> byteSpecies(int bits) {
+        try {
+            return VectorSpecies.of(byte.class, VectorShape.forBitSize(bits));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static VectorShuffle<Byte> swapShuffle(VectorSpecies<Byte> species, int bytesPerSample) {
+        int[] indexes = new int[species.length()];
+        for (int i = 0; i < indexes.length; i++) {
+            int base = i - i % bytesPerSample;
+            indexes[i] = base + bytesPerSample - 1 - i % bytesPerSample;
+        }
+        return VectorShuffle.fromArray(species, indexes, 0);
+    }
+
+    @Override
+    public String getName() {
+        return "vector";
+    }
+
+    // ==================== 格式转换 ====================
+
+    @Override
+    public void toFloat(AudioFormat format, byte[] src, int srcOffset, float[] dst, int dstOffset, int samples) {
+        int bytesPerSample = format.getSampleSizeInBits() / 8;
+        boolean swap = format.isBigEndian() != NATIVE_BIG_ENDIAN;
+        AudioFormat.Encoding encoding = format.getEncoding();
+        boolean isFloat = AudioFormat.Encoding.PCM_FLOAT.equals(encoding);
+        boolean unsigned = AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding);
+
+        int i = 0;
+        int bound = samples - samples % LANES;
+        switch (bytesPerSample) {
+            case 1 -> {
+                if (BYTES_8 == null) {
+                    break;
+                }
+                for (; i < bound; i += LANES) {
+                    ByteVector b = ByteVector.fromArray(BYTES_8, src, srcOffset + i);
+                    if (unsigned) {
+                        b = b.lanewise(VectorOperators.XOR, (byte) 0x80);
+                    }
+                    ((FloatVector) b.convertShape(VectorOperators.B2F, FLOAT, 0))
+                            .mul(1.0f / 128)
+                            .intoArray(dst, dstOffset + i);
+                }
+            }
+            case 2 -> {
+                if (BYTES_16 == null || unsigned) {
+                    break;
+                }
+                for (; i < bound; i += LANES) {
+                    ByteVector b = ByteVector.fromArray(BYTES_16, src, srcOffset + i * 2);
+                    if (swap) {
+                        b = b.rearrange(SWAP_16);
+                    }
+                    ((FloatVector) b.reinterpretAsShorts().convertShape(VectorOperators.S2F, FLOAT, 0))
+                            .mul(1.0f / 32768)
+                            .intoArray(dst, dstOffset + i);
+                }
+            }
+            case 4 -> {
+                if (BYTES_32 == null || unsigned) {
+                    break;
+                }
+                for (; i < bound; i += LANES) {
+                    ByteVector b = ByteVector.fromArray(BYTES_32, src, srcOffset + i * 4);
+                    if (swap) {
+                        b = b.rearrange(SWAP_32);
+                    }
+                    if (isFloat) {
+                        b.reinterpretAsFloats().intoArray(dst, dstOffset + i);
+                    } else {
+                        ((FloatVector) b.reinterpretAsInts().convertShape(VectorOperators.I2F, FLOAT, 0))
+                                .mul(1.0f / 2147483648f)
+                                .intoArray(dst, dstOffset + i);
+                    }
+                }
+            }
+            default -> {
+            }
+        }
+
+        if (i < samples) {
+            SCALAR.toFloat(format, src, srcOffset + i * bytesPerSample, dst, dstOffset + i, samples - i);
+        }
+    }
+
+    @Override
+    public void fromFloat(float[] src, int srcOffset, AudioFormat format, byte[] dst, int dstOffset, int samples) {
+        int bytesPerSample = format.getSampleSizeInBits() / 8;
+        boolean swap = format.isBigEndian() != NATIVE_BIG_ENDIAN;
+        AudioFormat.Encoding encoding = format.getEncoding();
+        boolean isFloat = AudioFormat.Encoding.PCM_FLOAT.equals(encoding);
+        boolean unsigned = AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding);
+
+        int i = 0;
+        int bound = samples - samples % LANES;
+        switch (bytesPerSample) {
+            case 1 -> {
+                if (BYTES_8 == null) {
+                    break;
+                }
+                for (; i < bound; i += LANES) {
+                    ByteVector b = (ByteVector) quantize(src, srcOffset + i, 128f)
+                            .convertShape(VectorOperators.F2B, BYTES_8, 0);
+                    if (unsigned) {
+                        b = b.lanewise(VectorOperators.XOR, (byte) 0x80);
+                    }
+                    b.intoArray(dst, dstOffset + i);
+                }
+            }
+            case 2 -> {
+                if (BYTES_16 == null || unsigned) {
+                    break;
+                }
+                for (; i < bound; i += LANES) {
+                    ByteVector b = quantize(src, srcOffset + i, 32768f)
+                            .convertShape(VectorOperators.F2S, SHORTS, 0)
+                            .reinterpretAsBytes();
+                    if (swap) {
+                        b = b.rearrange(SWAP_16);
+                    }
+                    b.intoArray(dst, dstOffset + i * 2);
+                }
+            }
+            case 4 -> {
+                if (BYTES_32 == null || unsigned) {
+                    break;
+                }
+                for (; i < bound; i += LANES) {
+                    ByteVector b = isFloat
+                            ? FloatVector.fromArray(FLOAT, src, srcOffset + i)
+                            .max(-1.0f).min(1.0f)
+                            .reinterpretAsBytes()
+                            : quantize(src, srcOffset + i, 2147483648f)
+                            .convert(VectorOperators.F2I, 0)
+                            .reinterpretAsBytes();
+                    if (swap) {
+                        b = b.rearrange(SWAP_32);
+                    }
+                    b.intoArray(dst, dstOffset + i * 4);
+                }
+            }
+            default -> {
+            }
+        }
+
+        if (i < samples) {
+            SCALAR.fromFloat(src, srcOffset + i, format, dst, dstOffset + i * bytesPerSample, samples - i);
+        }
+    }
+
+    /**
+     * 与 {@link ScalarPcmKernel#quantize} 相同：缩放并削波，之后的类型转换按截断取整
+     */
+    private static FloatVector quantize(float[] src, int offset, float scale) {
+        return FloatVector.fromArray(FLOAT, src, offset)
+                .mul(scale)
+                .min(scale - 1)
+                .max(-scale);
+    }
+
+    @Override
+    public void swapEndian(byte[] data, int offset, int samples, int bytesPerSample) {
+        VectorSpecies<Byte> species = bytesPerSample == 2 ? BYTES_16 : bytesPerSample == 4 ? BYTES_32 : null;
+        VectorShuffle<Byte> shuffle = bytesPerSample == 2 ? SWAP_16 : bytesPerSample == 4 ? SWAP_32 : null;
+
+        int i = 0;
+        if (species != null) {
+            int bound = samples - samples % LANES;
+            for (; i < bound; i += LANES) {
+                int index = offset + i * bytesPerSample;
+                ByteVector.fromArray(species, data, index).rearrange(shuffle).intoArray(data, index);
+            }
+        }
+        if (i < samples) {
+            SCALAR.swapEndian(data, offset + i * bytesPerSample, samples - i, bytesPerSample);
+        }
+    }
+
+    // ==================== 增益与混音 ====================
+
+    @Override
+    public void applyGain(float[] data, int offset, int length, float gain) {
+        int i = 0;
+        int bound = FLOAT.loopBound(length);
+        for (; i < bound; i += LANES) {
+            FloatVector.fromArray(FLOAT, data, offset + i).mul(gain).intoArray(data, offset + i);
+        }
+        if (i < length) {
+            SCALAR.applyGain(data, offset + i, length - i, gain);
+        }
+    }
+
+    @Override
+    public void applyGainRamp(float[] data, int offset, int frames, int channels, float startGain, float endGain) {
+        float step = (endGain - startGain) / frames;
+        FloatVector lanes = channels <= LANES ? LANE_FRAMES[channels] : null;
+        if (lanes == null) {
+            SCALAR.applyGainRamp(data, offset, 0, frames, channels, startGain, step);
+            return;
+        }
+
+        // 每个向量恰好覆盖 LANES / channels 个完整帧
+        int framesPerVector = LANES / channels;
+        int vectorFrames = frames - frames % framesPerVector;
+        FloatVector stepVector = FloatVector.broadcast(FLOAT, step);
+        for (int f = 0; f < vectorFrames; f += framesPerVector) {
+            int index = offset + f * channels;
+            FloatVector gain = lanes.add(f).mul(stepVector).add(startGain);
+            FloatVector.fromArray(FLOAT, data, index).mul(gain).intoArray(data, index);
+        }
+        if (vectorFrames < frames) {
+            SCALAR.applyGainRamp(data, offset, vectorFrames, frames, channels, startGain, step);
+        }
+    }
+
+    @Override
+    public void mix(float[] dst, int dstOffset, float[] src, int srcOffset, int length, float gain) {
+        FloatVector gainVector = FloatVector.broadcast(FLOAT, gain);
+        int i = 0;
+        int bound = FLOAT.loopBound(length);
+        for (; i < bound; i += LANES) {
+            FloatVector.fromArray(FLOAT, src, srcOffset + i)
+                    .fma(gainVector, FloatVector.fromArray(FLOAT, dst, dstOffset + i))
+                    .intoArray(dst, dstOffset + i);
+        }
+        if (i < length) {
+            SCALAR.mix(dst, dstOffset + i, src, srcOffset + i, length - i, gain);
+        }
+    }
+
+    @Override
+    public void clip(float[] data, int offset, int length) {
+        int i = 0;
+        int bound = FLOAT.loopBound(length);
+        for (; i < bound; i += LANES) {
+            FloatVector.fromArray(FLOAT, data, offset + i).max(-1.0f).min(1.0f).intoArray(data, offset + i);
+        }
+        if (i < length) {
+            SCALAR.clip(data, offset + i, length - i);
+        }
+    }
+}
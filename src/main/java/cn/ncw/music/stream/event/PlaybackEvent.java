@@ -0,0 +1,37 @@
+package cn.ncw.music.stream.event;
+
+import java.io.File;
+
+/**
+ * 播放事件 - 提供给 {@link java.util.concurrent.Flow.Subscriber} 的不可变事件
+ *
+ * @param type         事件类型
+ * @param sequence     发布序号，同一事件总线上严格递增（合并的位置事件取最新的序号）
+ * @param file         STARTED 为开始播放的文件，TRACK_CHANGED 为新曲目
+ * @param previousFile TRACK_CHANGED 为上一首曲目
+ * @param value        POSITION 为播放进度（0到1），VOLUME 为音量（0到1）
+ * @param detail       PLAY_MODE 为新的播放模式，ERROR 为异常
+ */
+public record PlaybackEvent(Type type, long sequence, File file, File previousFile, double value, Object detail) {
+
+    public enum Type {
+        STARTED,
+        PAUSED,
+        RESUMED,
+        STOPPED,
+        FINISHED,
+        TRACK_CHANGED,
+        ERROR,
+        POSITION,
+        VOLUME,
+        PLAY_MODE,
+        PLAYLIST_UPDATED;
+
+        /**
+         * 状态事件不会因背压被丢弃或合并，只有位置事件可以
+         */
+        public boolean isStateEvent() {
+            return this != POSITION;
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package cn.ncw.music.stream.event;
+
+import cn.ncw.logger.log.NCWLoggerFactory;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 播放事件总线 - 按发布顺序向每个订阅者投递事件
+ * <p>
+ * 发布在一把锁内分配序号并写入所有订阅者的环形缓冲区，所有订阅者看到相同的事件顺序。
+ * 每个订阅者有独立的预分配环形缓冲区和投递线程，慢订阅者只会积压自己的事件，不影响发布方和其他订阅者。
+ * 发布和向 {@link Handler} 投递都不分配对象。
+ * <p>
+ * 背压：位置事件按 {@link PositionPolicy} 合并或丢弃；状态事件从不丢弃，缓冲区满时扩容。
+ * 同一事件流也可通过 {@link Flow.Publisher} 订阅，投递量受订阅者的 request(n) 控制。
+ */
+public class PlaybackEventBus implements Flow.Publisher<PlaybackEvent>, AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * 订阅者积压时位置事件的处理方式
+     */
+    public enum PositionPolicy {
+        /**
+         * 尚未投递的位置事件被新位置覆盖，每个订阅者最多积压一个位置事件
+         */
+        COALESCE,
+        /**
+         * 缓冲区满时丢弃新的位置事件
+         */
+        DROP
+    }
+
+    /**
+     * 事件处理器，在订阅者的投递线程上调用
+     */
+    @FunctionalInterface
+    public interface Handler {
+        void onEvent(PlaybackEvent.Type type, long sequence, File file, File previousFile, double value, Object detail);
+    }
+
+    private final NCWLoggerFactory logger;
+    private final ThreadFactory threadFactory;
+    private final int initialCapacity;
+    private volatile PositionPolicy positionPolicy = PositionPolicy.COALESCE;
+    private volatile Channel[] channels = new Channel[0];
+    private long sequence;
+    private boolean closed;
+
+    // 统计信息
+    private final AtomicLong published = new AtomicLong(0);
+    private final AtomicLong handlerErrors = new AtomicLong(0);
+    // 已取消或已结束的订阅者的累计计数
+    private final AtomicLong retiredDelivered = new AtomicLong(0);
+    private final AtomicLong retiredCoalesced = new AtomicLong(0);
+    private final AtomicLong retiredDropped = new AtomicLong(0);
+
+    public PlaybackEventBus(ThreadFactory threadFactory, NCWLoggerFactory loggerFactory) {
+        this(threadFactory, DEFAULT_CAPACITY, loggerFactory);
+    }
+
+    /**
+     * @param threadFactory   创建投递线程，每个订阅者一个
+     * @param initialCapacity 每个订阅者缓冲区的初始容量（事件数）
+     */
+    public PlaybackEventBus(ThreadFactory threadFactory, int initialCapacity, NCWLoggerFactory loggerFactory) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("缓冲区容量必须大于0");
+        }
+        this.logger = loggerFactory;
+        this.threadFactory = threadFactory;
+        this.initialCapacity = initialCapacity;
+    }
+
+    // ==================== 订阅 ====================
+
+    /**
+     * 注册事件处理器，不限投递量
+     *
+     * @return 订阅，调用 {@link Flow.Subscription#cancel()} 取消
+     */
+    public Flow.Subscription subscribe(Handler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("事件处理器不能为空");
+        }
+        Channel channel = new Channel(handler, null, Long.MAX_VALUE);
+        register(channel);
+        return channel;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super PlaybackEvent> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        Channel channel = new Channel((type, seq, file, previous, value, detail) ->
+                subscriber.onNext(new PlaybackEvent(type, seq, file, previous, value, detail)), subscriber, 0);
+        subscriber.onSubscribe(channel);
+        register(channel);
+    }
+
+    /**
+     * 订阅者在 onSubscribe 中已取消时不再注册；取消与注册都持有总线锁，之后的取消总能找到已注册的通道
+     */
+    private synchronized void register(Channel channel) {
+        if (channel.isCancelled()) {
+            return;
+        }
+        if (closed) {
+            channel.closeInput();
+            channel.start();
+            return;
+        }
+        Channel[] updated = Arrays.copyOf(channels, channels.length + 1);
+        updated[channels.length] = channel;
+        channels = updated;
+        channel.start();
+    }
+
+    private synchronized void unregister(Channel channel) {
+        Channel[] current = channels;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == channel) {
+                Channel[] updated = new Channel[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                channels = updated;
+                channel.lock.lock();
+                try {
+                    retiredDelivered.addAndGet(channel.delivered);
+                    retiredCoalesced.addAndGet(channel.coalesced);
+                    retiredDropped.addAndGet(channel.dropped);
+                } finally {
+                    channel.lock.unlock();
+                }
+                return;
+            }
+        }
+    }
+
+    // ==================== 发布 ====================
+
+    public void publish(PlaybackEvent.Type type) {
+        publish(type, null, null, 0, null);
+    }
+
+    /**
+     * 发布事件，不阻塞（订阅者积压时按背压策略处理）
+     */
+    public synchronized void publish(PlaybackEvent.Type type, File file, File previousFile, double value, Object detail) {
+        if (closed) {
+            return;
+        }
+        long seq = ++sequence;
+        published.incrementAndGet();
+        PositionPolicy policy = positionPolicy;
+        for (Channel channel : channels) {
+            channel.offer(type, seq, file, previousFile, value, detail, policy);
+        }
+    }
+
+    /**
+     * 停止接收新事件，投递线程投递完已积压的事件后退出，{@link Flow.Subscriber} 收到 onComplete
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Channel channel : channels) {
+            channel.closeInput();
+        }
+    }
+
+    // ==================== 配置与查询 ====================
+
+    public void setPositionPolicy(PositionPolicy positionPolicy) {
+        if (positionPolicy == null) {
+            throw new IllegalArgumentException("背压策略不能为空");
+        }
+        this.positionPolicy = positionPolicy;
+    }
+
+    public PositionPolicy getPositionPolicy() {
+        return positionPolicy;
+    }
+
+    public int getSubscriberCount() {
+        return channels.length;
+    }
+
+    /**
+     * 获取事件统计信息：发布数，所有订阅者（含已取消的）合计的投递、合并、丢弃数，以及当前积压
+     */
+    public Map<String, Object> getStatistics() {
+        long delivered = retiredDelivered.get();
+        long coalesced = retiredCoalesced.get();
+        long dropped = retiredDropped.get();
+        int backlog = 0;
+        int maxBacklog = 0;
+        for (Channel channel : channels) {
+            channel.lock.lock();
+            try {
+                delivered += channel.delivered;
+                coalesced += channel.coalesced;
+                dropped += channel.dropped;
+                backlog += channel.size;
+                maxBacklog = Math.max(maxBacklog, channel.size);
+            } finally {
+                channel.lock.unlock();
+            }
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("subscribers", channels.length);
+        stats.put("positionPolicy", positionPolicy.name());
+        stats.put("published", published.get());
+        stats.put("delivered", delivered);
+        stats.put("coalescedPositions", coalesced);
+        stats.put("droppedPositions", dropped);
+        stats.put("backlog", backlog);
+        stats.put("maxSubscriberBacklog", maxBacklog);
+        stats.put("handlerErrors", handlerErrors.get());
+        return stats;
+    }
+
+    // ==================== 订阅者通道 ====================
+
+    /**
+     * 单个订阅者的环形缓冲区（按字段分开的预分配数组）和投递线程
+     */
+    private final class Channel implements Flow.Subscription, Runnable {
+
+        private final Handler handler;
+        private final Flow.Subscriber<? super PlaybackEvent> subscriber;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition ready = lock.newCondition();
+
+        // 以下字段在持有lock时访问
+        private PlaybackEvent.Type[] types;
+        private long[] sequences;
+        private File[] files;
+        private File[] previousFiles;
+        private double[] values;
+        private Object[] details;
+        private int head;
+        private int size;
+        private int pendingPosition = -1; // 尚未投递的位置事件所在槽位
+        private long demand;
+        private boolean inputClosed;
+        private boolean cancelled;
+        private Throwable requestError;
+        private long delivered;
+        private long coalesced;
+        private long dropped;
+
+        Channel(Handler handler, Flow.Subscriber<? super PlaybackEvent> subscriber, long demand) {
+            this.handler = handler;
+            this.subscriber = subscriber;
+            this.demand = demand;
+            allocate(initialCapacity);
+        }
+
+        private void allocate(int capacity) {
+            types = new PlaybackEvent.Type[capacity];
+            sequences = new long[capacity];
+            files = new File[capacity];
+            previousFiles = new File[capacity];
+            values = new double[capacity];
+            details = new Object[capacity];
+        }
+
+        void start() {
+            threadFactory.newThread(this).start();
+        }
+
+        void offer(PlaybackEvent.Type type, long seq, File file, File previousFile, double value, Object detail,
+                   PositionPolicy policy) {
+            lock.lock();
+            try {
+                if (cancelled || inputClosed) {
+                    return;
+                }
+                boolean position = type == PlaybackEvent.Type.POSITION;
+                boolean coalesce = position && policy == PositionPolicy.COALESCE && pendingPosition >= 0;
+                if (coalesce && pendingPosition == (head + size - 1) % types.length) {
+                    // 未投递的位置事件在队尾：原地更新，序号仍然递增
+                    sequences[pendingPosition] = seq;
+                    values[pendingPosition] = value;
+                    coalesced++;
+                    return;
+                }
+                if (size == types.length) {
+                    if (position) {
+                        dropped++;
+                        return;
+                    }
+                    grow();
+                }
+                if (coalesce) {
+                    // 其后已有状态事件：旧位置事件标记为作废并追加新事件，保证投递顺序与序号一致
+                    types[pendingPosition] = null;
+                    files[pendingPosition] = null;
+                    previousFiles[pendingPosition] = null;
+                    details[pendingPosition] = null;
+                    coalesced++;
+                }
+
+                int slot = (head + size) % types.length;
+                types[slot] = type;
+                sequences[slot] = seq;
+                files[slot] = file;
+                previousFiles[slot] = previousFile;
+                values[slot] = value;
+                details[slot] = detail;
+                size++;
+                if (position) {
+                    pendingPosition = slot;
+                }
+                ready.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 状态事件不丢弃：缓冲区满时容量翻倍，保持原有顺序
+         */
+        private void grow() {
+            PlaybackEvent.Type[] oldTypes = types;
+            long[] oldSequences = sequences;
+            File[] oldFiles = files;
+            File[] oldPrevious = previousFiles;
+            double[] oldValues = values;
+            Object[] oldDetails = details;
+            int capacity = oldTypes.length;
+
+            allocate(capacity * 2);
+            int newPending = -1;
+            for (int i = 0; i < size; i++) {
+                int from = (head + i) % capacity;
+                types[i] = oldTypes[from];
+                sequences[i] = oldSequences[from];
+                files[i] = oldFiles[from];
+                previousFiles[i] = oldPrevious[from];
+                values[i] = oldValues[from];
+                details[i] = oldDetails[from];
+                if (from == pendingPosition) {
+                    newPending = i;
+                }
+            }
+            head = 0;
+            pendingPosition = newPending;
+        }
+
+        @Override
+        public void run() {
+            boolean cancelledBySubscriber = false;
+            while (true) {
+                PlaybackEvent.Type type;
+                long seq;
+                File file;
+                File previousFile;
+                double value;
+                Object detail;
+
+                lock.lock();
+                try {
+                    skipSuperseded();
+                    while (!cancelled && requestError == null && (size == 0 || demand == 0) && !(inputClosed && size == 0)) {
+                        ready.awaitUninterruptibly();
+                        skipSuperseded();
+                    }
+                    if (cancelled) {
+                        // 在注册完成前（onSubscribe 中）取消的通道由 cancel 注销不到，在此注销
+                        cancelledBySubscriber = true;
+                        break;
+                    }
+                    if (requestError != null) {
+                        cancelled = true;
+                        break;
+                    }
+                    if (size == 0) {
+                        // 总线已关闭且已投递完积压的事件
+                        break;
+                    }
+
+                    type = types[head];
+                    seq = sequences[head];
+                    file = files[head];
+                    previousFile = previousFiles[head];
+                    value = values[head];
+                    detail = details[head];
+                    files[head] = null;
+                    previousFiles[head] = null;
+                    details[head] = null;
+                    if (pendingPosition == head) {
+                        pendingPosition = -1;
+                    }
+                    head = (head + 1) % types.length;
+                    size--;
+                    if (demand != Long.MAX_VALUE) {
+                        demand--;
+                    }
+                    delivered++;
+                } finally {
+                    lock.unlock();
+                }
+
+                try {
+                    handler.onEvent(type, seq, file, previousFile, value, detail);
+                } catch (RuntimeException e) {
+                    handlerErrors.incrementAndGet();
+                    logger.error("Error in event handler during " + type + " event", "eventBus", e);
+                }
+            }
+
+            // 正常结束、已取消或请求参数非法
+            unregister(this);
+            if (subscriber != null && !cancelledBySubscriber) {
+                Throwable error;
+                lock.lock();
+                try {
+                    error = requestError;
+                } finally {
+                    lock.unlock();
+                }
+                if (error != null) {
+                    subscriber.onError(error);
+                } else {
+                    subscriber.onComplete();
+                }
+            }
+        }
+
+        /**
+         * 跳过队首已作废的位置事件，不占用请求数量
+         */
+        private void skipSuperseded() {
+            while (size > 0 && types[head] == null) {
+                head = (head + 1) % types.length;
+                size--;
+            }
+        }
+
+        boolean isCancelled() {
+            lock.lock();
+            try {
+                return cancelled;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void closeInput() {
+            lock.lock();
+            try {
+                inputClosed = true;
+                ready.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            lock.lock();
+            try {
+                if (n <= 0) {
+                    requestError = new IllegalArgumentException("请求数量必须大于0: " + n);
+                } else {
+                    long sum = demand + n;
+                    demand = sum < 0 ? Long.MAX_VALUE : sum;
+                }
+                ready.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            lock.lock();
+            try {
+                cancelled = true;
+                size = 0;
+                Arrays.fill(files, null);
+                Arrays.fill(previousFiles, null);
+                Arrays.fill(details, null);
+                ready.signal();
+            } finally {
+                lock.unlock();
+            }
+            unregister(this);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package cn.ncw.music.stream.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁耗时直方图 - 按2的幂划分桶，记录时无锁、无分配，可在音频线程上使用
+ * <p>
+ * 第0个桶为小于1.024微秒，第k个桶为 [2^(k+9), 2^(k+10)) 纳秒，最后一个桶包含所有更长的耗时。
+ * 百分位按桶的上界估算，相对误差不超过一倍，足以判断抖动和长尾。
+ */
+public class LatencyHistogram {
+
+    public static final int BUCKETS = 32;
+    private static final int FIRST_BUCKET_SHIFT = 10; // 第0个桶的上界：1024纳秒
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong totalNanos = new AtomicLong(0);
+    private final AtomicLong maxNanos = new AtomicLong(0);
+
+    /**
+     * 记录一次耗时
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        if (nanos > maxNanos.get()) {
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    static int bucketOf(long nanos) {
+        int bucket = 64 - Long.numberOfLeadingZeros(nanos >>> FIRST_BUCKET_SHIFT);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    /**
+     * 桶的上界（纳秒），最后一个桶返回 {@link Long#MAX_VALUE}
+     */
+    public static long bucketUpperBoundNanos(int bucket) {
+        return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : 1L << (bucket + FIRST_BUCKET_SHIFT);
+    }
+
+    /**
+     * 获取当前数据的快照（各计数器分别读取，并发写入时总数可能有一次记录的偏差）
+     */
+    public Snapshot snapshot() {
+        long[] values = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            values[i] = buckets.get(i);
+        }
+        return new Snapshot(count.get(), totalNanos.get(), maxNanos.get(), values);
+    }
+
+    /**
+     * 直方图快照
+     */
+    public record Snapshot(long count, long totalNanos, long maxNanos, long[] buckets) {
+
+        public double meanMicros() {
+            return count == 0 ? 0.0 : totalNanos / 1000.0 / count;
+        }
+
+        public double maxMicros() {
+            return maxNanos / 1000.0;
+        }
+
+        /**
+         * 估算百分位耗时（微秒），取所在桶的上界且不超过最大值
+         *
+         * @param percentile 0到100
+         */
+        public double percentileMicros(double percentile) {
+            long total = 0;
+            for (long bucket : buckets) {
+                total += bucket;
+            }
+            if (total == 0) {
+                return 0.0;
+            }
+            long rank = (long) Math.ceil(total * Math.max(0, Math.min(100, percentile)) / 100.0);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= Math.max(1, rank)) {
+                    return Math.min(bucketUpperBoundNanos(i), maxNanos) / 1000.0;
+                }
+            }
+            return maxMicros();
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("count", count);
+            stats.put("meanMicros", meanMicros());
+            stats.put("p50Micros", percentileMicros(50));
+            stats.put("p90Micros", percentileMicros(90));
+            stats.put("p99Micros", percentileMicros(99));
+            stats.put("p999Micros", percentileMicros(99.9));
+            stats.put("maxMicros", maxMicros());
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package cn.ncw.music.stream.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 播放健康监控 - 欠载、写入/解码耗时、输出缓冲区填充率和渲染速率
+ * <p>
+ * 记录方法由写入线程和解码线程调用，只更新原子计数器，无锁、无分配；
+ * 监控方通过 {@link #snapshot()} 获取一致性要求不高的快照，快照之间可计算增量。
+ */
+public class PlaybackHealthMonitor {
+
+    private static final int FULL_PERMILLE = 1000;
+
+    private final LatencyHistogram writeLatency = new LatencyHistogram();
+    private final LatencyHistogram decodeLatency = new LatencyHistogram();
+    private final AtomicLong underruns = new AtomicLong(0);
+    private final AtomicLong framesRendered = new AtomicLong(0);
+    private final AtomicInteger minFillPermille = new AtomicInteger(FULL_PERMILLE);
+    private volatile int fillPermille = -1;
+    private volatile boolean primed;
+    private final long startNanos = System.nanoTime();
+
+    // 上一次快照，用于计算瞬时渲染速率（仅 snapshot 访问）
+    private long lastSnapshotNanos = startNanos;
+    private long lastSnapshotFrames;
+
+    // ==================== 记录（音频线程） ====================
+
+    /**
+     * 写入数据块之前采样输出缓冲区
+     * <p>
+     * 已写入过数据的输出缓冲区被完全播放空即为一次欠载（设备在等待数据）。
+     *
+     * @param bufferSize 输出缓冲区容量（字节），没有缓冲区的输出不采样
+     * @param available  可无阻塞写入的字节数
+     */
+    public void sampleFill(int bufferSize, int available) {
+        if (bufferSize <= 0) {
+            return;
+        }
+        int fill = (int) ((bufferSize - (long) Math.min(available, bufferSize)) * FULL_PERMILLE / bufferSize);
+        fillPermille = fill;
+        if (fill < minFillPermille.get()) {
+            minFillPermille.accumulateAndGet(fill, Math::min);
+        }
+        if (fill == 0 && primed) {
+            primed = false;
+            underruns.incrementAndGet();
+        }
+    }
+
+    /**
+     * 记录一次写入的阻塞时间和写入的帧数
+     */
+    public void recordWrite(long nanos, int frames) {
+        writeLatency.record(nanos);
+        if (frames > 0) {
+            framesRendered.addAndGet(frames);
+            primed = true;
+        }
+    }
+
+    /**
+     * 记录一个数据块的读取/解码耗时（解码线程）
+     */
+    public void recordDecode(long nanos) {
+        decodeLatency.record(nanos);
+    }
+
+    /**
+     * 输出缓冲区被有意清空（开始播放、跳转、切歌）后调用，之后的空缓冲区不计为欠载
+     */
+    public void rearm() {
+        primed = false;
+    }
+
+    // ==================== 查询 ====================
+
+    public long getUnderruns() {
+        return underruns.get();
+    }
+
+    public long getFramesRendered() {
+        return framesRendered.get();
+    }
+
+    // ==================== 快照 ====================
+
+    /**
+     * 健康指标快照
+     *
+     * @param fillLevel    最近一次采样的输出缓冲区填充率（0到1），未采样时为-1
+     * @param minFillLevel 自上次快照以来的最低填充率
+     * @param framesPerSecond 自上次快照以来的渲染速率
+     * @param averageFramesPerSecond 自创建以来的平均渲染速率
+     */
+    public record Snapshot(long timestampNanos, long underruns, long framesRendered,
+                           double framesPerSecond, double averageFramesPerSecond,
+                           double fillLevel, double minFillLevel,
+                           LatencyHistogram.Snapshot writeLatency, LatencyHistogram.Snapshot decodeLatency) {
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("underruns", underruns);
+            stats.put("framesRendered", framesRendered);
+            stats.put("framesPerSecond", framesPerSecond);
+            stats.put("averageFramesPerSecond", averageFramesPerSecond);
+            stats.put("fillLevel", fillLevel);
+            stats.put("minFillLevel", minFillLevel);
+            stats.put("writeLatency", writeLatency.toMap());
+            stats.put("decodeLatency", decodeLatency.toMap());
+            return stats;
+        }
+    }
+
+    /**
+     * 获取快照，并开始新的瞬时速率和最低填充率统计区间
+     */
+    public synchronized Snapshot snapshot() {
+        long now = System.nanoTime();
+        long frames = framesRendered.get();
+        double interval = (now - lastSnapshotNanos) / 1e9;
+        double rate = interval > 0 ? (frames - lastSnapshotFrames) / interval : 0.0;
+        double elapsed = (now - startNanos) / 1e9;
+        lastSnapshotNanos = now;
+        lastSnapshotFrames = frames;
+
+        int fill = fillPermille;
+        int minFill = minFillPermille.getAndSet(FULL_PERMILLE);
+        return new Snapshot(now, underruns.get(), frames, rate,
+                elapsed > 0 ? frames / elapsed : 0.0,
+                fill < 0 ? -1.0 : fill / (double) FULL_PERMILLE,
+                fill < 0 ? -1.0 : Math.min(minFill, fill) / (double) FULL_PERMILLE,
+                writeLatency.snapshot(), decodeLatency.snapshot());
+    }
+}
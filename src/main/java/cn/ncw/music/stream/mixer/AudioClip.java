@@ -0,0 +1,90 @@
+package cn.ncw.music.stream.mixer;
+
+import cn.ncw.music.stream.dsp.PcmKernel;
+import cn.ncw.music.stream.dsp.PcmKernels;
+import cn.ncw.music.stream.source.PcmSource;
+import cn.ncw.music.stream.source.PcmSources;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 内存音频片段 - 完整解码后的浮点样本
+ * <p>
+ * 片段不可变，可被任意多个 {@link ClipVoice} 同时播放而不复制数据。
+ */
+public final class AudioClip {
+
+    private final float[] samples;
+    private final int channels;
+    private final float sampleRate;
+
+    /**
+     * @param samples    交错排列的浮点样本（不复制）
+     * @param channels   声道数（1或2）
+     * @param sampleRate 采样率
+     */
+    public AudioClip(float[] samples, int channels, float sampleRate) {
+        if (channels != 1 && channels != 2) {
+            throw new IllegalArgumentException("片段仅支持单声道或立体声");
+        }
+        if (samples.length % channels != 0) {
+            throw new IllegalArgumentException("样本数与声道数不匹配");
+        }
+        this.samples = samples;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * 将音频文件完整解码到内存
+     */
+    public static AudioClip load(File file) throws IOException, UnsupportedAudioFileException {
+        try (PcmSource source = PcmSources.open(file)) {
+            AudioFormat format = source.getFormat();
+            if (!PcmKernels.isSupported(format)) {
+                throw new UnsupportedAudioFileException("不支持的PCM格式: " + format);
+            }
+
+            PcmKernel kernel = PcmKernels.get();
+            int frameSize = format.getFrameSize();
+            int channels = format.getChannels();
+            byte[] chunk = new byte[frameSize * 4096];
+            float[] samples = new float[0];
+            int count = 0;
+            int n;
+            while ((n = source.read(chunk, 0, chunk.length)) >= 0) {
+                int sampleCount = n / frameSize * channels;
+                if (count + sampleCount > samples.length) {
+                    samples = Arrays.copyOf(samples, Math.max(samples.length * 2, count + sampleCount));
+                }
+                kernel.toFloat(format, chunk, 0, samples, count, sampleCount);
+                count += sampleCount;
+            }
+            return new AudioClip(Arrays.copyOf(samples, count), channels, format.getSampleRate());
+        }
+    }
+
+    float[] samples() {
+        return samples;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public float getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getFrameLength() {
+        return samples.length / channels;
+    }
+
+    public double getDurationSeconds() {
+        return getFrameLength() / (double) sampleRate;
+    }
+}
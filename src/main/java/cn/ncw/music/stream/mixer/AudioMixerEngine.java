@@ -0,0 +1,361 @@
+package cn.ncw.music.stream.mixer;
+
+import cn.ncw.logger.log.NCWLoggerFactory;
+import cn.ncw.music.stream.dsp.PcmKernel;
+import cn.ncw.music.stream.dsp.PcmKernels;
+import cn.ncw.music.stream.source.PcmSources;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 软件混音引擎 - 任意数量的声部共用一条输出线路
+ * <p>
+ * 所有声部在同一个渲染线程中按缓冲区渲染，乘以各自的增益和声像后累加到预分配的浮点缓冲区，
+ * 再统一转换为16位立体声写入音频设备。同时播放N个声音只占用一条设备线路和一个线程。
+ */
+public class AudioMixerEngine implements AutoCloseable {
+
+    public static final float DEFAULT_SAMPLE_RATE = 44100f;
+    public static final int DEFAULT_FRAMES_PER_BUFFER = 1024;
+    private static final int OUTPUT_CHANNELS = 2;
+
+    private final NCWLoggerFactory logger;
+    private final float sampleRate;
+    private final int framesPerBuffer;
+    private final AudioFormat outputFormat;
+
+    private final PcmKernel kernel = PcmKernels.get();
+    private final List<MixerVoice> voices = new CopyOnWriteArrayList<>();
+
+    // 渲染缓冲区（仅渲染线程访问）
+    private final float[] accumulator;
+    private final float[] voiceBuffer;
+    private final byte[] outputBuffer;
+
+    private volatile float masterGain = 1.0f;
+    private volatile boolean running;
+    private volatile SourceDataLine line;
+    private Thread renderThread;
+
+    // 统计信息
+    private final AtomicLong renderedBuffers = new AtomicLong(0);
+    private final AtomicLong renderNanosTotal = new AtomicLong(0);
+    private final AtomicLong renderNanosMax = new AtomicLong(0);
+    private final AtomicLong voicesStarted = new AtomicLong(0);
+    private final AtomicLong voicesFinished = new AtomicLong(0);
+    private final AtomicLong peakVoices = new AtomicLong(0);
+
+    public AudioMixerEngine(NCWLoggerFactory loggerFactory) {
+        this(DEFAULT_SAMPLE_RATE, DEFAULT_FRAMES_PER_BUFFER, loggerFactory);
+    }
+
+    /**
+     * @param sampleRate      输出采样率
+     * @param framesPerBuffer 每个渲染缓冲区的帧数，决定混音延迟
+     */
+    public AudioMixerEngine(float sampleRate, int framesPerBuffer, NCWLoggerFactory loggerFactory) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("采样率必须大于0");
+        }
+        if (framesPerBuffer <= 0) {
+            throw new IllegalArgumentException("缓冲区帧数必须大于0");
+        }
+        this.logger = loggerFactory;
+        this.sampleRate = sampleRate;
+        this.framesPerBuffer = framesPerBuffer;
+        this.outputFormat = new AudioFormat(sampleRate, 16, OUTPUT_CHANNELS, true, false);
+        this.accumulator = new float[framesPerBuffer * OUTPUT_CHANNELS];
+        this.voiceBuffer = new float[framesPerBuffer * OUTPUT_CHANNELS];
+        this.outputBuffer = new byte[framesPerBuffer * outputFormat.getFrameSize()];
+    }
+
+    /**
+     * 打开输出线路并启动渲染线程
+     */
+    public synchronized void start() throws LineUnavailableException {
+        if (running) {
+            return;
+        }
+
+        DataLine.Info info = new DataLine.Info(SourceDataLine.class, outputFormat);
+        SourceDataLine newLine = (SourceDataLine) AudioSystem.getLine(info);
+        // 设备缓冲区保留两个渲染缓冲区，兼顾延迟与抗抖动
+        newLine.open(outputFormat, outputBuffer.length * 2);
+        newLine.start();
+        line = newLine;
+
+        running = true;
+        renderThread = new Thread(this::renderLoop, "AudioMixer-Render-" + System.currentTimeMillis());
+        renderThread.setDaemon(true);
+        renderThread.setPriority(Thread.MAX_PRIORITY);
+        renderThread.start();
+    }
+
+    /**
+     * 添加声部，立即开始播放
+     */
+    public <V extends MixerVoice> V addVoice(V voice) {
+        float voiceRate = voice.getSampleRate();
+        if (voiceRate != AudioSystem.NOT_SPECIFIED && Math.abs(voiceRate - sampleRate) > 0.5f) {
+            throw new IllegalArgumentException("声部采样率(" + voiceRate + ")与混音器(" + sampleRate + ")不一致");
+        }
+        voices.add(voice);
+        voicesStarted.incrementAndGet();
+        peakVoices.accumulateAndGet(voices.size(), Math::max);
+        return voice;
+    }
+
+    /**
+     * 播放内存片段
+     */
+    public ClipVoice play(AudioClip clip) {
+        return addVoice(new ClipVoice(clip));
+    }
+
+    /**
+     * 流式播放音频文件
+     */
+    public StreamVoice play(File file) throws UnsupportedAudioFileException, IOException {
+        return addVoice(new StreamVoice(PcmSources.open(file)));
+    }
+
+    /**
+     * 移除声部
+     * <p>
+     * 只标记声部结束，渲染线程可能正在读取它的数据源：由渲染线程在下一个缓冲区开始时移除并释放资源。
+     * 渲染线程未运行时直接释放。
+     */
+    public void removeVoice(MixerVoice voice) {
+        if (!voices.contains(voice)) {
+            return;
+        }
+        voice.markFinished();
+        if (!running) {
+            retireVoice(voice);
+        }
+    }
+
+    /**
+     * 停止所有声部
+     */
+    public void stopAllVoices() {
+        for (MixerVoice voice : voices) {
+            removeVoice(voice);
+        }
+    }
+
+    // ==================== 渲染 ====================
+
+    private void renderLoop() {
+        while (running) {
+            SourceDataLine currentLine = line;
+            if (currentLine == null) {
+                break;
+            }
+
+            long start = System.nanoTime();
+            renderBuffer();
+            long elapsed = System.nanoTime() - start;
+            renderNanosTotal.addAndGet(elapsed);
+            renderNanosMax.accumulateAndGet(elapsed, Math::max);
+            renderedBuffers.incrementAndGet();
+
+            // 设备缓冲区满时阻塞，由设备时钟控制渲染节奏
+            currentLine.write(outputBuffer, 0, outputBuffer.length);
+        }
+    }
+
+    /**
+     * 渲染一个缓冲区：逐个声部累加后转换为16位PCM
+     */
+    void renderBuffer() {
+        Arrays.fill(accumulator, 0f);
+
+        for (MixerVoice voice : voices) {
+            if (voice.isFinished()) {
+                retireVoice(voice);
+                continue;
+            }
+            if (voice.isPaused()) {
+                continue;
+            }
+
+            int frames;
+            try {
+                frames = voice.render(voiceBuffer, framesPerBuffer);
+            } catch (RuntimeException e) {
+                logger.error("Voice " + voice.getId() + " failed to render.", "renderBuffer", e);
+                frames = -1;
+            }
+            if (frames < 0) {
+                retireVoice(voice);
+                continue;
+            }
+            accumulate(voice, Math.min(frames, framesPerBuffer));
+        }
+
+        float gain = masterGain;
+        if (gain != 1.0f) {
+            kernel.applyGain(accumulator, 0, accumulator.length, gain);
+        }
+        kernel.fromFloat(accumulator, 0, outputFormat, outputBuffer, 0, accumulator.length);
+    }
+
+    /**
+     * 按增益和声像累加声部输出，增益在缓冲区内线性过渡到目标值
+     */
+    private void accumulate(MixerVoice voice, int frames) {
+        float targetLeft = voice.targetLeftGain();
+        float targetRight = voice.targetRightGain();
+        float left = Float.isNaN(voice.appliedLeftGain) ? targetLeft : voice.appliedLeftGain;
+        float right = Float.isNaN(voice.appliedRightGain) ? targetRight : voice.appliedRightGain;
+        float stepLeft = (targetLeft - left) / framesPerBuffer;
+        float stepRight = (targetRight - right) / framesPerBuffer;
+
+        float[] acc = accumulator;
+        float[] in = voiceBuffer;
+        if (voice.getChannels() == 1) {
+            for (int i = 0, o = 0; i < frames; i++, o += 2) {
+                float sample = in[i];
+                acc[o] += sample * left;
+                acc[o + 1] += sample * right;
+                left += stepLeft;
+                right += stepRight;
+            }
+        } else {
+            for (int i = 0, o = 0; i < frames; i++, o += 2) {
+                acc[o] += in[o] * left;
+                acc[o + 1] += in[o + 1] * right;
+                left += stepLeft;
+                right += stepRight;
+            }
+        }
+
+        // 声部提前结束时剩余部分不再过渡，直接记为目标值
+        voice.appliedLeftGain = targetLeft;
+        voice.appliedRightGain = targetRight;
+    }
+
+    /**
+     * 移除声部并释放其资源（渲染线程，或渲染线程未运行时调用）
+     */
+    private void retireVoice(MixerVoice voice) {
+        if (!voices.remove(voice)) {
+            return;
+        }
+        voice.markFinished();
+        voicesFinished.incrementAndGet();
+        try {
+            voice.close();
+        } catch (RuntimeException e) {
+            logger.error("Error closing voice " + voice.getId() + ".", "retireVoice", e);
+        }
+    }
+
+    /**
+     * 停止渲染线程并关闭输出线路
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            thread = renderThread;
+            renderThread = null;
+        }
+
+        SourceDataLine currentLine = line;
+        if (currentLine != null) {
+            // 解除渲染线程在write上的阻塞
+            currentLine.flush();
+        }
+        if (thread != null) {
+            try {
+                thread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // 渲染线程已退出，剩余声部在此释放
+        for (MixerVoice voice : voices) {
+            retireVoice(voice);
+        }
+        if (currentLine != null) {
+            currentLine.stop();
+            currentLine.close();
+        }
+        line = null;
+    }
+
+    // ==================== 配置与查询 ====================
+
+    /**
+     * 设置主增益（线性）
+     */
+    public void setMasterGain(float gain) {
+        if (gain < 0) {
+            throw new IllegalArgumentException("增益不能为负数");
+        }
+        this.masterGain = gain;
+    }
+
+    public float getMasterGain() {
+        return masterGain;
+    }
+
+    public AudioFormat getOutputFormat() {
+        return outputFormat;
+    }
+
+    public int getFramesPerBuffer() {
+        return framesPerBuffer;
+    }
+
+    public int getVoiceCount() {
+        return voices.size();
+    }
+
+    public List<MixerVoice> getVoices() {
+        return List.copyOf(voices);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 获取混音统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        long buffers = renderedBuffers.get();
+        stats.put("sampleRate", sampleRate);
+        stats.put("framesPerBuffer", framesPerBuffer);
+        stats.put("activeVoices", voices.size());
+        stats.put("peakVoices", peakVoices.get());
+        stats.put("voicesStarted", voicesStarted.get());
+        stats.put("voicesFinished", voicesFinished.get());
+        stats.put("renderedBuffers", buffers);
+        stats.put("averageRenderMicros", buffers == 0 ? 0.0 : renderNanosTotal.get() / 1000.0 / buffers);
+        stats.put("maxRenderMicros", renderNanosMax.get() / 1000.0);
+        stats.put("bufferDurationMicros", framesPerBuffer * 1_000_000.0 / sampleRate);
+        return stats;
+    }
+}
@@ -0,0 +1,63 @@
+package cn.ncw.music.stream.mixer;
+
+/**
+ * 片段声部 - 播放内存中的 {@link AudioClip}
+ */
+public class ClipVoice extends MixerVoice {
+
+    private final AudioClip clip;
+    private volatile boolean looping;
+    private int position; // 当前帧（仅渲染线程访问）
+
+    public ClipVoice(AudioClip clip) {
+        super(clip.getChannels());
+        this.clip = clip;
+    }
+
+    public ClipVoice(AudioClip clip, boolean looping) {
+        this(clip);
+        this.looping = looping;
+    }
+
+    @Override
+    public float getSampleRate() {
+        return clip.getSampleRate();
+    }
+
+    public void setLooping(boolean looping) {
+        this.looping = looping;
+    }
+
+    public boolean isLooping() {
+        return looping;
+    }
+
+    public AudioClip getClip() {
+        return clip;
+    }
+
+    @Override
+    protected int render(float[] buffer, int frames) {
+        int totalFrames = clip.getFrameLength();
+        if (totalFrames == 0) {
+            return -1;
+        }
+
+        float[] samples = clip.samples();
+        int channels = getChannels();
+        int written = 0;
+        while (written < frames) {
+            if (position >= totalFrames) {
+                if (!looping) {
+                    break;
+                }
+                position = 0;
+            }
+            int count = Math.min(frames - written, totalFrames - position);
+            System.arraycopy(samples, position * channels, buffer, written * channels, count * channels);
+            position += count;
+            written += count;
+        }
+        return written == 0 ? -1 : written;
+    }
+}
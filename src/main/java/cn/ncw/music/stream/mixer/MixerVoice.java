@@ -0,0 +1,141 @@
+package cn.ncw.music.stream.mixer;
+
+import javax.sound.sampled.AudioSystem;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 混音器声部 - 可独立设置增益和声像的单路音源
+ * <p>
+ * {@link #render(float[], int)} 只在混音器的渲染线程中调用，其余方法可在任意线程调用。
+ * 增益和声像的变化在下一个缓冲区内线性过渡，避免拉链噪声。
+ */
+public abstract class MixerVoice {
+
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    private final long id = NEXT_ID.getAndIncrement();
+    private final int channels;
+
+    private volatile float gain = 1.0f;
+    private volatile float pan = 0.0f;
+    private volatile boolean paused;
+    private volatile boolean finished;
+
+    // 上一个缓冲区结束时实际使用的左右声道增益（仅渲染线程访问）
+    float appliedLeftGain = Float.NaN;
+    float appliedRightGain = Float.NaN;
+
+    /**
+     * @param channels 输出声道数（1或2）
+     */
+    protected MixerVoice(int channels) {
+        if (channels != 1 && channels != 2) {
+            throw new IllegalArgumentException("声部仅支持单声道或立体声");
+        }
+        this.channels = channels;
+    }
+
+    /**
+     * 生成交错排列的浮点样本
+     *
+     * @param buffer 输出缓冲区，容量至少为 frames × 声道数
+     * @param frames 请求的帧数
+     * @return 实际生成的帧数，-1表示声部已结束
+     */
+    protected abstract int render(float[] buffer, int frames);
+
+    /**
+     * 释放声部占用的资源，声部结束或被移除时由混音器调用
+     */
+    protected void close() {
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * 声部采样率，返回 {@link AudioSystem#NOT_SPECIFIED} 表示跟随混音器
+     */
+    public float getSampleRate() {
+        return AudioSystem.NOT_SPECIFIED;
+    }
+
+    /**
+     * 设置增益（线性，1.0为原始音量）
+     */
+    public void setGain(float gain) {
+        if (gain < 0) {
+            throw new IllegalArgumentException("增益不能为负数");
+        }
+        this.gain = gain;
+    }
+
+    public float getGain() {
+        return gain;
+    }
+
+    /**
+     * 设置声像，-1.0为最左，0为居中，1.0为最右
+     */
+    public void setPan(float pan) {
+        if (pan < -1.0f || pan > 1.0f) {
+            throw new IllegalArgumentException("声像必须在-1.0到1.0之间");
+        }
+        this.pan = pan;
+    }
+
+    public float getPan() {
+        return pan;
+    }
+
+    public void pause() {
+        paused = true;
+    }
+
+    public void resume() {
+        paused = false;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * 停止声部，混音器将在下一个缓冲区移除它
+     */
+    public void stop() {
+        finished = true;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    void markFinished() {
+        finished = true;
+    }
+
+    /**
+     * 左声道目标增益：单声道按等功率声像分配，立体声按平衡衰减另一侧
+     */
+    float targetLeftGain() {
+        float p = pan;
+        if (channels == 1) {
+            return gain * (float) Math.cos((p + 1) * Math.PI / 4);
+        }
+        return gain * Math.min(1.0f, 1.0f - p);
+    }
+
+    float targetRightGain() {
+        float p = pan;
+        if (channels == 1) {
+            return gain * (float) Math.sin((p + 1) * Math.PI / 4);
+        }
+        return gain * Math.min(1.0f, 1.0f + p);
+    }
+}
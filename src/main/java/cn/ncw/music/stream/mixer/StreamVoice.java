@@ -0,0 +1,100 @@
+package cn.ncw.music.stream.mixer;
+
+import cn.ncw.music.stream.dsp.PcmKernel;
+import cn.ncw.music.stream.dsp.PcmKernels;
+import cn.ncw.music.stream.source.PcmSource;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 流式声部 - 从 {@link PcmSource} 边读边混
+ * <p>
+ * 读取发生在混音器的渲染线程中，适合未压缩文件或已缓存的数据源；
+ * 压缩格式建议先载入为 {@link AudioClip} 再播放，避免解码耗时导致欠载。
+ */
+public class StreamVoice extends MixerVoice {
+
+    private final PcmKernel kernel = PcmKernels.get();
+    private final PcmSource source;
+    private final AudioFormat format;
+    private final int frameSize;
+    private volatile boolean looping;
+    private byte[] readBuffer = new byte[0];
+
+    public StreamVoice(PcmSource source) {
+        super(source.getFormat().getChannels());
+        AudioFormat format = source.getFormat();
+        if (!PcmKernels.isSupported(format)) {
+            throw new IllegalArgumentException("不支持的PCM格式: " + format);
+        }
+        this.source = source;
+        this.format = format;
+        this.frameSize = format.getFrameSize();
+    }
+
+    @Override
+    public float getSampleRate() {
+        return format.getSampleRate();
+    }
+
+    /**
+     * 设置是否循环播放（需要数据源支持跳转）
+     */
+    public void setLooping(boolean looping) {
+        this.looping = looping;
+    }
+
+    public boolean isLooping() {
+        return looping;
+    }
+
+    @Override
+    protected int render(float[] buffer, int frames) {
+        int bytesWanted = frames * frameSize;
+        if (readBuffer.length < bytesWanted) {
+            readBuffer = new byte[bytesWanted];
+        }
+
+        try {
+            int total = 0;
+            boolean rewound = false;
+            while (total < bytesWanted) {
+                int n = source.read(readBuffer, total, bytesWanted - total);
+                if (n < 0) {
+                    // 空文件只回绕一次，避免死循环
+                    if (!looping || rewound) {
+                        break;
+                    }
+                    source.seekToFrame(0);
+                    rewound = true;
+                    continue;
+                }
+                if (n == 0) {
+                    break;
+                }
+                total += n;
+                rewound = false;
+            }
+
+            int framesRead = total / frameSize;
+            if (framesRead == 0) {
+                return -1;
+            }
+            kernel.toFloat(format, readBuffer, 0, buffer, 0, framesRead * getChannels());
+            return framesRead;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    protected void close() {
+        try {
+            source.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
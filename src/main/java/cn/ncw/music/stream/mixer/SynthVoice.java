@@ -0,0 +1,39 @@
+package cn.ncw.music.stream.mixer;
+
+/**
+ * 合成声部 - 由回调实时生成样本
+ */
+public class SynthVoice extends MixerVoice {
+
+    /**
+     * 样本生成器，在渲染线程中调用
+     */
+    @FunctionalInterface
+    public interface Generator {
+        /**
+         * @param buffer     输出缓冲区（交错排列）
+         * @param frames     请求的帧数
+         * @param channels   声道数
+         * @param startFrame 本次生成的首帧序号
+         * @return 实际生成的帧数，-1表示结束
+         */
+        int generate(float[] buffer, int frames, int channels, long startFrame);
+    }
+
+    private final Generator generator;
+    private long framePosition; // 仅渲染线程访问
+
+    public SynthVoice(int channels, Generator generator) {
+        super(channels);
+        this.generator = generator;
+    }
+
+    @Override
+    protected int render(float[] buffer, int frames) {
+        int generated = generator.generate(buffer, frames, getChannels(), framePosition);
+        if (generated > 0) {
+            framePosition += generated;
+        }
+        return generated;
+    }
+}
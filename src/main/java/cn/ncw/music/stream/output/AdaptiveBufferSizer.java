@@ -0,0 +1,124 @@
+package cn.ncw.music.stream.output;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 自适应缓冲 - 检测到欠载后放大缓冲，稳定一段时间后逐级缩回
+ * <p>
+ * 缓冲按级别倍增（第 n 级为基础大小的 2^n 倍），每次新的欠载升一级，
+ * 距上一次调整超过稳定期且没有欠载时降一级，直到回到档位的基础大小。
+ * 一次卡顿后缓冲区重新填满之前往往连续欠载多次，放大后的恢复期内的欠载只计数、不再升级。
+ * 级别在曲目之间保留：同一环境下再次播放时直接使用已经学到的缓冲大小。
+ * <p>
+ * {@link #update} 仅由写入线程调用；级别和计数可在任意线程读取。
+ */
+public class AdaptiveBufferSizer {
+
+    public static final int MAX_LEVEL = 3;
+    public static final long DEFAULT_STABLE_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long RECOVERY_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private volatile long stableNanos = DEFAULT_STABLE_NANOS;
+    private volatile int level;
+
+    // 仅写入线程访问
+    private long lastUnderruns;
+    private long lastChangeNanos;
+    private long lastGrowNanos;
+    private boolean grown;
+
+    // 统计信息
+    private final AtomicLong underruns = new AtomicLong(0);
+    private final AtomicLong grows = new AtomicLong(0);
+    private final AtomicLong shrinks = new AtomicLong(0);
+
+    /**
+     * 开始播放时以当前欠载计数为基准，稳定期从此时开始计算
+     */
+    public void reset(long underrunCount, long nowNanos) {
+        lastUnderruns = underrunCount;
+        lastChangeNanos = nowNanos;
+        grown = false;
+    }
+
+    /**
+     * 每写入一个数据块后调用
+     *
+     * @param underrunCount 累计欠载次数
+     * @return 级别是否发生变化
+     */
+    public boolean update(long underrunCount, long nowNanos) {
+        if (underrunCount > lastUnderruns) {
+            underruns.addAndGet(underrunCount - lastUnderruns);
+            lastUnderruns = underrunCount;
+            lastChangeNanos = nowNanos;
+            if (grown && nowNanos - lastGrowNanos < RECOVERY_NANOS) {
+                return false;
+            }
+            if (level < MAX_LEVEL) {
+                grown = true;
+                lastGrowNanos = nowNanos;
+                level++;
+                grows.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+        if (level > 0 && nowNanos - lastChangeNanos >= stableNanos) {
+            level--;
+            shrinks.incrementAndGet();
+            lastChangeNanos = nowNanos;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 当前缓冲倍数
+     */
+    public int getScale() {
+        return 1 << level;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * 缓冲最多放大的倍数，开启自适应时设备缓冲区按此预留容量
+     */
+    public static int getMaxScale() {
+        return 1 << MAX_LEVEL;
+    }
+
+    /**
+     * 设置缩回前需要保持无欠载的时长
+     */
+    public void setStablePeriod(long duration, TimeUnit unit) {
+        if (duration <= 0) {
+            throw new IllegalArgumentException("稳定期必须大于0");
+        }
+        this.stableNanos = unit.toNanos(duration);
+    }
+
+    public long getStablePeriodMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(stableNanos);
+    }
+
+    /**
+     * 获取自适应统计信息：当前级别和倍数、观察到的欠载次数、放大和缩回次数
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("level", level);
+        stats.put("scale", getScale());
+        stats.put("stablePeriodMs", getStablePeriodMillis());
+        stats.put("underruns", underruns.get());
+        stats.put("grows", grows.get());
+        stats.put("shrinks", shrinks.get());
+        return stats;
+    }
+}
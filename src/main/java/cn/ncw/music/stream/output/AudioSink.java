@@ -0,0 +1,107 @@
+package cn.ncw.music.stream.output;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.Control;
+import javax.sound.sampled.LineUnavailableException;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 音频输出 - 播放器写入PCM数据的目标
+ * <p>
+ * 语义与 {@link javax.sound.sampled.SourceDataLine} 一致：{@link #write} 在输出缓冲区满时阻塞，
+ * {@link #stop()} 暂停消费但保留已写入的数据，{@link #flush()} 丢弃尚未播放的数据。
+ * 除音频设备外还可以输出到文件、内存或直接丢弃，用于无声卡的服务器渲染和基准测试。
+ * <p>
+ * 生命周期：每首曲目开始时 {@link #open}，停止播放时 {@link #release()}，播放器关闭时 {@link #close()}。
+ * 实现可以在 release 之后保留资源，供下一次格式相同的 open 复用。
+ */
+public interface AudioSink extends AutoCloseable {
+
+    /**
+     * 按指定格式打开输出，输出处于停止状态且缓冲区为空
+     */
+    void open(AudioFormat format) throws LineUnavailableException, IOException;
+
+    /**
+     * 当前格式，未打开时返回null
+     */
+    AudioFormat getFormat();
+
+    boolean isOpen();
+
+    /**
+     * 开始（或恢复）消费数据
+     */
+    void start();
+
+    /**
+     * 暂停消费数据，已写入的数据保留
+     */
+    void stop();
+
+    boolean isRunning();
+
+    /**
+     * 写入PCM数据（整帧），缓冲区满时阻塞
+     *
+     * @return 实际写入的字节数
+     */
+    int write(byte[] data, int offset, int length) throws IOException;
+
+    /**
+     * 丢弃尚未播放的数据
+     */
+    void flush();
+
+    /**
+     * 阻塞直到已写入的数据全部播放完毕
+     */
+    void drain();
+
+    /**
+     * 输出缓冲区容量（字节），没有缓冲区的输出返回0
+     */
+    int getBufferSize();
+
+    /**
+     * 输出缓冲区中可以无阻塞写入的字节数
+     */
+    int available();
+
+    /**
+     * 自打开以来已播放的帧数
+     */
+    long getFramePosition();
+
+    /**
+     * 获取输出控件（音量等）
+     *
+     * @throws IllegalArgumentException 不支持该控件
+     */
+    default Control getControl(Control.Type type) {
+        throw new IllegalArgumentException("Unsupported control type: " + type);
+    }
+
+    default Control[] getControls() {
+        return new Control[0];
+    }
+
+    /**
+     * 停止播放时调用，之后可以再次 {@link #open}
+     */
+    void release() throws IOException;
+
+    /**
+     * 释放全部资源
+     */
+    @Override
+    void close() throws IOException;
+
+    /**
+     * 输出统计信息
+     */
+    default Map<String, Object> getStatistics() {
+        return Map.of();
+    }
+}
@@ -0,0 +1,159 @@
+package cn.ncw.music.stream.output;
+
+import javax.sound.sampled.AudioFormat;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 内存输出 - 将播放的PCM数据顺序写入 {@link ByteBuffer}（可以是直接缓冲区）
+ * <p>
+ * 不限速，写入从不阻塞：缓冲区写满后多余的数据被丢弃并计数。数据保持输出格式的原始字节序。
+ * 读取数据时通过 {@link #read(Consumer)} 在同步块内访问缓冲区，避免与写入线程冲突。
+ */
+public class ByteBufferAudioSink implements AudioSink {
+
+    private final ByteBuffer buffer;
+
+    private AudioFormat format;
+    private volatile boolean running;
+    private long droppedBytes;
+
+    /**
+     * @param buffer 目标缓冲区，从当前位置开始写入
+     */
+    public ByteBufferAudioSink(ByteBuffer buffer) {
+        if (buffer == null || buffer.isReadOnly()) {
+            throw new IllegalArgumentException("缓冲区不能为空或只读");
+        }
+        this.buffer = buffer;
+    }
+
+    /**
+     * 分配指定容量的直接缓冲区
+     */
+    public static ByteBufferAudioSink allocateDirect(int capacity) {
+        return new ByteBufferAudioSink(ByteBuffer.allocateDirect(capacity));
+    }
+
+    @Override
+    public synchronized void open(AudioFormat newFormat) {
+        format = newFormat;
+        running = false;
+    }
+
+    @Override
+    public synchronized AudioFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return format != null;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public synchronized int write(byte[] data, int offset, int length) {
+        if (format == null) {
+            return -1;
+        }
+        int frameSize = format.getFrameSize();
+        int stored = Math.min(length, buffer.remaining() - buffer.remaining() % frameSize);
+        buffer.put(data, offset, stored);
+        droppedBytes += length - stored;
+        return length;
+    }
+
+    /**
+     * 数据写入即视为已播放，丢弃操作无效
+     */
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void drain() {
+    }
+
+    @Override
+    public int getBufferSize() {
+        return 0;
+    }
+
+    @Override
+    public int available() {
+        return 0;
+    }
+
+    @Override
+    public synchronized long getFramePosition() {
+        return format == null ? 0 : buffer.position() / format.getFrameSize();
+    }
+
+    /**
+     * 在同步块内访问已写入的数据，参数为 [0, position) 范围的只读视图
+     */
+    public synchronized void read(Consumer<ByteBuffer> reader) {
+        ByteBuffer view = buffer.asReadOnlyBuffer();
+        view.flip();
+        reader.accept(view);
+    }
+
+    /**
+     * 清空缓冲区和丢弃计数
+     */
+    public synchronized void reset() {
+        buffer.clear();
+        droppedBytes = 0;
+    }
+
+    public synchronized int getBytesWritten() {
+        return buffer.position();
+    }
+
+    public synchronized long getDroppedBytes() {
+        return droppedBytes;
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public void release() {
+        running = false;
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        format = null;
+    }
+
+    @Override
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sink", "byteBuffer");
+        stats.put("direct", buffer.isDirect());
+        stats.put("bytesWritten", buffer.position());
+        stats.put("capacity", buffer.capacity());
+        stats.put("droppedBytes", droppedBytes);
+        return stats;
+    }
+}
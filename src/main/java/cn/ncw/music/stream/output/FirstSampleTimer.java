@@ -0,0 +1,61 @@
+package cn.ncw.music.stream.output;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 首样本延迟计时 - 从请求播放到首批数据写入输出的耗时（time-to-first-sample），用于衡量切歌延迟
+ */
+public class FirstSampleTimer {
+
+    // 请求播放的时间点，0表示没有等待中的请求
+    private final AtomicLong pendingRequestNanos = new AtomicLong(0);
+
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong nanosTotal = new AtomicLong(0);
+    private final AtomicLong nanosMax = new AtomicLong(0);
+    private volatile long lastNanos;
+
+    /**
+     * 记录播放请求时间点（调用线程）
+     */
+    public void markRequested() {
+        pendingRequestNanos.set(System.nanoTime());
+    }
+
+    /**
+     * 首批数据写入输出后调用（写入线程），计算自请求以来的耗时
+     */
+    public void markFirstSample() {
+        if (pendingRequestNanos.get() == 0) {
+            return;
+        }
+        long requested = pendingRequestNanos.getAndSet(0);
+        if (requested == 0) {
+            return;
+        }
+        long elapsed = System.nanoTime() - requested;
+        count.incrementAndGet();
+        nanosTotal.addAndGet(elapsed);
+        nanosMax.accumulateAndGet(elapsed, Math::max);
+        lastNanos = elapsed;
+    }
+
+    /**
+     * 是否有尚未写出首批数据的播放请求
+     */
+    public boolean isPending() {
+        return pendingRequestNanos.get() != 0;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        long samples = count.get();
+        stats.put("firstSampleCount", samples);
+        stats.put("lastTimeToFirstSampleMicros", lastNanos / 1000.0);
+        stats.put("averageTimeToFirstSampleMicros", samples == 0 ? 0.0 : nanosTotal.get() / 1000.0 / samples);
+        stats.put("maxTimeToFirstSampleMicros", nanosMax.get() / 1000.0);
+        return stats;
+    }
+}
@@ -0,0 +1,74 @@
+package cn.ncw.music.stream.output;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * 延迟档位 - 写入数据块大小、输出缓冲区时长和预解码深度的组合
+ * <p>
+ * 大小按时长定义，开始播放时按输出格式换算为字节并对齐到整帧，不同采样率下延迟相同。
+ * 低延迟档位响应快（交互式终端），但写入线程唤醒频繁，对调度抖动敏感；
+ * 高吞吐档位缓冲充足、唤醒少（后台音乐服务），控制命令和切歌的响应相应变慢。
+ */
+public enum LatencyProfile {
+    LOW_LATENCY(5, 20, 4),
+    BALANCED(20, 100, 8),
+    THROUGHPUT(100, 500, 16);
+
+    private final int chunkMillis;
+    private final int bufferMillis;
+    private final int readAheadDepth;
+
+    LatencyProfile(int chunkMillis, int bufferMillis, int readAheadDepth) {
+        this.chunkMillis = chunkMillis;
+        this.bufferMillis = bufferMillis;
+        this.readAheadDepth = readAheadDepth;
+    }
+
+    /**
+     * 每次写入设备的数据块时长（毫秒）
+     */
+    public int getChunkMillis() {
+        return chunkMillis;
+    }
+
+    /**
+     * 输出缓冲区中排队数据的时长（毫秒），即写入到听到的延迟
+     */
+    public int getBufferMillis() {
+        return bufferMillis;
+    }
+
+    /**
+     * 预解码深度（数据块数量）
+     */
+    public int getReadAheadDepth() {
+        return readAheadDepth;
+    }
+
+    public int getChunkBytes(AudioFormat format) {
+        return toFrameBytes(format, chunkMillis);
+    }
+
+    public int getBufferBytes(AudioFormat format) {
+        return toFrameBytes(format, bufferMillis);
+    }
+
+    /**
+     * 将时长换算为整帧字节数，至少一帧
+     */
+    public static int toFrameBytes(AudioFormat format, double millis) {
+        int frameSize = Math.max(1, format.getFrameSize());
+        long frames = (long) (format.getFrameRate() * millis / 1000.0);
+        return (int) Math.min(Integer.MAX_VALUE / frameSize, Math.max(1, frames)) * frameSize;
+    }
+
+    /**
+     * 将字节数向下对齐到整帧，至少一帧
+     */
+    public static int alignToFrame(int bytes, int frameSize) {
+        if (frameSize <= 0) {
+            return bytes;
+        }
+        return Math.max(frameSize, bytes - bytes % frameSize);
+    }
+}
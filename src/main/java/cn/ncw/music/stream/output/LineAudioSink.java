@@ -0,0 +1,158 @@
+package cn.ncw.music.stream.output;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Control;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.util.Map;
+
+/**
+ * 音频设备输出 - 基于 {@link SourceDataLine}
+ * <p>
+ * 通过 {@link OutputLineManager} 在曲目之间复用已打开的线路，格式相同的曲目切换只清空线路缓冲区。
+ */
+public class LineAudioSink implements AudioSink {
+
+    private final OutputLineManager lineManager = new OutputLineManager();
+    private volatile SourceDataLine line;
+    private volatile int bufferSize = AudioSystem.NOT_SPECIFIED;
+
+    @Override
+    public void open(AudioFormat format) throws LineUnavailableException {
+        line = lineManager.acquire(format, bufferSize);
+    }
+
+    @Override
+    public AudioFormat getFormat() {
+        SourceDataLine current = line;
+        return current == null ? null : current.getFormat();
+    }
+
+    @Override
+    public boolean isOpen() {
+        SourceDataLine current = line;
+        return current != null && current.isOpen();
+    }
+
+    @Override
+    public void start() {
+        SourceDataLine current = line;
+        if (current != null) {
+            current.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        SourceDataLine current = line;
+        if (current != null) {
+            current.stop();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        SourceDataLine current = line;
+        return current != null && current.isRunning();
+    }
+
+    @Override
+    public int write(byte[] data, int offset, int length) {
+        SourceDataLine current = line;
+        return current == null ? -1 : current.write(data, offset, length);
+    }
+
+    @Override
+    public void flush() {
+        SourceDataLine current = line;
+        if (current != null) {
+            current.flush();
+        }
+    }
+
+    @Override
+    public void drain() {
+        SourceDataLine current = line;
+        if (current != null) {
+            current.drain();
+        }
+    }
+
+    @Override
+    public int getBufferSize() {
+        SourceDataLine current = line;
+        return current == null ? 0 : current.getBufferSize();
+    }
+
+    @Override
+    public int available() {
+        SourceDataLine current = line;
+        return current == null ? 0 : current.available();
+    }
+
+    @Override
+    public long getFramePosition() {
+        SourceDataLine current = line;
+        return current == null ? 0 : current.getLongFramePosition();
+    }
+
+    @Override
+    public Control getControl(Control.Type type) {
+        SourceDataLine current = line;
+        if (current == null) {
+            throw new IllegalArgumentException("Line is not open");
+        }
+        return current.getControl(type);
+    }
+
+    @Override
+    public Control[] getControls() {
+        SourceDataLine current = line;
+        return current == null ? new Control[0] : current.getControls();
+    }
+
+    /**
+     * 归还线路，保持线路打开时供下一首复用
+     */
+    @Override
+    public void release() {
+        SourceDataLine current = line;
+        line = null;
+        lineManager.release(current);
+    }
+
+    @Override
+    public void close() {
+        line = null;
+        lineManager.close();
+    }
+
+    /**
+     * 设置设备缓冲区大小（字节），{@link AudioSystem#NOT_SPECIFIED} 表示使用设备默认值，下次打开时生效
+     */
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize <= 0 && bufferSize != AudioSystem.NOT_SPECIFIED) {
+            throw new IllegalArgumentException("缓冲区大小必须大于0");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * 设置曲目之间是否保持线路打开（默认开启）
+     */
+    public void setKeepOpen(boolean keepOpen) {
+        lineManager.setKeepOpen(keepOpen);
+    }
+
+    public boolean isKeepOpen() {
+        return lineManager.isKeepOpen();
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = lineManager.getStatistics();
+        stats.put("sink", "line");
+        return stats;
+    }
+}
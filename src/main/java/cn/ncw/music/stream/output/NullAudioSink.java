@@ -0,0 +1,249 @@
+package cn.ncw.music.stream.output;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 丢弃输出 - 不需要声卡，用于基准测试和无设备环境
+ * <p>
+ * 默认不限速，写入立即返回。实时模式下模拟一个按采样率消费的设备缓冲区：缓冲区满时写入阻塞，
+ * 停止后不再消费，行为与 {@link javax.sound.sampled.SourceDataLine} 相同。
+ */
+public class NullAudioSink implements AudioSink {
+
+    public static final int DEFAULT_BUFFER_MILLIS = 500;
+
+    private final boolean realtime;
+    private final int bufferMillis;
+
+    // 以下状态在持有this时访问
+    private AudioFormat format;
+    private int frameSize;
+    private long bufferFrames;
+    private boolean running;
+    private long writtenFrames;   // 已写入的帧数（模拟设备缓冲区的写位置）
+    private long playedFrames;    // 上次结算时已消费的帧数
+    private long clockNanos;      // 上次结算的时间点
+    private long flushGeneration;
+
+    // 统计信息
+    private long bytesWritten;
+    private long blockedNanos;
+
+    /**
+     * 不限速的丢弃输出
+     */
+    public NullAudioSink() {
+        this(false, DEFAULT_BUFFER_MILLIS);
+    }
+
+    /**
+     * @param realtime     是否按实时速度消费
+     * @param bufferMillis 实时模式下模拟的设备缓冲区时长（毫秒）
+     */
+    public NullAudioSink(boolean realtime, int bufferMillis) {
+        if (bufferMillis <= 0) {
+            throw new IllegalArgumentException("缓冲区时长必须大于0");
+        }
+        this.realtime = realtime;
+        this.bufferMillis = bufferMillis;
+    }
+
+    /**
+     * 按实时速度消费的丢弃输出
+     */
+    public static NullAudioSink paced() {
+        return new NullAudioSink(true, DEFAULT_BUFFER_MILLIS);
+    }
+
+    @Override
+    public synchronized void open(AudioFormat newFormat) {
+        format = newFormat;
+        frameSize = newFormat.getFrameSize();
+        bufferFrames = Math.max(1, (long) (newFormat.getFrameRate() * bufferMillis / 1000));
+        running = false;
+        writtenFrames = 0;
+        playedFrames = 0;
+        flushGeneration++;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized AudioFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return format != null;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!running) {
+            running = true;
+            clockNanos = System.nanoTime();
+            notifyAll();
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (running) {
+            advanceClock();
+            running = false;
+            notifyAll();
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 按经过的时间推进消费位置，缓冲区耗尽后位置停在写入位置
+     */
+    private void advanceClock() {
+        if (!running || !realtime) {
+            return;
+        }
+        long now = System.nanoTime();
+        long frames = (long) ((now - clockNanos) * (double) format.getFrameRate() / 1_000_000_000L);
+        if (frames > 0) {
+            playedFrames = Math.min(writtenFrames, playedFrames + frames);
+            clockNanos += (long) (frames * 1_000_000_000L / (double) format.getFrameRate());
+        }
+        if (playedFrames == writtenFrames) {
+            clockNanos = now;
+        }
+    }
+
+    @Override
+    public synchronized int write(byte[] data, int offset, int length) {
+        if (format == null) {
+            return -1;
+        }
+        int frames = length / frameSize;
+        if (!realtime) {
+            writtenFrames += frames;
+            playedFrames = writtenFrames;
+            bytesWritten += length;
+            return length;
+        }
+
+        long generation = flushGeneration;
+        int written = 0;
+        long blockedStart = 0;
+        while (written < frames && format != null && generation == flushGeneration) {
+            advanceClock();
+            long space = bufferFrames - (writtenFrames - playedFrames);
+            if (space > 0) {
+                int accepted = (int) Math.min(space, frames - written);
+                writtenFrames += accepted;
+                written += accepted;
+                continue;
+            }
+
+            if (blockedStart == 0) {
+                blockedStart = System.nanoTime();
+            }
+            try {
+                if (running) {
+                    // 等待大约一帧数据被消费
+                    long waitNanos = Math.max(TimeUnit.MICROSECONDS.toNanos(100),
+                            (long) ((frames - written) * 1_000_000_000L / (double) format.getFrameRate()));
+                    TimeUnit.NANOSECONDS.timedWait(this, Math.min(waitNanos, TimeUnit.MILLISECONDS.toNanos(10)));
+                } else {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (blockedStart != 0) {
+            blockedNanos += System.nanoTime() - blockedStart;
+        }
+        bytesWritten += (long) written * frameSize;
+        return written * frameSize;
+    }
+
+    @Override
+    public synchronized void flush() {
+        advanceClock();
+        writtenFrames = playedFrames;
+        flushGeneration++;
+        notifyAll();
+    }
+
+    @Override
+    public void drain() {
+        synchronized (this) {
+            while (realtime && running && format != null) {
+                advanceClock();
+                long queued = writtenFrames - playedFrames;
+                if (queued <= 0) {
+                    return;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this,
+                            (long) (queued * 1_000_000_000L / (double) format.getFrameRate()) + 1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized int getBufferSize() {
+        return realtime && format != null ? (int) (bufferFrames * frameSize) : 0;
+    }
+
+    @Override
+    public synchronized int available() {
+        if (!realtime || format == null) {
+            return 0;
+        }
+        advanceClock();
+        return (int) ((bufferFrames - (writtenFrames - playedFrames)) * frameSize);
+    }
+
+    @Override
+    public synchronized long getFramePosition() {
+        advanceClock();
+        return playedFrames;
+    }
+
+    @Override
+    public synchronized void release() {
+        running = false;
+        writtenFrames = playedFrames;
+        flushGeneration++;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void close() {
+        release();
+        format = null;
+    }
+
+    public boolean isRealtime() {
+        return realtime;
+    }
+
+    @Override
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sink", "null");
+        stats.put("realtime", realtime);
+        stats.put("bytesWritten", bytesWritten);
+        stats.put("blockedMillis", blockedNanos / 1_000_000.0);
+        return stats;
+    }
+}
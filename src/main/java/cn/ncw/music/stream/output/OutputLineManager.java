@@ -0,0 +1,145 @@
+package cn.ncw.music.stream.output;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 输出线路管理器 - 在曲目切换之间复用已打开的音频设备线路
+ * <p>
+ * 部分系统（如Linux下的一些混音器）打开线路需要数十到数百毫秒。切换曲目时若格式相同，
+ * 只需停止并清空（flush）原线路即可继续使用，仅在格式或缓冲区大小确实不同时才关闭后重新打开。
+ */
+public class OutputLineManager implements AutoCloseable {
+
+    private SourceDataLine line;
+    private volatile boolean keepOpen = true;
+
+    // 统计信息
+    private final AtomicLong lineOpens = new AtomicLong(0);
+    private final AtomicLong lineReuses = new AtomicLong(0);
+    private final AtomicLong openNanosTotal = new AtomicLong(0);
+    private final AtomicLong openNanosMax = new AtomicLong(0);
+    private volatile long lastOpenNanos;
+
+    /**
+     * 获取指定格式的输出线路，线路处于停止状态且缓冲区为空
+     *
+     * @param bufferSize 设备缓冲区字节数，{@link AudioSystem#NOT_SPECIFIED} 表示使用默认值
+     */
+    public synchronized SourceDataLine acquire(AudioFormat format, int bufferSize) throws LineUnavailableException {
+        if (line != null && line.isOpen() && isCompatible(line, format, bufferSize)) {
+            line.stop();
+            line.flush();
+            lineReuses.incrementAndGet();
+            return line;
+        }
+
+        closeLine();
+
+        long start = System.nanoTime();
+        DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
+        SourceDataLine newLine = (SourceDataLine) AudioSystem.getLine(info);
+        if (bufferSize == AudioSystem.NOT_SPECIFIED) {
+            newLine.open(format);
+        } else {
+            newLine.open(format, bufferSize);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        lineOpens.incrementAndGet();
+        openNanosTotal.addAndGet(elapsed);
+        openNanosMax.accumulateAndGet(elapsed, Math::max);
+        lastOpenNanos = elapsed;
+
+        line = newLine;
+        return newLine;
+    }
+
+    private static boolean isCompatible(SourceDataLine line, AudioFormat format, int bufferSize) {
+        return line.getFormat().matches(format)
+                && (bufferSize == AudioSystem.NOT_SPECIFIED || line.getBufferSize() == bufferSize);
+    }
+
+    /**
+     * 归还线路：停止并丢弃未播放的数据，保持打开以便下次复用
+     * <p>
+     * 关闭了线路保持功能时直接关闭线路。
+     */
+    public synchronized void release(SourceDataLine released) {
+        if (released == null) {
+            return;
+        }
+        if (released != line || !keepOpen) {
+            released.stop();
+            released.close();
+            if (released == line) {
+                line = null;
+            }
+            return;
+        }
+        released.stop();
+        released.flush();
+    }
+
+    /**
+     * 关闭当前保留的线路
+     */
+    @Override
+    public synchronized void close() {
+        closeLine();
+    }
+
+    private void closeLine() {
+        if (line != null) {
+            line.stop();
+            line.close();
+            line = null;
+        }
+    }
+
+    /**
+     * 设置曲目之间是否保持线路打开，关闭时立即释放空闲线路
+     */
+    public void setKeepOpen(boolean keepOpen) {
+        this.keepOpen = keepOpen;
+        if (!keepOpen) {
+            synchronized (this) {
+                if (line != null && !line.isActive()) {
+                    closeLine();
+                }
+            }
+        }
+    }
+
+    public boolean isKeepOpen() {
+        return keepOpen;
+    }
+
+    /**
+     * 获取线路复用统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        long opens = lineOpens.get();
+        stats.put("keepOpen", keepOpen);
+        stats.put("lineOpens", opens);
+        stats.put("lineReuses", lineReuses.get());
+        stats.put("lastOpenMicros", lastOpenNanos / 1000.0);
+        stats.put("averageOpenMicros", opens == 0 ? 0.0 : openNanosTotal.get() / 1000.0 / opens);
+        stats.put("maxOpenMicros", openNanosMax.get() / 1000.0);
+        synchronized (this) {
+            stats.put("lineOpen", line != null && line.isOpen());
+            if (line != null) {
+                stats.put("lineFormat", line.getFormat().toString());
+                stats.put("lineBufferSize", line.getBufferSize());
+            }
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,227 @@
+package cn.ncw.music.stream.output;
+
+import cn.ncw.music.stream.dsp.PcmKernel;
+import cn.ncw.music.stream.dsp.PcmKernels;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * WAV文件输出 - 将播放的PCM数据写入 RIFF/WAVE 文件
+ * <p>
+ * 不按实时速度限速，写入速度只取决于解码和磁盘。多首曲目连续写入同一个文件，要求格式一致。
+ * 每次停止播放时更新文件头中的长度字段，文件随时可被读取；{@link #close()} 后文件完整。
+ * 大端数据转换为小端，8位有符号数据转换为无符号。
+ */
+public class WavFileSink implements AudioSink {
+
+    private static final int HEADER_SIZE = 44;
+    private static final int WAVE_FORMAT_PCM = 0x0001;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 0x0003;
+    private static final long MAX_DATA_LENGTH = 0xFFFFFFFFL - (HEADER_SIZE - 8);
+
+    private final File file;
+    private final PcmKernel kernel = PcmKernels.get();
+
+    private FileChannel channel;
+    private AudioFormat format;
+    private byte[] scratch;
+    private long dataLength;
+    private volatile boolean running;
+
+    public WavFileSink(File file) {
+        if (file == null) {
+            throw new IllegalArgumentException("文件不能为null");
+        }
+        this.file = file;
+    }
+
+    @Override
+    public synchronized void open(AudioFormat newFormat) throws IOException {
+        if (channel != null) {
+            if (!newFormat.matches(format)) {
+                throw new IOException("WAV文件不支持中途改变格式: " + format + " -> " + newFormat);
+            }
+            running = false;
+            return;
+        }
+
+        AudioFormat.Encoding encoding = newFormat.getEncoding();
+        int bits = newFormat.getSampleSizeInBits();
+        boolean supported = AudioFormat.Encoding.PCM_SIGNED.equals(encoding)
+                || (AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding) && bits == 8)
+                || (AudioFormat.Encoding.PCM_FLOAT.equals(encoding) && bits == 32);
+        if (!supported || bits % 8 != 0) {
+            throw new IOException("WAV文件不支持该格式: " + newFormat);
+        }
+
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        format = newFormat;
+        dataLength = 0;
+        writeHeader();
+        running = false;
+    }
+
+    @Override
+    public synchronized AudioFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return channel != null;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public synchronized int write(byte[] data, int offset, int length) throws IOException {
+        if (channel == null) {
+            return -1;
+        }
+        if (dataLength + length > MAX_DATA_LENGTH) {
+            throw new IOException("WAV文件超过4GB上限: " + file.getAbsolutePath());
+        }
+
+        int bytesPerSample = format.getSampleSizeInBits() / 8;
+        boolean swap = format.isBigEndian() && bytesPerSample > 1;
+        boolean toUnsigned = bytesPerSample == 1 && AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding());
+        ByteBuffer buffer;
+        if (swap || toUnsigned) {
+            if (scratch == null || scratch.length < length) {
+                scratch = new byte[length];
+            }
+            System.arraycopy(data, offset, scratch, 0, length);
+            if (swap) {
+                kernel.swapEndian(scratch, 0, length / bytesPerSample, bytesPerSample);
+            } else {
+                for (int i = 0; i < length; i++) {
+                    scratch[i] ^= (byte) 0x80;
+                }
+            }
+            buffer = ByteBuffer.wrap(scratch, 0, length);
+        } else {
+            buffer = ByteBuffer.wrap(data, offset, length);
+        }
+
+        long position = HEADER_SIZE + dataLength;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        dataLength += length;
+        return length;
+    }
+
+    /**
+     * 文件输出没有缓冲区，丢弃操作无效
+     */
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void drain() {
+    }
+
+    @Override
+    public int getBufferSize() {
+        return 0;
+    }
+
+    @Override
+    public int available() {
+        return 0;
+    }
+
+    @Override
+    public synchronized long getFramePosition() {
+        return format == null ? 0 : dataLength / format.getFrameSize();
+    }
+
+    /**
+     * 更新文件头，文件保持打开以便后续曲目继续写入
+     */
+    @Override
+    public synchronized void release() throws IOException {
+        running = false;
+        if (channel != null) {
+            writeHeader();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        running = false;
+        if (channel != null) {
+            try {
+                writeHeader();
+            } finally {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        boolean isFloat = AudioFormat.Encoding.PCM_FLOAT.equals(format.getEncoding());
+        int channels = format.getChannels();
+        int sampleRate = Math.round(format.getSampleRate());
+        int blockAlign = format.getFrameSize();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put((byte) 'R').put((byte) 'I').put((byte) 'F').put((byte) 'F');
+        header.putInt((int) (HEADER_SIZE - 8 + dataLength));
+        header.put((byte) 'W').put((byte) 'A').put((byte) 'V').put((byte) 'E');
+        header.put((byte) 'f').put((byte) 'm').put((byte) 't').put((byte) ' ');
+        header.putInt(16);
+        header.putShort((short) (isFloat ? WAVE_FORMAT_IEEE_FLOAT : WAVE_FORMAT_PCM));
+        header.putShort((short) channels);
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * blockAlign);
+        header.putShort((short) blockAlign);
+        header.putShort((short) format.getSampleSizeInBits());
+        header.put((byte) 'd').put((byte) 'a').put((byte) 't').put((byte) 'a');
+        header.putInt((int) dataLength);
+        header.flip();
+
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sink", "wav");
+        stats.put("file", file.getAbsolutePath());
+        stats.put("dataBytes", dataLength);
+        stats.put("frames", getFramePosition());
+        return stats;
+    }
+}
@@ -0,0 +1,422 @@
+package cn.ncw.music.stream.pipeline;
+
+import cn.ncw.music.stream.buffer.PcmRingBuffer;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 预解码流水线 - 解码阶段与设备写入阶段分离
+ * <p>
+ * 解码线程持续从音频流读取PCM数据并写入有界的 {@link PcmRingBuffer}，写入线程只负责从环形缓冲区取出数据写入音频设备，
+ * 慢速解码或磁盘读取不会直接阻塞设备写入。
+ * 两个阶段之间通过无锁环形缓冲区交接数据，等待使用park/unpark，稳定运行时不获取监视器锁也不产生额外分配。
+ * <p>
+ * 跳转通过代号（generation）实现：{@link #flush()} 之后，解码线程在写入新位置的数据前发布丢弃标记，
+ * 写入线程据此跳过旧位置的数据。
+ */
+public class DecodeAheadPipeline implements AutoCloseable {
+
+    /**
+     * PCM数据来源
+     */
+    @FunctionalInterface
+    public interface PcmReader {
+        /**
+         * 读取PCM数据，返回-1表示流结束
+         */
+        int read(byte[] buffer, int offset, int length) throws IOException;
+    }
+
+    private static final long DECODER_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long DECODER_FULL_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long WRITER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    private static final long DECODER_JOIN_TIMEOUT_MS = 200;
+
+    private final int chunkSize;
+    private final int readAheadDepth;
+    private final int frameSize;
+    private final PcmRingBuffer ringBuffer;
+    private final byte[] decodeBuffer;
+    private final Object readLock;
+
+    private final AtomicLong generation = new AtomicLong(0);
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile Thread decoderThread;
+    private volatile Thread writerThread;
+    private volatile boolean writerWaiting;
+
+    // 解码线程发布：跳转后需要丢弃到的位置（先写位置，再写代号）
+    private volatile long discardPosition;
+    private volatile long discardGeneration;
+
+    // 解码线程发布：流结束位置及其代号、解码错误
+    private volatile long endPosition = -1;
+    private volatile long endGeneration = -1;
+    private volatile IOException decodeError;
+
+    // 写入线程已同步到的代号
+    private long readGeneration;
+
+    // 统计信息
+    private final AtomicLong decodedBytes = new AtomicLong(0);
+    private final AtomicLong decodedChunks = new AtomicLong(0);
+    private final AtomicLong underflowCount = new AtomicLong(0);
+    private final AtomicLong decoderStallCount = new AtomicLong(0);
+    private final AtomicLong droppedBytes = new AtomicLong(0);
+    private final AtomicLong occupancySamples = new AtomicLong(0);
+    private final AtomicLong occupancySum = new AtomicLong(0);
+    private final AtomicLong peakOccupancy = new AtomicLong(0);
+
+    /**
+     * @param chunkSize      每次解码的字节数，向下对齐到整帧
+     * @param readAheadDepth 预解码深度（数据块数量），环形缓冲区容量至少为 chunkSize * readAheadDepth
+     * @param frameSize      帧大小（字节），写入阶段每次读取的数据均为整帧
+     * @param readLock       读取音频流时持有的锁，跳转时应在同一把锁内调用 {@link #flush()}
+     */
+    public DecodeAheadPipeline(int chunkSize, int readAheadDepth, int frameSize, Object readLock) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("数据块大小必须大于0");
+        }
+        if (readAheadDepth <= 0) {
+            throw new IllegalArgumentException("预解码深度必须大于0");
+        }
+        if (frameSize <= 0) {
+            throw new IllegalArgumentException("帧大小必须大于0");
+        }
+        this.frameSize = frameSize;
+        this.chunkSize = Math.max(frameSize, chunkSize - chunkSize % frameSize);
+        this.readAheadDepth = readAheadDepth;
+        this.readLock = readLock != null ? readLock : new Object();
+        this.ringBuffer = new PcmRingBuffer(Math.multiplyExact(this.chunkSize, readAheadDepth));
+        this.decodeBuffer = new byte[this.chunkSize];
+    }
+
+    /**
+     * 启动解码线程
+     */
+    public void start(PcmReader reader, String threadName) {
+        start(reader, runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 使用指定的线程工厂启动解码线程（可以是虚拟线程）
+     */
+    public void start(PcmReader reader, ThreadFactory threadFactory) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("预解码流水线已启动");
+        }
+        Thread thread = threadFactory.newThread(() -> decodeLoop(reader));
+        decoderThread = thread;
+        thread.start();
+    }
+
+    /**
+     * 解码阶段：填充环形缓冲区
+     */
+    private void decodeLoop(PcmReader reader) {
+        long publishedGeneration = 0;
+        long finishedGeneration = -1;
+
+        while (running.get() && !Thread.currentThread().isInterrupted()) {
+            // 流已结束，等待跳转或关闭
+            if (finishedGeneration == generation.get()) {
+                LockSupport.parkNanos(this, DECODER_IDLE_PARK_NANOS);
+                continue;
+            }
+
+            long chunkGeneration;
+            int bytesRead;
+            try {
+                synchronized (readLock) {
+                    chunkGeneration = generation.get();
+                    bytesRead = reader.read(decodeBuffer, 0, chunkSize);
+                }
+            } catch (IOException e) {
+                if (!running.get()) {
+                    break;
+                }
+                chunkGeneration = generation.get();
+                publishedGeneration = publishDiscard(publishedGeneration, chunkGeneration);
+                decodeError = e;
+                finishedGeneration = markEndOfStream(chunkGeneration);
+                continue;
+            }
+
+            publishedGeneration = publishDiscard(publishedGeneration, chunkGeneration);
+
+            if (bytesRead < 0) {
+                finishedGeneration = markEndOfStream(chunkGeneration);
+                continue;
+            }
+
+            if (!writeFully(bytesRead, chunkGeneration)) {
+                continue;
+            }
+
+            decodedChunks.incrementAndGet();
+            decodedBytes.addAndGet(bytesRead);
+            signalWriter();
+        }
+    }
+
+    /**
+     * 跳转后首次写入前发布丢弃标记
+     */
+    private long publishDiscard(long publishedGeneration, long chunkGeneration) {
+        if (chunkGeneration != publishedGeneration) {
+            discardPosition = ringBuffer.writePosition();
+            discardGeneration = chunkGeneration;
+            signalWriter();
+        }
+        return chunkGeneration;
+    }
+
+    private long markEndOfStream(long chunkGeneration) {
+        endPosition = ringBuffer.writePosition();
+        endGeneration = chunkGeneration;
+        signalWriter();
+        return chunkGeneration;
+    }
+
+    /**
+     * 将解码数据写入环形缓冲区，空间不足时等待；期间发生跳转则放弃剩余数据
+     */
+    private boolean writeFully(int length, long chunkGeneration) {
+        int written = 0;
+        boolean stalled = false;
+        while (written < length) {
+            if (!running.get() || chunkGeneration != generation.get()) {
+                return false;
+            }
+            int n = ringBuffer.write(decodeBuffer, written, length - written);
+            written += n;
+            if (written < length) {
+                if (!stalled) {
+                    decoderStallCount.incrementAndGet();
+                    stalled = true;
+                }
+                LockSupport.parkNanos(this, DECODER_FULL_PARK_NANOS);
+            }
+        }
+        return true;
+    }
+
+    private void signalWriter() {
+        if (writerWaiting) {
+            Thread thread = writerThread;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    /**
+     * 写入阶段：读取预解码数据（仅限单个写入线程调用）
+     *
+     * @return 读取的字节数（整帧）；超时返回0；流结束返回-1
+     * @throws IOException 解码阶段发生错误
+     */
+    public int read(byte[] buffer, int offset, int length, long timeout, TimeUnit unit)
+            throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean underflowCounted = false;
+        writerThread = Thread.currentThread();
+
+        while (true) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            long currentGeneration = generation.get();
+            if (readGeneration != currentGeneration) {
+                // 等待解码线程发布新位置的丢弃标记，之前的数据全部过期
+                if (discardGeneration != currentGeneration) {
+                    if (!awaitData(deadline)) {
+                        return 0;
+                    }
+                    continue;
+                }
+                droppedBytes.addAndGet(ringBuffer.skipTo(discardPosition));
+                readGeneration = currentGeneration;
+            }
+
+            int occupancy = ringBuffer.readable();
+            occupancySamples.incrementAndGet();
+            occupancySum.addAndGet(occupancy);
+            if (occupancy > peakOccupancy.get()) {
+                peakOccupancy.set(occupancy);
+            }
+
+            int toRead = Math.min(length, occupancy);
+            toRead -= toRead % frameSize;
+            if (toRead > 0) {
+                return ringBuffer.read(buffer, offset, toRead);
+            }
+
+            if (endGeneration == readGeneration && endPosition == ringBuffer.readPosition()) {
+                IOException error = decodeError;
+                if (error != null) {
+                    decodeError = null;
+                    throw error;
+                }
+                return -1;
+            }
+
+            if (!underflowCounted) {
+                underflowCount.incrementAndGet();
+                underflowCounted = true;
+            }
+            if (!awaitData(deadline)) {
+                return 0;
+            }
+        }
+    }
+
+    private boolean awaitData(long deadline) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            return false;
+        }
+        writerWaiting = true;
+        LockSupport.parkNanos(this, Math.min(remaining, WRITER_PARK_NANOS));
+        writerWaiting = false;
+        return true;
+    }
+
+    /**
+     * 写入线程当前读取数据所属的代号，与 {@link #getGeneration()} 不一致时说明数据已因跳转过期
+     */
+    public long getReadGeneration() {
+        return readGeneration;
+    }
+
+    /**
+     * 解码阶段下一次写入的起始位置（字节），在 {@link PcmReader#read} 内调用时即为本次读取数据的起始位置
+     */
+    public long getWritePosition() {
+        return ringBuffer.writePosition();
+    }
+
+    /**
+     * 写入阶段下一次读取的起始位置（字节）
+     */
+    public long getReadPosition() {
+        return ringBuffer.readPosition();
+    }
+
+    /**
+     * 丢弃所有已预解码的数据（跳转后调用）
+     * <p>
+     * 应在持有读取锁、完成音频流重定位之后调用。
+     */
+    public void flush() {
+        generation.incrementAndGet();
+        Thread thread = decoderThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * 停止解码线程
+     */
+    @Override
+    public void close() {
+        if (!running.getAndSet(false)) {
+            return;
+        }
+        Thread thread = decoderThread;
+        decoderThread = null;
+        if (thread != null && thread != Thread.currentThread()) {
+            thread.interrupt();
+            try {
+                thread.join(DECODER_JOIN_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ==================== 统计信息 ====================
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getReadAheadDepth() {
+        return readAheadDepth;
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public int getCapacityBytes() {
+        return ringBuffer.capacity();
+    }
+
+    public int getQueuedBytes() {
+        return ringBuffer.size();
+    }
+
+    /**
+     * 当前缓冲的数据块数量
+     */
+    public int getQueuedChunks() {
+        return ringBuffer.size() / chunkSize;
+    }
+
+    public int getPeakQueuedChunks() {
+        return (int) (peakOccupancy.get() / chunkSize);
+    }
+
+    /**
+     * 写入线程取数据时的平均缓冲占用（数据块）
+     */
+    public double getAverageQueuedChunks() {
+        long samples = occupancySamples.get();
+        return samples == 0 ? 0 : (double) occupancySum.get() / samples / chunkSize;
+    }
+
+    /**
+     * 写入线程发现缓冲区为空的次数
+     */
+    public long getUnderflowCount() {
+        return underflowCount.get();
+    }
+
+    /**
+     * 解码线程因缓冲区已满而等待的次数
+     */
+    public long getDecoderStallCount() {
+        return decoderStallCount.get();
+    }
+
+    /**
+     * 因跳转而丢弃的字节数
+     */
+    public long getDroppedBytes() {
+        return droppedBytes.get();
+    }
+
+    public long getDecodedChunks() {
+        return decodedChunks.get();
+    }
+
+    public long getDecodedBytes() {
+        return decodedBytes.get();
+    }
+}
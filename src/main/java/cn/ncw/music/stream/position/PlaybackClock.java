@@ -0,0 +1,191 @@
+package cn.ncw.music.stream.position;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 播放时钟 - 以输出设备的帧位置为准，给出当前听到的曲目帧位置
+ * <p>
+ * 曲目位置 = 锚点曲目帧 + (设备已播放帧 - 锚点设备帧)，并限制在已写入的范围内。
+ * 开始播放、跳转、清空缓冲区后在下一次写入前重新锚定；无缝衔接时锚定在已写入的末尾，
+ * 上一首的剩余数据播放期间新曲目位置保持为0。
+ * <p>
+ * 设备帧位置通常按硬件周期跳变，写入线程每次写入后采样一次；读取时从最近一次采样按系统纳秒时钟插值，
+ * 读取无锁（乐观读）、无分配，可在渲染帧回调中频繁调用。
+ */
+public class PlaybackClock {
+
+    private final StampedLock lock = new StampedLock();
+
+    // 以下字段在写锁内修改，读取方乐观读取
+    private long anchorDeviceFrame;
+    private long anchorTrackFrame;
+    private long writtenDeviceFrame;   // 已写入设备的末尾
+    private long sampledDeviceFrame;   // 最近一次采样的设备位置
+    private long sampleNanos;          // 设备位置发生变化时的采样时间
+    private double framesPerNano;
+    private boolean running;
+
+    /**
+     * 锚定：设备播放到 deviceFrame 时听到的是曲目的 trackFrame（输出缓冲区为空时调用）
+     *
+     * @param deviceFrame 当前设备帧位置
+     * @param trackFrame  下一次写入的数据在曲目中的帧位置
+     * @param frameRate   设备帧率
+     */
+    public void anchor(long deviceFrame, long trackFrame, float frameRate) {
+        long stamp = lock.writeLock();
+        try {
+            anchorDeviceFrame = deviceFrame;
+            anchorTrackFrame = trackFrame;
+            writtenDeviceFrame = deviceFrame;
+            sampledDeviceFrame = deviceFrame;
+            sampleNanos = System.nanoTime();
+            framesPerNano = frameRate > 0 ? frameRate / 1e9 : 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 无缝衔接：已写入的数据播放完后开始新曲目的第0帧
+     */
+    public void startTrack() {
+        startTrackAt(0);
+    }
+
+    /**
+     * 已写入的数据（如定时开始前的静音）播放完后开始曲目的 trackFrame
+     */
+    public void startTrackAt(long trackFrame) {
+        long stamp = lock.writeLock();
+        try {
+            anchorDeviceFrame = writtenDeviceFrame;
+            anchorTrackFrame = trackFrame;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 写入设备后调用：累计已写入的帧并采样设备位置
+     *
+     * @param frames      本次写入的帧数
+     * @param deviceFrame 写入后的设备帧位置
+     */
+    public void written(int frames, long deviceFrame) {
+        long stamp = lock.writeLock();
+        try {
+            writtenDeviceFrame += frames;
+            sample(deviceFrame);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 设备位置没有变化时保留原采样时间，插值从上一次跳变开始继续
+     */
+    private void sample(long deviceFrame) {
+        if (deviceFrame != sampledDeviceFrame) {
+            sampledDeviceFrame = deviceFrame;
+            sampleNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * 设备开始或恢复播放
+     */
+    public void start() {
+        long stamp = lock.writeLock();
+        try {
+            running = true;
+            sampleNanos = System.nanoTime();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 设备暂停，位置停在最后一次采样的设备位置
+     */
+    public void stop(long deviceFrame) {
+        long stamp = lock.writeLock();
+        try {
+            running = false;
+            sampledDeviceFrame = Math.max(sampledDeviceFrame, deviceFrame);
+            sampleNanos = System.nanoTime();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 停止播放，位置归零
+     */
+    public void reset() {
+        long stamp = lock.writeLock();
+        try {
+            running = false;
+            anchorDeviceFrame = 0;
+            anchorTrackFrame = 0;
+            writtenDeviceFrame = 0;
+            sampledDeviceFrame = 0;
+            sampleNanos = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 已写入设备的末尾（设备帧位置坐标）
+     */
+    public long getWrittenDeviceFrame() {
+        long stamp = lock.readLock();
+        try {
+            return writtenDeviceFrame;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 当前听到的曲目帧位置
+     */
+    public long getFrame() {
+        return getFrame(System.nanoTime());
+    }
+
+    /**
+     * 指定 {@link System#nanoTime()} 时刻听到的曲目帧位置（用于对齐视频帧或歌词的显示时间）
+     */
+    public long getFrame(long nanoTime) {
+        long anchorDevice;
+        long anchorTrack;
+        long written;
+        long sampled;
+        long sampledAt;
+        double rate;
+        boolean active;
+        while (true) {
+            long stamp = lock.tryOptimisticRead();
+            anchorDevice = anchorDeviceFrame;
+            anchorTrack = anchorTrackFrame;
+            written = writtenDeviceFrame;
+            sampled = sampledDeviceFrame;
+            sampledAt = sampleNanos;
+            rate = framesPerNano;
+            active = running;
+            if (lock.validate(stamp)) {
+                break;
+            }
+            Thread.onSpinWait();
+        }
+
+        long device = sampled;
+        if (active && nanoTime > sampledAt) {
+            device += (long) ((nanoTime - sampledAt) * rate);
+        }
+        device = Math.min(device, written);
+        return anchorTrack + Math.max(0, device - anchorDevice);
+    }
+}
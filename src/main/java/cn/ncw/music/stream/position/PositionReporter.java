@@ -0,0 +1,184 @@
+package cn.ncw.music.stream.position;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * 播放位置报告器 - 按固定频率从单个线程发布播放位置
+ * <p>
+ * 每个周期读取一次位置，与上次发布的值不同时在报告线程上同步回调监听器。
+ * 监听器处理时间超过一个周期时，错过的周期直接合并，下一次发布的总是最新位置，不会积压任务。
+ * 每个周期只读取和传递基本类型，无分配。暂停或停止后报告线程挂起，不占用CPU。
+ */
+public final class PositionReporter implements AutoCloseable {
+
+    public static final double DEFAULT_RATE = 30.0;
+    public static final double MAX_RATE = 1000.0;
+    private static final double MIN_DELTA = 1e-9;
+
+    private final DoubleSupplier position;
+    private final DoubleConsumer listener;
+    private final ThreadFactory threadFactory;
+
+    private volatile long periodNanos;
+    private volatile boolean active;
+    private volatile boolean updateRequested;
+    private volatile boolean closed;
+    private volatile Thread thread;
+
+    // 仅报告线程访问
+    private double lastPublished = Double.NaN;
+
+    // 统计信息
+    private final AtomicLong published = new AtomicLong(0);
+    private final AtomicLong coalesced = new AtomicLong(0);
+    private final AtomicLong listenerErrors = new AtomicLong(0);
+
+    /**
+     * @param position      位置来源，在报告线程上调用
+     * @param listener      位置变化回调，在报告线程上调用
+     * @param threadFactory 创建报告线程
+     */
+    public PositionReporter(DoubleSupplier position, DoubleConsumer listener, ThreadFactory threadFactory) {
+        this.position = position;
+        this.listener = listener;
+        this.threadFactory = threadFactory;
+        setRate(DEFAULT_RATE);
+    }
+
+    /**
+     * 设置发布频率（次/秒）
+     */
+    public void setRate(double hz) {
+        if (!(hz > 0) || hz > MAX_RATE) {
+            throw new IllegalArgumentException("位置更新频率必须在0到" + MAX_RATE + "之间");
+        }
+        this.periodNanos = (long) (1_000_000_000L / hz);
+        wake();
+    }
+
+    public double getRate() {
+        return 1e9 / periodNanos;
+    }
+
+    /**
+     * 开始周期性发布（播放开始或恢复时调用）
+     */
+    public synchronized void start() {
+        if (closed) {
+            return;
+        }
+        active = true;
+        updateRequested = true;
+        if (thread == null) {
+            thread = threadFactory.newThread(this::run);
+            thread.start();
+        } else {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * 停止周期性发布（暂停或停止时调用），最后发布一次当前位置
+     */
+    public void stop() {
+        active = false;
+        requestUpdate();
+    }
+
+    /**
+     * 尽快发布一次当前位置（如跳转后），即使位置未变化
+     */
+    public void requestUpdate() {
+        updateRequested = true;
+        wake();
+    }
+
+    private void wake() {
+        Thread current = thread;
+        if (current != null) {
+            LockSupport.unpark(current);
+        }
+    }
+
+    private void run() {
+        long next = System.nanoTime();
+        while (!closed) {
+            if (!active && !updateRequested) {
+                LockSupport.park(this);
+                next = System.nanoTime();
+                continue;
+            }
+
+            long wait = next - System.nanoTime();
+            if (wait > 0 && !updateRequested) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+
+            boolean force = updateRequested;
+            updateRequested = false;
+            publish(force);
+
+            // 监听器处理超过一个周期时合并错过的周期
+            long period = periodNanos;
+            long now = System.nanoTime();
+            next += period;
+            if (next <= now) {
+                long missed = (now - next) / period + 1;
+                coalesced.addAndGet(missed);
+                next += missed * period;
+            }
+        }
+    }
+
+    private void publish(boolean force) {
+        double current;
+        try {
+            current = position.getAsDouble();
+        } catch (RuntimeException e) {
+            listenerErrors.incrementAndGet();
+            return;
+        }
+        if (!force && Math.abs(current - lastPublished) < MIN_DELTA) {
+            return;
+        }
+        lastPublished = current;
+        try {
+            listener.accept(current);
+            published.incrementAndGet();
+        } catch (RuntimeException e) {
+            listenerErrors.incrementAndGet();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        active = false;
+        wake();
+        thread = null;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * 获取发布统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("rate", getRate());
+        stats.put("active", active);
+        stats.put("published", published.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("listenerErrors", listenerErrors.get());
+        return stats;
+    }
+}
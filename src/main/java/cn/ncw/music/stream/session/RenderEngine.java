@@ -0,0 +1,263 @@
+package cn.ncw.music.stream.session;
+
+import cn.ncw.logger.log.NCWLoggerFactory;
+import cn.ncw.music.stream.source.PcmCache;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无设备渲染引擎 - 少量共享工作线程驱动任意数量的播放会话
+ * <p>
+ * 每个 {@link RenderSession} 是一个状态机，每次调度渲染一个固定长度的量子。就绪的会话放在按可运行时间排序的
+ * 运行队列中：实时会话在截止时间前 leadQuanta 个量子变为可运行，最早到期的先执行；非实时会话入队即可运行，
+ * 同等条件下按入队顺序轮转。会话渲染完一个量子后重新排队，单个会话不会长期占用工作线程。
+ * <p>
+ * 数千个会话只需要 M 个工作线程，线程数与会话数无关。
+ */
+public class RenderEngine implements AutoCloseable {
+
+    public static final int DEFAULT_QUANTUM_FRAMES = 1024;
+    public static final int DEFAULT_LEAD_QUANTA = 2;
+
+    private final NCWLoggerFactory logger;
+    private final int workerCount;
+    private final int quantumFrames;
+    private final int leadQuanta;
+
+    private final DelayQueue<SessionTicket> runQueue = new DelayQueue<>();
+    private final Set<RenderSession> sessions = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong(0);
+    private volatile PcmCache pcmCache = PcmCache.shared();
+
+    private volatile boolean running;
+    private Thread[] workers;
+    private long startNanos;
+
+    // 统计信息
+    private final AtomicLong framesRendered = new AtomicLong(0);
+    private final AtomicLong quantaRendered = new AtomicLong(0);
+    private final AtomicLong renderNanosTotal = new AtomicLong(0);
+    private final AtomicLong renderNanosMax = new AtomicLong(0);
+    private final AtomicLong deadlineMisses = new AtomicLong(0);
+    private final AtomicLong sessionsCreated = new AtomicLong(0);
+
+    public RenderEngine(NCWLoggerFactory loggerFactory) {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUANTUM_FRAMES, DEFAULT_LEAD_QUANTA, loggerFactory);
+    }
+
+    /**
+     * @param workerCount   工作线程数
+     * @param quantumFrames 每次调度渲染的帧数
+     * @param leadQuanta    实时会话最多提前渲染的量子数
+     */
+    public RenderEngine(int workerCount, int quantumFrames, int leadQuanta, NCWLoggerFactory loggerFactory) {
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("工作线程数必须大于0");
+        }
+        if (quantumFrames <= 0) {
+            throw new IllegalArgumentException("量子帧数必须大于0");
+        }
+        if (leadQuanta < 0) {
+            throw new IllegalArgumentException("提前量不能为负数");
+        }
+        this.logger = loggerFactory;
+        this.workerCount = workerCount;
+        this.quantumFrames = quantumFrames;
+        this.leadQuanta = leadQuanta;
+    }
+
+    /**
+     * 启动工作线程
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        startNanos = System.nanoTime();
+        workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::workerLoop, "RenderEngine-Worker-" + i);
+            worker.setDaemon(true);
+            worker.setPriority(Thread.MAX_PRIORITY);
+            workers[i] = worker;
+            worker.start();
+        }
+    }
+
+    /**
+     * 创建实时会话：按音频时钟推进，适合推流
+     */
+    public RenderSession createSession(SessionSink sink) {
+        return createSession(sink, true);
+    }
+
+    /**
+     * 创建会话
+     *
+     * @param realtime true按音频时钟推进；false尽快渲染（离线分析、转码）
+     */
+    public RenderSession createSession(SessionSink sink, boolean realtime) {
+        if (sink == null) {
+            throw new IllegalArgumentException("会话输出不能为空");
+        }
+        RenderSession session = new RenderSession(this, sink, realtime);
+        sessions.add(session);
+        sessionsCreated.incrementAndGet();
+        return session;
+    }
+
+    /**
+     * 将会话放入运行队列（已在队列中或正在渲染时忽略）
+     */
+    void schedule(RenderSession session) {
+        if (!session.isRunnable() || !session.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        SessionTicket ticket = session.ticket;
+        ticket.eligibleNanos = session.eligibleNanos(leadQuanta);
+        ticket.sequence = sequence.getAndIncrement();
+        runQueue.add(ticket);
+    }
+
+    void remove(RenderSession session) {
+        sessions.remove(session);
+    }
+
+    private void workerLoop() {
+        while (running) {
+            SessionTicket ticket;
+            try {
+                ticket = runQueue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            RenderSession session = ticket.session;
+            long start = System.nanoTime();
+            session.renderQuantum();
+            long elapsed = System.nanoTime() - start;
+            renderNanosTotal.addAndGet(elapsed);
+            renderNanosMax.accumulateAndGet(elapsed, Math::max);
+            quantaRendered.incrementAndGet();
+
+            // 先清除标记再重新排队；渲染期间暂停又恢复时，恢复调用的 schedule 因标记未清除被忽略，
+            // 因此无论本次结果如何都重新检查一次（schedule 只接受可运行的会话）
+            session.scheduled.set(false);
+            schedule(session);
+        }
+    }
+
+    void recordFrames(int frames) {
+        framesRendered.addAndGet(frames);
+    }
+
+    void recordDeadlineMiss() {
+        deadlineMisses.incrementAndGet();
+    }
+
+    void logError(String message, String tag, Exception e) {
+        logger.error(message, tag, e);
+    }
+
+    /**
+     * 停止工作线程并关闭所有会话
+     */
+    @Override
+    public void close() {
+        Thread[] threads;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            threads = workers;
+            workers = null;
+        }
+        for (Thread worker : threads) {
+            worker.interrupt();
+        }
+        for (Thread worker : threads) {
+            try {
+                worker.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (RenderSession session : List.copyOf(sessions)) {
+            session.close();
+        }
+        runQueue.clear();
+    }
+
+    // ==================== 配置与查询 ====================
+
+    /**
+     * 设置会话打开文件时使用的已解码PCM缓存，传入null禁用缓存
+     */
+    public void setPcmCache(PcmCache cache) {
+        this.pcmCache = cache;
+    }
+
+    public PcmCache getPcmCache() {
+        return pcmCache;
+    }
+
+    public int getQuantumFrames() {
+        return quantumFrames;
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public List<RenderSession> getSessions() {
+        return List.copyOf(sessions);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 获取引擎整体统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        long quanta = quantaRendered.get();
+        long frames = framesRendered.get();
+        double elapsedSeconds = running ? (System.nanoTime() - startNanos) / 1e9 : 0;
+        int playing = 0;
+        for (RenderSession session : sessions) {
+            if (session.getState() == RenderSession.State.PLAYING) {
+                playing++;
+            }
+        }
+        stats.put("workerCount", workerCount);
+        stats.put("quantumFrames", quantumFrames);
+        stats.put("sessionCount", sessions.size());
+        stats.put("playingSessions", playing);
+        stats.put("sessionsCreated", sessionsCreated.get());
+        stats.put("queueDepth", runQueue.size());
+        stats.put("quantaRendered", quanta);
+        stats.put("framesRendered", frames);
+        stats.put("framesPerSecond", elapsedSeconds > 0 ? frames / elapsedSeconds : 0.0);
+        stats.put("deadlineMisses", deadlineMisses.get());
+        stats.put("averageQuantumMicros", quanta == 0 ? 0.0 : renderNanosTotal.get() / 1000.0 / quanta);
+        stats.put("maxQuantumMicros", renderNanosMax.get() / 1000.0);
+        stats.put("workerUtilization", elapsedSeconds > 0
+                ? renderNanosTotal.get() / 1e9 / (elapsedSeconds * workerCount) : 0.0);
+        return stats;
+    }
+}
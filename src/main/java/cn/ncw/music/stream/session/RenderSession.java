@@ -0,0 +1,433 @@
+package cn.ncw.music.stream.session;
+
+import cn.ncw.music.stream.dsp.PcmKernel;
+import cn.ncw.music.stream.dsp.PcmKernels;
+import cn.ncw.music.stream.source.PcmSource;
+import cn.ncw.music.stream.source.PcmSources;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 渲染会话 - 由 {@link RenderEngine} 调度的无设备播放状态机
+ * <p>
+ * 会话不持有线程：每次被调度时渲染一个固定长度的量子（quantum）写入 {@link SessionSink}，
+ * 之后重新排队。实时会话按音频时钟推进，每个量子有截止时间，最多提前若干量子渲染；
+ * 非实时会话（离线分析等）尽快渲染，与其他会话轮流占用工作线程。
+ * <p>
+ * 控制方法（播放、暂停、跳转、音量）可在任意线程调用，在当前量子渲染完成后生效。
+ */
+public class RenderSession implements AutoCloseable {
+
+    public enum State {
+        IDLE,
+        PLAYING,
+        PAUSED,
+        FINISHED,
+        CLOSED
+    }
+
+    // 落后超过该时长时不再追赶，从当前时间重新计时
+    private static final long MAX_LAG_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // 数据源暂时没有数据时的最短退避时长，连续无数据时倍增，最长一个量子
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    private final long id = NEXT_ID.getAndIncrement();
+    private final RenderEngine engine;
+    private final SessionSink sink;
+    private final boolean realtime;
+    private final PcmKernel kernel = PcmKernels.get();
+
+    final SessionTicket ticket = new SessionTicket(this);
+    final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    private final Object lock = new Object();
+    private volatile State state = State.IDLE;
+    private volatile float volume = 1.0f;
+
+    // 以下状态在持有lock时访问
+    private PcmSource source;
+    private File currentFile;
+    private AudioFormat format;
+    private int frameSize;
+    private byte[] buffer;
+    private float[] floatBuffer;
+    private float appliedGain = Float.NaN;
+    private long nextDueNanos;
+    private long quantumNanos;
+    private long backoffNanos;
+    private volatile long totalFrames;
+    private volatile long currentFrame;
+    private volatile Exception lastError;
+
+    // 统计信息
+    private final AtomicLong framesRendered = new AtomicLong(0);
+    private final AtomicLong quantaRendered = new AtomicLong(0);
+    private final AtomicLong deadlineMisses = new AtomicLong(0);
+    private final AtomicLong maxLatenessNanos = new AtomicLong(0);
+
+    RenderSession(RenderEngine engine, SessionSink sink, boolean realtime) {
+        this.engine = engine;
+        this.sink = sink;
+        this.realtime = realtime;
+    }
+
+    // ==================== 播放控制 ====================
+
+    /**
+     * 播放音频文件
+     */
+    public void play(File file) throws UnsupportedAudioFileException, IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("文件不能为null");
+        }
+        PcmSource newSource = PcmSources.open(file, engine.getPcmCache());
+        play(newSource, file);
+    }
+
+    /**
+     * 播放数据源，会话接管数据源的关闭
+     */
+    public void play(PcmSource newSource) {
+        play(newSource, null);
+    }
+
+    private void play(PcmSource newSource, File file) {
+        if (newSource == null) {
+            throw new IllegalArgumentException("数据源不能为空");
+        }
+        synchronized (lock) {
+            if (state == State.CLOSED) {
+                closeQuietly(newSource);
+                throw new IllegalStateException("会话已关闭");
+            }
+            closeSource();
+
+            AudioFormat newFormat = newSource.getFormat();
+            int quantumFrames = engine.getQuantumFrames();
+            source = newSource;
+            currentFile = file;
+            format = newFormat;
+            frameSize = newFormat.getFrameSize();
+            int bytes = quantumFrames * frameSize;
+            if (buffer == null || buffer.length < bytes) {
+                buffer = new byte[bytes];
+            }
+            totalFrames = newSource.getFrameLength();
+            currentFrame = 0;
+            appliedGain = Float.NaN;
+            lastError = null;
+            quantumNanos = (long) (quantumFrames * 1_000_000_000L / (double) newFormat.getFrameRate());
+            nextDueNanos = System.nanoTime();
+            backoffNanos = 0;
+            state = State.PLAYING;
+        }
+        engine.schedule(this);
+    }
+
+    public void pause() {
+        synchronized (lock) {
+            if (state == State.PLAYING) {
+                state = State.PAUSED;
+            }
+        }
+    }
+
+    public void resume() {
+        synchronized (lock) {
+            if (state != State.PAUSED) {
+                return;
+            }
+            state = State.PLAYING;
+            nextDueNanos = System.nanoTime();
+            backoffNanos = 0;
+        }
+        engine.schedule(this);
+    }
+
+    /**
+     * 停止播放并关闭当前数据源
+     */
+    public void stop() {
+        synchronized (lock) {
+            if (state == State.CLOSED) {
+                return;
+            }
+            closeSource();
+            currentFrame = 0;
+            state = State.IDLE;
+        }
+    }
+
+    /**
+     * 跳转到指定帧
+     */
+    public boolean seekToFrame(long frame) {
+        synchronized (lock) {
+            long total = totalFrames;
+            if (source == null || frame < 0 || (total != AudioSystem.NOT_SPECIFIED && frame >= total)) {
+                return false;
+            }
+            try {
+                source.seekToFrame(frame);
+                currentFrame = frame;
+                return true;
+            } catch (IOException e) {
+                lastError = e;
+                engine.logError("Session " + id + " failed to seek to frame: " + frame, "seekToFrame", e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 跳转到指定时间（秒）
+     */
+    public boolean seekToTime(double seconds) {
+        AudioFormat current = format;
+        if (current == null || seconds < 0) {
+            return false;
+        }
+        return seekToFrame((long) (seconds * current.getFrameRate()));
+    }
+
+    /**
+     * 设置音量（0.0 - 1.0，线性），在下一个量子内平滑过渡
+     */
+    public void setVolume(double volume) {
+        this.volume = (float) Math.max(0.0, Math.min(1.0, volume));
+    }
+
+    public double getVolume() {
+        return volume;
+    }
+
+    /**
+     * 关闭会话并从引擎移除
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (state == State.CLOSED) {
+                return;
+            }
+            closeSource();
+            state = State.CLOSED;
+        }
+        engine.remove(this);
+    }
+
+    // ==================== 渲染 ====================
+
+    /**
+     * 渲染一个量子（工作线程调用）
+     *
+     * @return 是否需要继续调度
+     */
+    boolean renderQuantum() {
+        boolean finished = false;
+        synchronized (lock) {
+            if (state != State.PLAYING || source == null) {
+                return false;
+            }
+
+            int length = engine.getQuantumFrames() * frameSize;
+            int filled = 0;
+            try {
+                while (filled < length) {
+                    int n = source.read(buffer, filled, length - filled);
+                    if (n < 0) {
+                        finished = true;
+                        break;
+                    }
+                    if (n == 0) {
+                        break;
+                    }
+                    filled += n;
+                }
+
+                if (filled > 0) {
+                    applyVolume(filled);
+                    sink.write(this, format, buffer, 0, filled);
+                    int frames = filled / frameSize;
+                    currentFrame += frames;
+                    framesRendered.addAndGet(frames);
+                    engine.recordFrames(frames);
+                }
+                quantaRendered.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                lastError = e;
+                engine.logError("Session " + id + " failed to render.", "renderQuantum", e);
+                finished = true;
+            }
+
+            if (realtime && filled > 0) {
+                advanceDeadline(filled / frameSize);
+            }
+            if (filled > 0 || finished) {
+                backoffNanos = 0;
+            } else {
+                // 数据源暂时没有数据，截止时间不会推进，延后重试以免空转
+                backoffNanos = backoffNanos == 0 ? MIN_BACKOFF_NANOS
+                        : Math.min(backoffNanos * 2, Math.max(MIN_BACKOFF_NANOS, quantumNanos));
+            }
+            if (finished) {
+                closeSource();
+                state = State.FINISHED;
+            }
+        }
+
+        if (finished) {
+            try {
+                sink.finished(this);
+            } catch (RuntimeException e) {
+                engine.logError("Session " + id + " sink failed on finish.", "renderQuantum", e);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private void advanceDeadline(int frames) {
+        long now = System.nanoTime();
+        long lateness = now - nextDueNanos;
+        if (lateness > 0) {
+            deadlineMisses.incrementAndGet();
+            maxLatenessNanos.accumulateAndGet(lateness, Math::max);
+            engine.recordDeadlineMiss();
+        }
+        nextDueNanos += (long) (frames * 1_000_000_000L / (double) format.getFrameRate());
+        if (now - nextDueNanos > MAX_LAG_NANOS) {
+            nextDueNanos = now;
+        }
+    }
+
+    private void applyVolume(int length) {
+        float target = volume;
+        float start = Float.isNaN(appliedGain) ? target : appliedGain;
+        appliedGain = target;
+        if (start == 1.0f && target == 1.0f) {
+            return;
+        }
+        if (!PcmKernels.isSupported(format)) {
+            return;
+        }
+
+        int channels = format.getChannels();
+        int samples = length / (format.getSampleSizeInBits() / 8);
+        if (floatBuffer == null || floatBuffer.length < samples) {
+            floatBuffer = new float[samples];
+        }
+        kernel.toFloat(format, buffer, 0, floatBuffer, 0, samples);
+        if (start != target) {
+            kernel.applyGainRamp(floatBuffer, 0, samples / channels, channels, start, target);
+        } else {
+            kernel.applyGain(floatBuffer, 0, samples, target);
+        }
+        kernel.fromFloat(floatBuffer, 0, format, buffer, 0, samples);
+    }
+
+    /**
+     * 下次可被调度的时间：实时会话最多提前 leadQuanta 个量子渲染，非实时会话立即可运行
+     */
+    long eligibleNanos(int leadQuanta) {
+        synchronized (lock) {
+            long now = System.nanoTime();
+            long eligible = realtime ? nextDueNanos - quantumNanos * leadQuanta : now;
+            if (backoffNanos > 0) {
+                eligible = Math.max(eligible, now + backoffNanos);
+            }
+            return eligible;
+        }
+    }
+
+    boolean isRunnable() {
+        return state == State.PLAYING;
+    }
+
+    private void closeSource() {
+        if (source != null) {
+            closeQuietly(source);
+            source = null;
+        }
+    }
+
+    private void closeQuietly(PcmSource pcmSource) {
+        try {
+            pcmSource.close();
+        } catch (IOException e) {
+            engine.logError("Session " + id + " failed to close source.", "closeSource", e);
+        }
+    }
+
+    // ==================== 查询方法 ====================
+
+    public long getId() {
+        return id;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isRealtime() {
+        return realtime;
+    }
+
+    public File getCurrentFile() {
+        return currentFile;
+    }
+
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    public long getCurrentFrame() {
+        return currentFrame;
+    }
+
+    public long getTotalFrames() {
+        return totalFrames;
+    }
+
+    public double getCurrentTime() {
+        AudioFormat current = format;
+        return current == null ? 0 : currentFrame / current.getFrameRate();
+    }
+
+    public double getTotalTime() {
+        AudioFormat current = format;
+        long total = totalFrames;
+        return current == null || total < 0 ? 0 : total / current.getFrameRate();
+    }
+
+    public Exception getLastError() {
+        return lastError;
+    }
+
+    /**
+     * 获取会话统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("id", id);
+        stats.put("state", state.name());
+        stats.put("realtime", realtime);
+        stats.put("currentFrame", currentFrame);
+        stats.put("framesRendered", framesRendered.get());
+        stats.put("quantaRendered", quantaRendered.get());
+        stats.put("deadlineMisses", deadlineMisses.get());
+        stats.put("maxLatenessMicros", maxLatenessNanos.get() / 1000.0);
+        return stats;
+    }
+}
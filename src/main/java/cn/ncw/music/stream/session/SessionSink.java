@@ -0,0 +1,27 @@
+package cn.ncw.music.stream.session;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+
+/**
+ * 会话输出 - 接收会话渲染出的PCM数据（文件、网络流、分析器等非设备目标）
+ * <p>
+ * 在工作线程中调用，同一会话的调用不会并发，不同会话的调用可能并发。实现不应长时间阻塞，
+ * 否则会占用共享的工作线程。
+ */
+@FunctionalInterface
+public interface SessionSink {
+
+    /**
+     * 写入一个渲染量子的数据（整帧）
+     *
+     * @param format 数据格式，曲目切换后可能变化
+     */
+    void write(RenderSession session, AudioFormat format, byte[] data, int offset, int length) throws IOException;
+
+    /**
+     * 当前曲目播放完毕
+     */
+    default void finished(RenderSession session) {
+    }
+}
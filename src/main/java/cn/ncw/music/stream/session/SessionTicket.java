@@ -0,0 +1,33 @@
+package cn.ncw.music.stream.session;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 运行队列中的会话条目，每个会话复用同一个条目
+ * <p>
+ * 按可运行时间排序，相同时按入队顺序，保证同等条件的会话轮流执行。
+ * 排序字段只在条目不在队列中时修改。
+ */
+final class SessionTicket implements Delayed {
+
+    final RenderSession session;
+    long eligibleNanos;
+    long sequence;
+
+    SessionTicket(RenderSession session) {
+        this.session = session;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(eligibleNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        SessionTicket that = (SessionTicket) other;
+        int byTime = Long.compare(eligibleNanos - that.eligibleNanos, 0);
+        return byTime != 0 ? byTime : Long.compare(sequence, that.sequence);
+    }
+}
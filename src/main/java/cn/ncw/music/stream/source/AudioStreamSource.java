@@ -0,0 +1,120 @@
+package cn.ncw.music.stream.source;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 基于 Java Sound 音频流的数据源，支持压缩格式及格式转换
+ * <p>
+ * 跳转需要重新打开文件并线性跳过，仅作为无法随机访问时的回退方案。
+ */
+public class AudioStreamSource implements PcmSource {
+
+    private final File file;
+    private final AudioFormat sourceFormat;
+    private final AudioFormat targetFormat;
+    private final long frameLength;
+    private AudioInputStream audioStream;
+
+    public AudioStreamSource(File file) throws UnsupportedAudioFileException, IOException {
+        this.file = file;
+
+        AudioInputStream stream = AudioSystem.getAudioInputStream(file);
+        this.sourceFormat = stream.getFormat();
+        long frames = stream.getFrameLength();
+
+        // 设备不支持原始格式时转换为16位PCM
+        if (!PcmSources.isLineSupported(sourceFormat)) {
+            this.targetFormat = new AudioFormat(
+                    AudioFormat.Encoding.PCM_SIGNED,
+                    sourceFormat.getSampleRate(),
+                    16,
+                    sourceFormat.getChannels(),
+                    sourceFormat.getChannels() * 2,
+                    sourceFormat.getSampleRate(),
+                    false
+            );
+            stream = AudioSystem.getAudioInputStream(targetFormat, stream);
+            long convertedFrames = stream.getFrameLength();
+            if (convertedFrames != AudioSystem.NOT_SPECIFIED) {
+                frames = convertedFrames;
+            }
+        } else {
+            this.targetFormat = null;
+        }
+
+        this.audioStream = stream;
+        this.frameLength = frames;
+    }
+
+    private AudioInputStream openStream() throws UnsupportedAudioFileException, IOException {
+        AudioInputStream stream = AudioSystem.getAudioInputStream(file);
+        if (targetFormat != null) {
+            stream = AudioSystem.getAudioInputStream(targetFormat, stream);
+        }
+        return stream;
+    }
+
+    @Override
+    public AudioFormat getFormat() {
+        return targetFormat != null ? targetFormat : sourceFormat;
+    }
+
+    @Override
+    public AudioFormat getSourceFormat() {
+        return sourceFormat;
+    }
+
+    @Override
+    public long getFrameLength() {
+        return frameLength;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        AudioInputStream stream = audioStream;
+        if (stream == null) {
+            return -1;
+        }
+        return stream.read(buffer, offset, length);
+    }
+
+    @Override
+    public boolean isRandomAccess() {
+        return false;
+    }
+
+    /**
+     * 重新打开音频流并跳过到指定帧
+     */
+    @Override
+    public void seekToFrame(long frame) throws IOException {
+        close();
+        try {
+            audioStream = openStream();
+        } catch (UnsupportedAudioFileException e) {
+            throw new IOException("重新打开音频流失败: " + file.getAbsolutePath(), e);
+        }
+
+        long bytesToSkip = frame * getFormat().getFrameSize();
+        while (bytesToSkip > 0) {
+            long skipped = audioStream.skip(bytesToSkip);
+            if (skipped <= 0) {
+                break;
+            }
+            bytesToSkip -= skipped;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (audioStream != null) {
+            audioStream.close();
+            audioStream = null;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package cn.ncw.music.stream.source;
+
+import javax.sound.sampled.AudioFormat;
+import java.nio.ByteBuffer;
+
+/**
+ * 从 {@link PcmCache} 读取已解码PCM的数据源，支持常数时间跳转
+ */
+public class CachedPcmSource implements PcmSource {
+
+    private final PcmCache.Entry entry;
+    private final ByteBuffer data;
+    private final int frameSize;
+    private final int dataLength;
+    private int position;
+
+    public CachedPcmSource(PcmCache.Entry entry) {
+        this.entry = entry;
+        this.data = entry.getData();
+        this.frameSize = entry.getFormat().getFrameSize();
+        this.dataLength = data.limit();
+    }
+
+    @Override
+    public AudioFormat getFormat() {
+        return entry.getFormat();
+    }
+
+    @Override
+    public AudioFormat getSourceFormat() {
+        return entry.getSourceFormat();
+    }
+
+    @Override
+    public long getFrameLength() {
+        return dataLength / frameSize;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        int remaining = dataLength - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+
+        int toRead = Math.min(length, remaining);
+        toRead -= toRead % frameSize;
+        if (toRead <= 0) {
+            return 0;
+        }
+
+        data.get(position, buffer, offset, toRead);
+        position += toRead;
+        return toRead;
+    }
+
+    @Override
+    public boolean isRandomAccess() {
+        return true;
+    }
+
+    @Override
+    public void seekToFrame(long frame) {
+        long target = Math.max(0, Math.min(frame, getFrameLength()));
+        position = (int) (target * frameSize);
+    }
+
+    @Override
+    public void close() {
+        position = dataLength;
+    }
+}
@@ -0,0 +1,137 @@
+package cn.ncw.music.stream.source;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 边解码边缓存的数据源
+ * <p>
+ * 顺序读取到流结束时将完整的解码结果放入 {@link PcmCache}；
+ * 发生跳转或数据超过缓存预算时放弃缓存，不影响正常播放。
+ * 累积缓冲区的容量在缓存中预留，放入时复制为实际大小。
+ */
+public class CachingPcmSource implements PcmSource {
+
+    private static final int INITIAL_CAPACITY = 4 * 1024 * 1024;
+
+    private final PcmSource delegate;
+    private final PcmCache cache;
+    private final PcmCache.Key key;
+    private ByteBuffer accumulator;
+    private long reserved;
+    private boolean finished;
+
+    public CachingPcmSource(PcmSource delegate, PcmCache cache, PcmCache.Key key) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.key = key;
+
+        long frames = delegate.getFrameLength();
+        long expected = frames == AudioSystem.NOT_SPECIFIED ? INITIAL_CAPACITY
+                : frames * delegate.getFormat().getFrameSize();
+        long initial = Math.min(expected, cache.getMaxBytes());
+        if (initial > 0 && initial <= Integer.MAX_VALUE
+                && (frames == AudioSystem.NOT_SPECIFIED || cache.canCache(expected))
+                && cache.reserve(initial)) {
+            reserved = initial;
+            accumulator = cache.allocate((int) initial);
+        } else {
+            finished = true;
+        }
+    }
+
+    @Override
+    public AudioFormat getFormat() {
+        return delegate.getFormat();
+    }
+
+    @Override
+    public AudioFormat getSourceFormat() {
+        return delegate.getSourceFormat();
+    }
+
+    @Override
+    public long getFrameLength() {
+        return delegate.getFrameLength();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int bytesRead = delegate.read(buffer, offset, length);
+        if (finished) {
+            return bytesRead;
+        }
+
+        if (bytesRead < 0) {
+            commit();
+        } else if (bytesRead > 0) {
+            append(buffer, offset, bytesRead);
+        }
+        return bytesRead;
+    }
+
+    private void append(byte[] buffer, int offset, int length) {
+        if (accumulator.remaining() < length) {
+            long required = (long) accumulator.position() + length;
+            long grown = Math.max(required, (long) accumulator.capacity() * 2);
+            long capacity = Math.min(grown, cache.getMaxBytes());
+            if (required > capacity || capacity > Integer.MAX_VALUE
+                    || !cache.reserve(capacity - accumulator.capacity())) {
+                abandon();
+                return;
+            }
+            reserved += capacity - accumulator.capacity();
+            ByteBuffer larger = cache.allocate((int) capacity);
+            accumulator.flip();
+            larger.put(accumulator);
+            accumulator = larger;
+        }
+        accumulator.put(buffer, offset, length);
+    }
+
+    private void commit() {
+        ByteBuffer data = accumulator;
+        abandon();
+        if (data != null && data.position() > 0) {
+            data.flip();
+            if (data.capacity() > data.limit()) {
+                // 按估计大小或倍增分配的缓冲区有空余，复制为实际大小后放入
+                ByteBuffer exact = cache.allocate(data.limit());
+                exact.put(data).flip();
+                data = exact;
+            }
+            cache.put(key, new PcmCache.Entry(delegate.getFormat(), delegate.getSourceFormat(), data));
+        }
+    }
+
+    private void abandon() {
+        finished = true;
+        accumulator = null;
+        if (reserved > 0) {
+            cache.releaseReservation(reserved);
+            reserved = 0;
+        }
+    }
+
+    @Override
+    public boolean isRandomAccess() {
+        return delegate.isRandomAccess();
+    }
+
+    /**
+     * 跳转后数据不再连续，放弃本次缓存
+     */
+    @Override
+    public void seekToFrame(long frame) throws IOException {
+        abandon();
+        delegate.seekToFrame(frame);
+    }
+
+    @Override
+    public void close() throws IOException {
+        abandon();
+        delegate.close();
+    }
+}
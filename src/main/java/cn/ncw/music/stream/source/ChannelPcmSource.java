@@ -0,0 +1,104 @@
+package cn.ncw.music.stream.source;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 基于 FileChannel 的未压缩PCM数据源
+ * <p>
+ * 根据数据块起始位置直接计算字节偏移，跳转只需修改读取位置，耗时与跳转目标无关。
+ */
+public class ChannelPcmSource implements PcmSource {
+
+    private final FileChannel channel;
+    private final PcmFileHeader header;
+    private final int frameSize;
+
+    // 相对数据块起始位置的读取偏移
+    private long position;
+
+    // 复用的读缓冲包装，避免每次读取分配
+    private byte[] wrappedArray;
+    private ByteBuffer wrappedBuffer;
+
+    /**
+     * @param channel 已打开的文件通道，关闭数据源时一并关闭；从文件打开请使用 {@link PcmSources#open(java.io.File)}
+     */
+    public ChannelPcmSource(FileChannel channel, PcmFileHeader header) {
+        this.channel = channel;
+        this.header = header;
+        this.frameSize = header.getFormat().getFrameSize();
+    }
+
+    @Override
+    public AudioFormat getFormat() {
+        return header.getFormat();
+    }
+
+    @Override
+    public AudioFormat getSourceFormat() {
+        return header.getFormat();
+    }
+
+    @Override
+    public long getFrameLength() {
+        return header.getFrameLength();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        long remaining = header.getDataLength() - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+
+        int toRead = (int) Math.min(length, remaining);
+        toRead -= toRead % frameSize;
+        if (toRead <= 0) {
+            return 0;
+        }
+
+        if (wrappedArray != buffer) {
+            wrappedArray = buffer;
+            wrappedBuffer = ByteBuffer.wrap(buffer);
+        }
+        ByteBuffer target = wrappedBuffer;
+        target.limit(offset + toRead).position(offset);
+
+        // 按整帧读满，除非文件提前结束
+        long filePosition = header.getDataOffset() + position;
+        while (target.hasRemaining()) {
+            int n = channel.read(target, filePosition + (target.position() - offset));
+            if (n < 0) {
+                break;
+            }
+        }
+
+        int bytesRead = target.position() - offset;
+        bytesRead -= bytesRead % frameSize;
+        if (bytesRead == 0) {
+            return -1;
+        }
+        position += bytesRead;
+        return bytesRead;
+    }
+
+    @Override
+    public boolean isRandomAccess() {
+        return true;
+    }
+
+    @Override
+    public void seekToFrame(long frame) throws IOException {
+        long totalFrames = header.getFrameLength();
+        long target = Math.max(0, Math.min(frame, totalFrames));
+        position = target * frameSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
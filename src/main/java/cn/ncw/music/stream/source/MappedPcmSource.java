@@ -0,0 +1,104 @@
+package cn.ncw.music.stream.source;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 内存映射的未压缩PCM数据源
+ * <p>
+ * 将数据块整体映射到内存，读取直接由页缓存提供，不经过输入流的中间缓冲；跳转只需修改读取偏移。
+ * <p>
+ * 映射的生命周期：{@link #close()} 只释放本对象对映射缓冲区的引用，映射区域（Windows 下还有文件锁）
+ * 在缓冲区被垃圾回收后才解除，Java 没有公开的立即解除映射的方法。打开后不再使用的数据源应及时关闭，
+ * 避免映射区域在下一次回收前累积。
+ */
+public class MappedPcmSource implements PcmSource {
+
+    /**
+     * 单个映射区域的最大长度，超过时应使用 {@link ChannelPcmSource}
+     */
+    public static final long MAX_MAPPING_SIZE = Integer.MAX_VALUE;
+
+    private MappedByteBuffer data; // 关闭后为null
+    private final PcmFileHeader header;
+    private final int frameSize;
+    private final int dataLength;
+
+    // 相对数据块起始位置的读取偏移
+    private int position;
+
+    private MappedPcmSource(MappedByteBuffer data, PcmFileHeader header) {
+        this.data = data;
+        this.header = header;
+        this.frameSize = header.getFormat().getFrameSize();
+        this.dataLength = (int) header.getDataLength();
+    }
+
+    /**
+     * 映射文件中的数据块，映射建立后通道可以关闭
+     */
+    public static MappedPcmSource map(FileChannel channel, PcmFileHeader header) throws IOException {
+        if (header.getDataLength() > MAX_MAPPING_SIZE) {
+            throw new IOException("数据块过大，无法整体映射: " + header.getDataLength());
+        }
+        MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY,
+                header.getDataOffset(), header.getDataLength());
+        return new MappedPcmSource(data, header);
+    }
+
+    @Override
+    public AudioFormat getFormat() {
+        return header.getFormat();
+    }
+
+    @Override
+    public AudioFormat getSourceFormat() {
+        return header.getFormat();
+    }
+
+    @Override
+    public long getFrameLength() {
+        return header.getFrameLength();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        MappedByteBuffer mapped = data;
+        int remaining = dataLength - position;
+        if (mapped == null || remaining <= 0) {
+            return -1;
+        }
+
+        int toRead = Math.min(length, remaining);
+        toRead -= toRead % frameSize;
+        if (toRead <= 0) {
+            return 0;
+        }
+
+        mapped.get(position, buffer, offset, toRead);
+        position += toRead;
+        return toRead;
+    }
+
+    @Override
+    public boolean isRandomAccess() {
+        return true;
+    }
+
+    @Override
+    public void seekToFrame(long frame) {
+        long target = Math.max(0, Math.min(frame, header.getFrameLength()));
+        position = (int) (target * frameSize);
+    }
+
+    /**
+     * 释放对映射缓冲区的引用，之后的读取返回-1；映射区域在缓冲区被回收后解除
+     */
+    @Override
+    public void close() {
+        data = null;
+        position = dataLength;
+    }
+}
@@ -0,0 +1,280 @@
+package cn.ncw.music.stream.source;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 已解码PCM缓存 - 按字节预算进行LRU淘汰
+ * <p>
+ * 以文件路径、大小和修改时间作为键，文件被修改后自动失效。
+ * 缓存数据可以存放在堆内或堆外（直接缓冲区）；被淘汰的条目在仍被读取时不会立即释放，
+ * 因此堆外内存的实际占用可能短暂超过预算。
+ * <p>
+ * 正在解码、尚未放入的数据通过 {@link #reserve(long)} 预留预算，已缓存和预留的总量不超过预算。
+ */
+public class PcmCache {
+
+    public static final long DEFAULT_MAX_BYTES = 128L * 1024 * 1024;
+
+    private static final PcmCache SHARED = new PcmCache(DEFAULT_MAX_BYTES, false);
+
+    /**
+     * 进程内共享的缓存实例
+     */
+    public static PcmCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * 缓存键：路径 + 文件大小 + 修改时间
+     */
+    public record Key(String path, long size, long lastModified) {
+        public static Key of(File file) {
+            return new Key(file.toPath().toAbsolutePath().normalize().toString(),
+                    file.length(), file.lastModified());
+        }
+    }
+
+    /**
+     * 缓存条目：完整解码后的PCM数据
+     */
+    public static final class Entry {
+        private final AudioFormat format;
+        private final AudioFormat sourceFormat;
+        private final ByteBuffer data;
+
+        public Entry(AudioFormat format, AudioFormat sourceFormat, ByteBuffer data) {
+            this.format = format;
+            this.sourceFormat = sourceFormat;
+            this.data = data.asReadOnlyBuffer();
+        }
+
+        public AudioFormat getFormat() {
+            return format;
+        }
+
+        public AudioFormat getSourceFormat() {
+            return sourceFormat;
+        }
+
+        /**
+         * 只读数据，读取时应使用绝对位置
+         */
+        public ByteBuffer getData() {
+            return data;
+        }
+
+        /**
+         * 条目占用的内存，按缓冲区容量计算
+         */
+        public int getSizeBytes() {
+            return data.capacity();
+        }
+    }
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long maxBytes;
+    private long currentBytes;
+    private long reservedBytes;
+    private volatile boolean offHeap;
+
+    // 统计信息
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+    private final AtomicLong insertions = new AtomicLong(0);
+    private final AtomicLong rejections = new AtomicLong(0);
+
+    /**
+     * @param maxBytes 内存预算（字节），0表示禁用缓存
+     * @param offHeap  是否使用堆外内存存放缓存数据
+     */
+    public PcmCache(long maxBytes, boolean offHeap) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("缓存预算不能为负数");
+        }
+        this.maxBytes = maxBytes;
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * 查找缓存，命中时更新访问顺序
+     */
+    public Entry get(File file) {
+        return get(Key.of(file));
+    }
+
+    /**
+     * 按缓存键查找，命中时更新访问顺序
+     */
+    public Entry get(Key key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * 放入缓存，超出预算时淘汰最久未使用的条目
+     *
+     * @return 是否成功放入（单个条目超过预算时拒绝）
+     */
+    public synchronized boolean put(Key key, Entry entry) {
+        long size = entry.getSizeBytes();
+        if (size > maxBytes) {
+            rejections.incrementAndGet();
+            return false;
+        }
+
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            currentBytes -= previous.getSizeBytes();
+        }
+        currentBytes += size;
+        insertions.incrementAndGet();
+
+        // 同一路径的旧版本（文件已修改）不会再被命中，优先移除
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> e = iterator.next();
+            if (!e.getKey().equals(key) && e.getKey().path().equals(key.path())) {
+                currentBytes -= e.getValue().getSizeBytes();
+                iterator.remove();
+                evictions.incrementAndGet();
+            }
+        }
+
+        evictToBudget();
+        return true;
+    }
+
+    private void evictToBudget() {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (currentBytes + reservedBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Key, Entry> eldest = iterator.next();
+            currentBytes -= eldest.getValue().getSizeBytes();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * 为正在解码的数据预留预算，必要时淘汰最久未使用的条目
+     * <p>
+     * 数据放入缓存或放弃缓存前应通过 {@link #releaseReservation(long)} 归还预留。
+     *
+     * @return 是否预留成功；其他正在解码的数据已占满预算时失败，调用方应放弃缓存
+     */
+    public synchronized boolean reserve(long bytes) {
+        if (bytes <= 0) {
+            return true;
+        }
+        if (reservedBytes + bytes > maxBytes) {
+            rejections.incrementAndGet();
+            return false;
+        }
+        reservedBytes += bytes;
+        evictToBudget();
+        return true;
+    }
+
+    /**
+     * 归还 {@link #reserve(long)} 预留的预算
+     */
+    public synchronized void releaseReservation(long bytes) {
+        reservedBytes = Math.max(0, reservedBytes - bytes);
+    }
+
+    /**
+     * 按当前配置分配缓存数据缓冲区
+     */
+    public ByteBuffer allocate(int capacity) {
+        return offHeap ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * 检查指定大小的数据是否可能放入缓存
+     */
+    public synchronized boolean canCache(long sizeBytes) {
+        return sizeBytes <= maxBytes;
+    }
+
+    public synchronized void setMaxBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("缓存预算不能为负数");
+        }
+        this.maxBytes = maxBytes;
+        evictToBudget();
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 设置是否使用堆外内存，只影响之后放入的条目
+     */
+    public void setOffHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    // ==================== 统计信息 ====================
+
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    /**
+     * 正在解码、尚未放入缓存的数据预留的字节数
+     */
+    public synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public long getInsertionCount() {
+        return insertions.get();
+    }
+
+    /**
+     * 因超过预算而被拒绝缓存的次数
+     */
+    public long getRejectionCount() {
+        return rejections.get();
+    }
+}
@@ -0,0 +1,261 @@
+package cn.ncw.music.stream.source;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * 未压缩音频文件头 - 解析PCM格式及数据块在文件中的位置
+ * <p>
+ * 支持 RIFF/WAVE（PCM、IEEE浮点及 WAVE_FORMAT_EXTENSIBLE）和 AIFF/AIFC（未压缩、sowt、fl32）。
+ */
+public final class PcmFileHeader {
+
+    private static final int WAVE_FORMAT_PCM = 0x0001;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 0x0003;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+    private static final int MAX_CHUNKS = 64;
+
+    // AIFC 压缩类型
+    private static final int AIFC_NONE = beFourCC("NONE");
+    private static final int AIFC_SOWT = beFourCC("sowt");
+    private static final int AIFC_FL32 = beFourCC("fl32");
+
+    private final AudioFormat format;
+    private final long dataOffset;
+    private final long dataLength;
+
+    private PcmFileHeader(AudioFormat format, long dataOffset, long dataLength) {
+        this.format = format;
+        this.dataOffset = dataOffset;
+        this.dataLength = dataLength;
+    }
+
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * 数据块起始位置（字节）
+     */
+    public long getDataOffset() {
+        return dataOffset;
+    }
+
+    /**
+     * 数据块长度（字节，按整帧截断）
+     */
+    public long getDataLength() {
+        return dataLength;
+    }
+
+    public long getFrameLength() {
+        return dataLength / format.getFrameSize();
+    }
+
+    /**
+     * 解析文件头
+     *
+     * @return 文件头；不是可识别的未压缩格式时返回null
+     */
+    public static PcmFileHeader read(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < 12) {
+            return null;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header, 0);
+        if (header.getInt(0) == fourCC("RIFF") && header.getInt(8) == fourCC("WAVE")) {
+            return readWave(channel, fileSize);
+        }
+
+        header.order(ByteOrder.BIG_ENDIAN);
+        if (header.getInt(0) == beFourCC("FORM")) {
+            int formType = header.getInt(8);
+            if (formType == beFourCC("AIFF")) {
+                return readAiff(channel, fileSize, false);
+            }
+            if (formType == beFourCC("AIFC")) {
+                return readAiff(channel, fileSize, true);
+            }
+        }
+        return null;
+    }
+
+    private static PcmFileHeader readWave(FileChannel channel, long fileSize) throws IOException {
+        ByteBuffer chunkHeader = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        AudioFormat format = null;
+        long position = 12;
+
+        for (int i = 0; i < MAX_CHUNKS && position + 8 <= fileSize; i++) {
+            chunkHeader.clear();
+            readFully(channel, chunkHeader, position);
+            int chunkId = chunkHeader.getInt(0);
+            long chunkSize = Integer.toUnsignedLong(chunkHeader.getInt(4));
+            long body = position + 8;
+
+            if (chunkId == fourCC("fmt ")) {
+                if (chunkSize < 16) {
+                    return null;
+                }
+                ByteBuffer fmt = ByteBuffer.allocate((int) Math.min(chunkSize, 40)).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(channel, fmt, body);
+                format = parseWaveFormat(fmt);
+                if (format == null) {
+                    return null;
+                }
+            } else if (chunkId == fourCC("data")) {
+                if (format == null) {
+                    return null;
+                }
+                // 流式写入的文件可能未回填数据块长度
+                long available = fileSize - body;
+                long length = (chunkSize == 0 || chunkSize == 0xFFFFFFFFL) ? available : Math.min(chunkSize, available);
+                int frameSize = format.getFrameSize();
+                return new PcmFileHeader(format, body, length - length % frameSize);
+            }
+
+            // 数据块按偶数字节对齐
+            position = body + chunkSize + (chunkSize & 1);
+        }
+        return null;
+    }
+
+    private static PcmFileHeader readAiff(FileChannel channel, long fileSize, boolean aifc) throws IOException {
+        ByteBuffer chunkHeader = ByteBuffer.allocate(8).order(ByteOrder.BIG_ENDIAN);
+        AudioFormat format = null;
+        long position = 12;
+
+        for (int i = 0; i < MAX_CHUNKS && position + 8 <= fileSize; i++) {
+            chunkHeader.clear();
+            readFully(channel, chunkHeader, position);
+            int chunkId = chunkHeader.getInt(0);
+            long chunkSize = Integer.toUnsignedLong(chunkHeader.getInt(4));
+            long body = position + 8;
+
+            if (chunkId == beFourCC("COMM")) {
+                if (chunkSize < 18) {
+                    return null;
+                }
+                ByteBuffer comm = ByteBuffer.allocate((int) Math.min(chunkSize, 22)).order(ByteOrder.BIG_ENDIAN);
+                readFully(channel, comm, body);
+                format = parseAiffFormat(comm, aifc);
+                if (format == null) {
+                    return null;
+                }
+            } else if (chunkId == beFourCC("SSND")) {
+                if (format == null || chunkSize < 8) {
+                    return null;
+                }
+                ByteBuffer ssnd = ByteBuffer.allocate(8).order(ByteOrder.BIG_ENDIAN);
+                readFully(channel, ssnd, body);
+                long offset = Integer.toUnsignedLong(ssnd.getInt(0));
+                long dataOffset = body + 8 + offset;
+                long length = Math.min(chunkSize - 8 - offset, fileSize - dataOffset);
+                if (length < 0) {
+                    return null;
+                }
+                int frameSize = format.getFrameSize();
+                return new PcmFileHeader(format, dataOffset, length - length % frameSize);
+            }
+
+            position = body + chunkSize + (chunkSize & 1);
+        }
+        return null;
+    }
+
+    private static AudioFormat parseAiffFormat(ByteBuffer comm, boolean aifc) {
+        int channels = comm.getShort(0);
+        int bitsPerSample = comm.getShort(6);
+        double sampleRate = readExtended(comm, 8);
+
+        if (channels <= 0 || bitsPerSample <= 0 || bitsPerSample > 32 || !(sampleRate > 0)) {
+            return null;
+        }
+
+        AudioFormat.Encoding encoding = AudioFormat.Encoding.PCM_SIGNED;
+        boolean bigEndian = true;
+        if (aifc) {
+            if (comm.limit() < 22) {
+                return null;
+            }
+            int compression = comm.getInt(18);
+            if (compression == AIFC_SOWT) {
+                bigEndian = false;
+            } else if (compression == AIFC_FL32 && bitsPerSample == 32) {
+                encoding = AudioFormat.Encoding.PCM_FLOAT;
+            } else if (compression != AIFC_NONE) {
+                return null;
+            }
+        }
+
+        int frameSize = channels * ((bitsPerSample + 7) / 8);
+        return new AudioFormat(encoding, (float) sampleRate, bitsPerSample, channels, frameSize,
+                (float) sampleRate, bigEndian);
+    }
+
+    /**
+     * 读取 IEEE 754 80位扩展精度浮点数（AIFF采样率）
+     */
+    private static double readExtended(ByteBuffer buffer, int index) {
+        int exponent = buffer.getShort(index) & 0x7FFF;
+        long mantissa = buffer.getLong(index + 2);
+        if (exponent == 0 && mantissa == 0) {
+            return 0;
+        }
+        double value = (mantissa >>> 1) * 2.0 + (mantissa & 1);
+        return Math.scalb(value, exponent - 16383 - 63);
+    }
+
+    private static AudioFormat parseWaveFormat(ByteBuffer fmt) {
+        int formatTag = fmt.getShort(0) & 0xFFFF;
+        int channels = fmt.getShort(2) & 0xFFFF;
+        int sampleRate = fmt.getInt(4);
+        int blockAlign = fmt.getShort(12) & 0xFFFF;
+        int bitsPerSample = fmt.getShort(14) & 0xFFFF;
+
+        if (formatTag == WAVE_FORMAT_EXTENSIBLE) {
+            if (fmt.capacity() < 26) {
+                return null;
+            }
+            // SubFormat GUID 的前两个字节即格式标签
+            formatTag = fmt.getShort(24) & 0xFFFF;
+        }
+
+        if (channels <= 0 || sampleRate <= 0 || bitsPerSample <= 0 || blockAlign <= 0) {
+            return null;
+        }
+
+        AudioFormat.Encoding encoding;
+        if (formatTag == WAVE_FORMAT_PCM) {
+            encoding = bitsPerSample <= 8 ? AudioFormat.Encoding.PCM_UNSIGNED : AudioFormat.Encoding.PCM_SIGNED;
+        } else if (formatTag == WAVE_FORMAT_IEEE_FLOAT) {
+            encoding = AudioFormat.Encoding.PCM_FLOAT;
+        } else {
+            return null;
+        }
+
+        return new AudioFormat(encoding, sampleRate, bitsPerSample, channels, blockAlign, sampleRate, false);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) {
+                throw new IOException("文件头不完整");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static int fourCC(String id) {
+        return (id.charAt(0)) | (id.charAt(1) << 8) | (id.charAt(2) << 16) | (id.charAt(3) << 24);
+    }
+
+    private static int beFourCC(String id) {
+        return (id.charAt(0) << 24) | (id.charAt(1) << 16) | (id.charAt(2) << 8) | (id.charAt(3));
+    }
+}
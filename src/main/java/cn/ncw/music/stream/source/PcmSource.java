@@ -0,0 +1,43 @@
+package cn.ncw.music.stream.source;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * PCM数据源 - 播放循环的统一读取接口
+ * <p>
+ * 读取得到的数据均为 {@link #getFormat()} 格式、按整帧对齐的PCM数据，可直接写入音频设备。
+ */
+public interface PcmSource extends Closeable {
+
+    /**
+     * 输出的PCM格式
+     */
+    AudioFormat getFormat();
+
+    /**
+     * 文件原始格式
+     */
+    AudioFormat getSourceFormat();
+
+    /**
+     * 总帧数，未知时返回 {@link javax.sound.sampled.AudioSystem#NOT_SPECIFIED}
+     */
+    long getFrameLength();
+
+    /**
+     * 读取PCM数据（整帧），返回-1表示流结束
+     */
+    int read(byte[] buffer, int offset, int length) throws IOException;
+
+    /**
+     * 是否支持常数时间跳转（无需重新打开文件）
+     */
+    boolean isRandomAccess();
+
+    /**
+     * 跳转到指定帧，之后的读取从该帧开始
+     */
+    void seekToFrame(long frame) throws IOException;
+}
@@ -0,0 +1,143 @@
+package cn.ncw.music.stream.source;
+
+import cn.ncw.music.stream.dsp.PcmKernels;
+import cn.ncw.music.stream.dsp.SampleRateConverter;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * PCM数据源工厂 - 根据文件格式选择最合适的读取方式
+ */
+public class PcmSources {
+
+    private PcmSources() {
+    }
+
+    /**
+     * 打开音频文件
+     * <p>
+     * 设备可直接播放的未压缩WAV/AIFF文件优先使用内存映射的 {@link MappedPcmSource}，
+     * 数据块过大或映射失败时使用 {@link ChannelPcmSource}，其余格式回退到 {@link AudioStreamSource}。
+     */
+    public static PcmSource open(File file) throws UnsupportedAudioFileException, IOException {
+        PcmSource source = openRandomAccess(file);
+        return source != null ? source : new AudioStreamSource(file);
+    }
+
+    /**
+     * 打开音频文件，并使用已解码PCM缓存
+     * <p>
+     * 缓存命中时直接从缓存读取；需要解码的格式在首次播放时边解码边放入缓存。
+     * 可随机访问的未压缩文件已由页缓存提供，不查询也不放入缓存，不计入命中统计。
+     *
+     * @param cache 缓存，为null时等同于 {@link #open(File)}
+     */
+    public static PcmSource open(File file, PcmCache cache) throws UnsupportedAudioFileException, IOException {
+        return open(file, cache, true);
+    }
+
+    /**
+     * 打开音频文件，可选择是否将新解码的数据放入缓存
+     * <p>
+     * 放入缓存需要在解码期间累积整首曲目的PCM数据；只读取一遍、需要限制内存的场景（如离线渲染）
+     * 传入 populate=false，仍可使用已有的缓存。
+     *
+     * @param populate 缓存未命中时是否边解码边放入缓存
+     */
+    public static PcmSource open(File file, PcmCache cache, boolean populate)
+            throws UnsupportedAudioFileException, IOException {
+        if (cache == null || cache.getMaxBytes() == 0) {
+            return open(file);
+        }
+
+        PcmSource direct = openRandomAccess(file);
+        if (direct != null) {
+            return direct;
+        }
+
+        PcmCache.Key key = PcmCache.Key.of(file);
+        PcmCache.Entry entry = cache.get(key);
+        if (entry != null) {
+            return new CachedPcmSource(entry);
+        }
+        AudioStreamSource stream = new AudioStreamSource(file);
+        return populate ? new CachingPcmSource(stream, cache, key) : stream;
+    }
+
+    /**
+     * 以可随机访问的方式打开设备可直接播放的未压缩文件
+     *
+     * @return 映射或通道数据源，文件需要解码时返回null
+     */
+    private static PcmSource openRandomAccess(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            PcmFileHeader header;
+            try {
+                header = PcmFileHeader.read(channel);
+            } catch (IOException e) {
+                // 文件头无法识别，交给 Java Sound 处理
+                header = null;
+            }
+
+            if (header == null || !isLineSupported(header.getFormat())) {
+                channel.close();
+                return null;
+            }
+
+            if (header.getDataLength() <= MappedPcmSource.MAX_MAPPING_SIZE) {
+                try {
+                    MappedPcmSource mapped = MappedPcmSource.map(channel, header);
+                    channel.close();
+                    return mapped;
+                } catch (IOException ignored) {
+                    // 映射失败时使用通道读取
+                }
+            }
+            return new ChannelPcmSource(channel, header);
+        } catch (Throwable e) {
+            // 文件头损坏时解析可能抛出运行时异常，通道不能泄漏
+            try {
+                channel.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 将数据源重采样到指定采样率
+     * <p>
+     * 采样率相同或格式无法转换为浮点时原样返回。
+     *
+     * @param outputRate 输出采样率，小于等于0表示保持原采样率
+     */
+    public static PcmSource resample(PcmSource source, float outputRate, SampleRateConverter.Quality quality) {
+        AudioFormat format = source.getFormat();
+        if (outputRate <= 0 || Math.abs(format.getSampleRate() - outputRate) < 0.5f
+                || !PcmKernels.isSupported(format)) {
+            return source;
+        }
+        return new ResamplingPcmSource(source, outputRate, quality);
+    }
+
+    /**
+     * 检查音频设备是否能直接播放该格式
+     */
+    public static boolean isLineSupported(AudioFormat format) {
+        if (format == null) {
+            return false;
+        }
+        DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
+        return AudioSystem.isLineSupported(info);
+    }
+}
@@ -0,0 +1,155 @@
+package cn.ncw.music.stream.source;
+
+import cn.ncw.music.stream.dsp.PcmKernel;
+import cn.ncw.music.stream.dsp.PcmKernels;
+import cn.ncw.music.stream.dsp.SampleRateConverter;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import java.io.IOException;
+
+/**
+ * 重采样数据源 - 将任意采样率的数据源转换为固定的输出采样率
+ * <p>
+ * 按块读取原始数据源，转换为浮点后经 {@link SampleRateConverter} 重采样，再转换回原来的编码、
+ * 位深和字节序。输出格式只有采样率与原数据源不同，多首不同采样率的曲目因此可以共用同一设备格式。
+ */
+public class ResamplingPcmSource implements PcmSource {
+
+    private static final int BLOCK_FRAMES = 4096;
+
+    private final PcmSource delegate;
+    private final AudioFormat inputFormat;
+    private final AudioFormat outputFormat;
+    private final SampleRateConverter converter;
+    private final PcmKernel kernel = PcmKernels.get();
+    private final double ratio;
+
+    private final byte[] inputBytes;
+    private final float[] inputSamples;
+    private final float[] outputSamples;
+    private final byte[] outputBytes;
+    // outputBytes 中尚未读取的数据为 [pendingOffset, pendingLength)
+    private int pendingOffset;
+    private int pendingLength;
+    private boolean endOfStream;
+
+    public ResamplingPcmSource(PcmSource delegate, float outputRate, SampleRateConverter.Quality quality) {
+        AudioFormat format = delegate.getFormat();
+        if (!PcmKernels.isSupported(format)) {
+            throw new IllegalArgumentException("不支持重采样的格式: " + format);
+        }
+        this.delegate = delegate;
+        this.inputFormat = format;
+        this.outputFormat = new AudioFormat(
+                format.getEncoding(),
+                outputRate,
+                format.getSampleSizeInBits(),
+                format.getChannels(),
+                format.getFrameSize(),
+                outputRate,
+                format.isBigEndian()
+        );
+        this.ratio = outputRate / format.getSampleRate();
+        this.converter = new SampleRateConverter(format.getSampleRate(), outputRate,
+                format.getChannels(), quality, BLOCK_FRAMES);
+
+        int channels = format.getChannels();
+        int maxOutputFrames = converter.getMaxOutputFrames(BLOCK_FRAMES);
+        this.inputBytes = new byte[BLOCK_FRAMES * format.getFrameSize()];
+        this.inputSamples = new float[BLOCK_FRAMES * channels];
+        this.outputSamples = new float[maxOutputFrames * channels];
+        this.outputBytes = new byte[maxOutputFrames * format.getFrameSize()];
+    }
+
+    @Override
+    public AudioFormat getFormat() {
+        return outputFormat;
+    }
+
+    @Override
+    public AudioFormat getSourceFormat() {
+        return delegate.getSourceFormat();
+    }
+
+    @Override
+    public long getFrameLength() {
+        long frames = delegate.getFrameLength();
+        if (frames == AudioSystem.NOT_SPECIFIED) {
+            return frames;
+        }
+        return (long) Math.ceil(frames * ratio);
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        while (pendingOffset == pendingLength) {
+            if (endOfStream || !fill()) {
+                return -1;
+            }
+        }
+
+        int frameSize = outputFormat.getFrameSize();
+        int bytes = Math.min(length, pendingLength - pendingOffset);
+        bytes -= bytes % frameSize;
+        System.arraycopy(outputBytes, pendingOffset, buffer, offset, bytes);
+        pendingOffset += bytes;
+        return bytes;
+    }
+
+    /**
+     * 读取并重采样一块数据，流结束时输出滤波器中剩余的样本
+     *
+     * @return 流已结束且没有剩余数据时返回false
+     */
+    private boolean fill() throws IOException {
+        int channels = inputFormat.getChannels();
+        int frameSize = inputFormat.getFrameSize();
+        int bytesRead = delegate.read(inputBytes, 0, inputBytes.length);
+
+        int frames;
+        if (bytesRead < 0) {
+            endOfStream = true;
+            frames = converter.flush(outputSamples, 0);
+        } else {
+            int inputFrames = bytesRead / frameSize;
+            kernel.toFloat(inputFormat, inputBytes, 0, inputSamples, 0, inputFrames * channels);
+            frames = converter.process(inputSamples, 0, inputFrames, outputSamples, 0);
+        }
+
+        kernel.fromFloat(outputSamples, 0, outputFormat, outputBytes, 0, frames * channels);
+        pendingOffset = 0;
+        pendingLength = frames * frameSize;
+        return !endOfStream || pendingLength > 0;
+    }
+
+    @Override
+    public boolean isRandomAccess() {
+        return delegate.isRandomAccess();
+    }
+
+    /**
+     * 换算为原始数据源的帧位置后跳转，滤波器历史清空
+     */
+    @Override
+    public void seekToFrame(long frame) throws IOException {
+        delegate.seekToFrame(Math.round(frame / ratio));
+        converter.reset();
+        pendingOffset = 0;
+        pendingLength = 0;
+        endOfStream = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    public PcmSource getDelegate() {
+        return delegate;
+    }
+
+    public SampleRateConverter.Quality getQuality() {
+        return converter.getQuality();
+    }
+}
@@ -0,0 +1,141 @@
+package cn.ncw.music.stream.buffer;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PcmRingBuffer 单线程行为测试：容量取整、部分写入/读取、回绕和 skipTo
+ */
+class PcmRingBufferTest {
+
+    private static byte[] sequence(int start, int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (start + i);
+        }
+        return data;
+    }
+
+    @Test
+    void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(1, new PcmRingBuffer(1).capacity());
+        assertEquals(16, new PcmRingBuffer(16).capacity());
+        assertEquals(32, new PcmRingBuffer(17).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new PcmRingBuffer(0));
+        assertThrows(IllegalArgumentException.class, () -> new PcmRingBuffer((1 << 30) + 1));
+    }
+
+    @Test
+    void writeIsPartialWhenFull() {
+        PcmRingBuffer ring = new PcmRingBuffer(16);
+
+        assertEquals(16, ring.write(sequence(0, 20), 0, 20));
+        assertEquals(0, ring.writable());
+        assertEquals(0, ring.write(sequence(20, 4), 0, 4));
+
+        byte[] out = new byte[4];
+        assertEquals(4, ring.read(out, 0, 4));
+        assertArrayEquals(sequence(0, 4), out);
+
+        // 只剩4字节空间
+        assertEquals(4, ring.write(sequence(16, 8), 0, 8));
+        assertEquals(16, ring.readable());
+        assertEquals(20, ring.writePosition());
+    }
+
+    @Test
+    void readIsPartialWhenNotEnoughData() {
+        PcmRingBuffer ring = new PcmRingBuffer(16);
+        byte[] out = new byte[16];
+
+        assertEquals(0, ring.read(out, 0, 16));
+        ring.write(sequence(0, 5), 0, 5);
+        assertEquals(5, ring.read(out, 2, 16 - 2));
+        assertArrayEquals(sequence(0, 5), Arrays.copyOfRange(out, 2, 7));
+        assertEquals(0, ring.readable());
+        assertEquals(5, ring.readPosition());
+    }
+
+    @Test
+    void wrapsAroundPreservingOrder() {
+        PcmRingBuffer ring = new PcmRingBuffer(8);
+        byte[] out = new byte[8];
+
+        // 多轮读写，每轮都跨越缓冲区末尾
+        int position = 0;
+        for (int round = 0; round < 10; round++) {
+            assertEquals(6, ring.write(sequence(position, 6), 0, 6));
+            assertEquals(6, ring.read(out, 0, 6));
+            for (int i = 0; i < 6; i++) {
+                assertEquals((byte) (position + i), out[i], "round " + round + " byte " + i);
+            }
+            position += 6;
+        }
+        assertEquals(position, ring.writePosition());
+        assertEquals(position, ring.readPosition());
+    }
+
+    @Test
+    void byteBufferWriteAndReadWrapAround() {
+        PcmRingBuffer ring = new PcmRingBuffer(8);
+        ring.write(sequence(0, 5), 0, 5);
+        ring.read(new byte[5], 0, 5);
+
+        ByteBuffer src = ByteBuffer.allocateDirect(10);
+        src.put(sequence(5, 10)).flip();
+        assertEquals(8, ring.write(src));
+        assertEquals(8, src.position());
+
+        ByteBuffer dst = ByteBuffer.allocate(6);
+        assertEquals(6, ring.read(dst));
+        assertFalse(dst.hasRemaining());
+        assertArrayEquals(sequence(5, 6), dst.array());
+
+        dst.clear();
+        assertEquals(2, ring.read(dst));
+        assertEquals(2, dst.position());
+        assertEquals((byte) 11, dst.get(0));
+        assertEquals((byte) 12, dst.get(1));
+    }
+
+    @Test
+    void skipToDiscardsUpToPosition() {
+        PcmRingBuffer ring = new PcmRingBuffer(16);
+        ring.write(sequence(0, 10), 0, 10);
+
+        assertEquals(4, ring.skipTo(4));
+        assertEquals(4, ring.readPosition());
+        assertEquals(6, ring.readable());
+
+        byte[] out = new byte[2];
+        ring.read(out, 0, 2);
+        assertArrayEquals(sequence(4, 2), out);
+
+        // 已读取过的位置不回退
+        assertEquals(0, ring.skipTo(3));
+        assertEquals(6, ring.readPosition());
+    }
+
+    @Test
+    void skipToIsClampedToWritePosition() {
+        PcmRingBuffer ring = new PcmRingBuffer(8);
+        ring.write(sequence(0, 6), 0, 6);
+        ring.read(new byte[6], 0, 6);
+        ring.write(sequence(6, 5), 0, 5);
+
+        // 跨越回绕点并超出已写入位置
+        assertEquals(5, ring.skipTo(100));
+        assertEquals(11, ring.readPosition());
+        assertEquals(0, ring.readable());
+        assertEquals(8, ring.writable());
+
+        ring.write(sequence(11, 3), 0, 3);
+        byte[] out = new byte[3];
+        assertEquals(3, ring.read(out, 0, 3));
+        assertArrayEquals(sequence(11, 3), out);
+    }
+}
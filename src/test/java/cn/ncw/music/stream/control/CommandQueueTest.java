@@ -0,0 +1,191 @@
+package cn.ncw.music.stream.control;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CommandQueue 行为测试：绑定音频线程后按提交顺序执行，未绑定时在提交线程上执行
+ */
+class CommandQueueTest {
+
+    /**
+     * 模拟音频线程：每个数据块边界执行积压的命令，空闲时挂起
+     */
+    private static Thread startConsumer(CommandQueue queue, AtomicBoolean running) {
+        Thread thread = new Thread(() -> {
+            while (running.get()) {
+                queue.drain();
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }, "test-audio");
+        thread.setDaemon(true);
+        queue.bind(thread);
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    void executesInlineWhenUnbound() throws Exception {
+        CommandQueue queue = new CommandQueue();
+        Thread caller = Thread.currentThread();
+
+        CompletableFuture<Thread> future = queue.submit(Thread::currentThread);
+
+        assertTrue(future.isDone());
+        assertSame(caller, future.get());
+        assertEquals(1L, queue.getStatistics().get("inlineExecuted"));
+        assertFalse(queue.hasPending());
+    }
+
+    @Test
+    void executesOnBoundThreadInSubmissionOrder() throws Exception {
+        CommandQueue queue = new CommandQueue();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread consumer = startConsumer(queue, running);
+        try {
+            // 只有音频线程修改，无需同步
+            List<Integer> executed = new ArrayList<>();
+            List<CompletableFuture<Thread>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                int index = i;
+                futures.add(queue.submit(() -> {
+                    executed.add(index);
+                    return Thread.currentThread();
+                }));
+            }
+            for (CompletableFuture<Thread> future : futures) {
+                assertSame(consumer, future.get(2, TimeUnit.SECONDS));
+            }
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i, executed.get(i));
+            }
+            assertEquals(0L, queue.getStatistics().get("inlineExecuted"));
+        } finally {
+            running.set(false);
+            queue.unbind(consumer);
+        }
+    }
+
+    @Test
+    void preservesPerProducerOrderWithConcurrentProducers() throws Exception {
+        CommandQueue queue = new CommandQueue();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread consumer = startConsumer(queue, running);
+        int producers = 4;
+        int perProducer = 500;
+        int[] lastSeen = new int[producers];
+        Arrays.fill(lastSeen, -1);
+        List<String> violations = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = Collections.synchronizedList(new ArrayList<>());
+        try {
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perProducer; i++) {
+                        int index = i;
+                        futures.add(queue.submit(() -> {
+                            if (lastSeen[producer] != index - 1) {
+                                violations.add(producer + ": " + lastSeen[producer] + " -> " + index);
+                            }
+                            lastSeen[producer] = index;
+                            return null;
+                        }));
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join(2000);
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(2, TimeUnit.SECONDS);
+
+            assertEquals(List.of(), violations);
+            for (int p = 0; p < producers; p++) {
+                assertEquals(perProducer - 1, lastSeen[p]);
+            }
+        } finally {
+            running.set(false);
+            queue.unbind(consumer);
+        }
+    }
+
+    @Test
+    void submitFromBoundThreadExecutesImmediately() throws Exception {
+        CommandQueue queue = new CommandQueue();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread consumer = startConsumer(queue, running);
+        try {
+            // 音频线程上（如监听器回调中）提交的命令不等待自己
+            CompletableFuture<Boolean> outer = queue.submit(() -> queue.submit(() -> true).isDone());
+            assertTrue(outer.get(2, TimeUnit.SECONDS));
+        } finally {
+            running.set(false);
+            queue.unbind(consumer);
+        }
+    }
+
+    @Test
+    void commandsWaitForBoundThreadAndRunInlineOnUnbind() throws Exception {
+        CommandQueue queue = new CommandQueue();
+        // 已绑定但不执行命令的音频线程
+        Thread idle = new Thread(() -> { });
+        queue.bind(idle);
+
+        List<Integer> executed = new ArrayList<>();
+        CompletableFuture<Boolean> first = queue.submit(() -> executed.add(1));
+        CompletableFuture<Boolean> second = queue.submit(() -> executed.add(2));
+
+        // 非绑定线程调用 drain 不执行命令
+        queue.drain();
+        assertFalse(first.isDone());
+        assertTrue(queue.hasPending());
+
+        // 解除绑定的线程不是当前绑定线程时无效
+        queue.unbind(Thread.currentThread());
+        assertFalse(first.isDone());
+
+        queue.unbind(idle);
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertEquals(List.of(1, 2), executed);
+        assertEquals(2L, queue.getStatistics().get("inlineExecuted"));
+        assertFalse(queue.hasPending());
+    }
+
+    @Test
+    void failedCommandCompletesExceptionally() {
+        CommandQueue queue = new CommandQueue();
+        IllegalStateException cause = new IllegalStateException("失败");
+
+        CompletableFuture<Object> future = queue.submit(() -> {
+            throw cause;
+        });
+
+        ExecutionException error = assertThrows(ExecutionException.class, future::get);
+        assertSame(cause, error.getCause());
+        assertEquals(1L, queue.getStatistics().get("failed"));
+        // 之后的命令不受影响
+        assertTrue(queue.submit(() -> true).isDone());
+    }
+}
@@ -0,0 +1,276 @@
+package cn.ncw.music.stream.event;
+
+import cn.ncw.logger.log.NCWLoggerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PlaybackEventBus 行为测试：投递顺序与序号一致，位置事件按 COALESCE/DROP 处理积压，状态事件从不丢弃
+ * <p>
+ * 订阅者在收到第一个事件时阻塞，使之后发布的事件在其缓冲区中积压。
+ */
+class PlaybackEventBusTest {
+
+    private static final ThreadFactory DAEMON_THREADS = runnable -> {
+        Thread thread = new Thread(runnable, "test-event-bus");
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    private static final NCWLoggerFactory LOGGER = new NCWLoggerFactory("Test");
+    private PlaybackEventBus bus;
+
+    private record Delivered(PlaybackEvent.Type type, long sequence, double value) {
+    }
+
+    /**
+     * 在第一个事件上阻塞直到放行，收到 STOPPED 时结束
+     */
+    private static final class BlockingHandler implements PlaybackEventBus.Handler {
+        private final List<Delivered> events = new ArrayList<>();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final CountDownLatch stopped = new CountDownLatch(1);
+
+        @Override
+        public void onEvent(PlaybackEvent.Type type, long sequence, File file, File previousFile,
+                            double value, Object detail) {
+            synchronized (events) {
+                events.add(new Delivered(type, sequence, value));
+            }
+            if (entered.getCount() > 0) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (type == PlaybackEvent.Type.STOPPED) {
+                stopped.countDown();
+            }
+        }
+
+        List<Delivered> awaitStopped() throws InterruptedException {
+            assertTrue(stopped.await(2, TimeUnit.SECONDS), "未收到 STOPPED");
+            synchronized (events) {
+                return new ArrayList<>(events);
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (bus != null) {
+            bus.close();
+        }
+    }
+
+    private static List<PlaybackEvent.Type> types(List<Delivered> events) {
+        return events.stream().map(Delivered::type).toList();
+    }
+
+    private static void assertSequencesIncreasing(List<Delivered> events) {
+        for (int i = 1; i < events.size(); i++) {
+            assertTrue(events.get(i).sequence() > events.get(i - 1).sequence(), "序号未递增: " + events);
+        }
+    }
+
+    private static long stat(PlaybackEventBus bus, String key) {
+        Map<String, Object> stats = bus.getStatistics();
+        return ((Number) stats.get(key)).longValue();
+    }
+
+    @Test
+    void stateEventsAreDeliveredInOrderAndNeverDropped() throws Exception {
+        bus = new PlaybackEventBus(DAEMON_THREADS, 4, LOGGER);
+        BlockingHandler handler = new BlockingHandler();
+        bus.subscribe(handler);
+
+        bus.publish(PlaybackEvent.Type.STARTED);
+        assertTrue(handler.entered.await(2, TimeUnit.SECONDS));
+        // 积压远超初始容量，缓冲区扩容
+        PlaybackEvent.Type[] cycle = {PlaybackEvent.Type.PAUSED, PlaybackEvent.Type.RESUMED, PlaybackEvent.Type.VOLUME};
+        for (int i = 0; i < 99; i++) {
+            bus.publish(cycle[i % cycle.length]);
+        }
+        bus.publish(PlaybackEvent.Type.STOPPED);
+        handler.release.countDown();
+
+        List<Delivered> events = handler.awaitStopped();
+        assertEquals(101, events.size());
+        assertEquals(PlaybackEvent.Type.STARTED, events.get(0).type());
+        for (int i = 0; i < 99; i++) {
+            assertEquals(cycle[i % cycle.length], events.get(i + 1).type());
+        }
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i + 1, events.get(i).sequence());
+        }
+        assertEquals(0, stat(bus, "droppedPositions"));
+    }
+
+    @Test
+    void coalescePolicyKeepsLatestPositionInOrder() throws Exception {
+        bus = new PlaybackEventBus(DAEMON_THREADS, 8, LOGGER);
+        bus.setPositionPolicy(PlaybackEventBus.PositionPolicy.COALESCE);
+        BlockingHandler handler = new BlockingHandler();
+        bus.subscribe(handler);
+
+        bus.publish(PlaybackEvent.Type.STARTED);
+        assertTrue(handler.entered.await(2, TimeUnit.SECONDS));
+        for (int i = 1; i <= 5; i++) {
+            bus.publish(PlaybackEvent.Type.POSITION, null, null, i / 10.0, null);
+        }
+        bus.publish(PlaybackEvent.Type.PAUSED);
+        // 状态事件之后的位置事件：旧位置作废，新位置排在状态事件之后
+        bus.publish(PlaybackEvent.Type.POSITION, null, null, 0.6, null);
+        bus.publish(PlaybackEvent.Type.POSITION, null, null, 0.7, null);
+        bus.publish(PlaybackEvent.Type.STOPPED);
+        handler.release.countDown();
+
+        List<Delivered> events = handler.awaitStopped();
+        assertEquals(List.of(PlaybackEvent.Type.STARTED, PlaybackEvent.Type.PAUSED,
+                PlaybackEvent.Type.POSITION, PlaybackEvent.Type.STOPPED), types(events));
+        assertEquals(0.7, events.get(2).value());
+        // 合并的位置事件取最新的序号
+        assertEquals(9, events.get(2).sequence());
+        assertSequencesIncreasing(events);
+        assertEquals(6, stat(bus, "coalescedPositions"));
+        assertEquals(0, stat(bus, "droppedPositions"));
+    }
+
+    @Test
+    void dropPolicyDiscardsNewPositionsWhenFull() throws Exception {
+        bus = new PlaybackEventBus(DAEMON_THREADS, 4, LOGGER);
+        bus.setPositionPolicy(PlaybackEventBus.PositionPolicy.DROP);
+        BlockingHandler handler = new BlockingHandler();
+        bus.subscribe(handler);
+
+        bus.publish(PlaybackEvent.Type.STARTED);
+        assertTrue(handler.entered.await(2, TimeUnit.SECONDS));
+        for (int i = 1; i <= 6; i++) {
+            bus.publish(PlaybackEvent.Type.POSITION, null, null, i / 10.0, null);
+        }
+        // 缓冲区已满，状态事件仍然入队
+        bus.publish(PlaybackEvent.Type.STOPPED);
+        handler.release.countDown();
+
+        List<Delivered> events = handler.awaitStopped();
+        assertEquals(List.of(PlaybackEvent.Type.STARTED, PlaybackEvent.Type.POSITION, PlaybackEvent.Type.POSITION,
+                PlaybackEvent.Type.POSITION, PlaybackEvent.Type.POSITION, PlaybackEvent.Type.STOPPED), types(events));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i / 10.0, events.get(i).value());
+        }
+        assertEquals(8, events.get(5).sequence());
+        assertSequencesIncreasing(events);
+        assertEquals(2, stat(bus, "droppedPositions"));
+        assertEquals(0, stat(bus, "coalescedPositions"));
+    }
+
+    @Test
+    void slowSubscriberDoesNotDelayOthers() throws Exception {
+        bus = new PlaybackEventBus(DAEMON_THREADS, 4, LOGGER);
+        BlockingHandler slow = new BlockingHandler();
+        BlockingHandler fast = new BlockingHandler();
+        bus.subscribe(slow);
+        bus.subscribe(fast);
+        fast.release.countDown();
+
+        bus.publish(PlaybackEvent.Type.STARTED);
+        bus.publish(PlaybackEvent.Type.STOPPED);
+
+        assertEquals(List.of(PlaybackEvent.Type.STARTED, PlaybackEvent.Type.STOPPED), types(fast.awaitStopped()));
+        assertEquals(1, slow.stopped.getCount());
+        slow.release.countDown();
+        assertEquals(List.of(PlaybackEvent.Type.STARTED, PlaybackEvent.Type.STOPPED), types(slow.awaitStopped()));
+    }
+
+    @Test
+    void flowSubscriberReceivesRequestedEventsInOrderThenComplete() throws Exception {
+        bus = new PlaybackEventBus(DAEMON_THREADS, 4, LOGGER);
+        List<PlaybackEvent> received = new ArrayList<>();
+        CountDownLatch completed = new CountDownLatch(1);
+        bus.subscribe(new Flow.Subscriber<PlaybackEvent>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(PlaybackEvent item) {
+                synchronized (received) {
+                    received.add(item);
+                }
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+                completed.countDown();
+            }
+        });
+
+        bus.publish(PlaybackEvent.Type.STARTED);
+        bus.publish(PlaybackEvent.Type.PAUSED);
+        bus.publish(PlaybackEvent.Type.RESUMED);
+        bus.close();
+
+        assertTrue(completed.await(2, TimeUnit.SECONDS));
+        synchronized (received) {
+            assertEquals(List.of(PlaybackEvent.Type.STARTED, PlaybackEvent.Type.PAUSED, PlaybackEvent.Type.RESUMED),
+                    received.stream().map(PlaybackEvent::type).toList());
+            assertEquals(List.of(1L, 2L, 3L), received.stream().map(PlaybackEvent::sequence).toList());
+        }
+        // 投递线程结束后注销
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (bus.getSubscriberCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, bus.getSubscriberCount());
+    }
+
+    @Test
+    void subscriberCancelledInOnSubscribeIsNotRegistered() {
+        bus = new PlaybackEventBus(DAEMON_THREADS, 4, LOGGER);
+        bus.subscribe(new Flow.Subscriber<PlaybackEvent>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.cancel();
+            }
+
+            @Override
+            public void onNext(PlaybackEvent item) {
+                fail("已取消的订阅者收到事件");
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        assertEquals(0, bus.getSubscriberCount());
+        bus.publish(PlaybackEvent.Type.STARTED);
+    }
+}
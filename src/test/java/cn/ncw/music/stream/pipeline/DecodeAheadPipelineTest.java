@@ -0,0 +1,216 @@
+package cn.ncw.music.stream.pipeline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DecodeAheadPipeline 行为测试：整帧读取、流结束、跳转代号丢弃过期数据、解码错误传递
+ * <p>
+ * 测试数据每帧4字节，内容为帧序号，读到的任何过期数据都会表现为序号不连续。
+ */
+class DecodeAheadPipelineTest {
+
+    private static final int FRAME_SIZE = 4;
+    private static final long TIMEOUT_MS = 2000;
+
+    private final Object readLock = new Object();
+    private DecodeAheadPipeline pipeline;
+
+    /**
+     * 按帧序号生成数据的可重定位音频流，每次最多返回 maxRead 字节（可以不是整帧）
+     */
+    private static final class FrameSource implements DecodeAheadPipeline.PcmReader {
+        private final int totalFrames;
+        private final int maxRead;
+        private final int failAtByte;
+        private long position;
+
+        FrameSource(int totalFrames, int maxRead, int failAtByte) {
+            this.totalFrames = totalFrames;
+            this.maxRead = maxRead;
+            this.failAtByte = failAtByte;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (failAtByte >= 0 && position >= failAtByte) {
+                throw new IOException("模拟解码错误");
+            }
+            long end = (long) totalFrames * FRAME_SIZE;
+            if (position >= end) {
+                return -1;
+            }
+            int n = (int) Math.min(Math.min(length, maxRead), end - position);
+            for (int i = 0; i < n; i++) {
+                long bytePosition = position + i;
+                int frame = (int) (bytePosition / FRAME_SIZE);
+                buffer[offset + i] = (byte) (frame >>> (8 * (3 - (int) (bytePosition % FRAME_SIZE))));
+            }
+            position += n;
+            return n;
+        }
+
+        void seekToFrame(int frame) {
+            position = (long) frame * FRAME_SIZE;
+        }
+    }
+
+    private void start(DecodeAheadPipeline.PcmReader reader) {
+        pipeline = new DecodeAheadPipeline(64, 4, FRAME_SIZE, readLock);
+        pipeline.start(reader, "test-decoder");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+    }
+
+    /**
+     * 读取指定数量的帧，返回帧序号；遇到流结束时返回已读到的部分
+     */
+    private int[] readFrames(int count) throws Exception {
+        int[] frames = new int[count];
+        byte[] buffer = new byte[37];
+        int collected = 0;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+        while (collected < count) {
+            assertTrue(System.nanoTime() < deadline, "读取超时");
+            int maxBytes = Math.min(buffer.length, (count - collected) * FRAME_SIZE);
+            int n = pipeline.read(buffer, 0, maxBytes, 100, TimeUnit.MILLISECONDS);
+            if (n < 0) {
+                return Arrays.copyOf(frames, collected);
+            }
+            assertEquals(0, n % FRAME_SIZE, "读取的数据必须是整帧");
+            ByteBuffer view = ByteBuffer.wrap(buffer, 0, n);
+            while (view.hasRemaining()) {
+                frames[collected++] = view.getInt();
+            }
+        }
+        return frames;
+    }
+
+    private static void assertConsecutive(int firstFrame, int[] frames) {
+        for (int i = 0; i < frames.length; i++) {
+            assertEquals(firstFrame + i, frames[i], "帧 " + i);
+        }
+    }
+
+    private int readUntilEnd() throws Exception {
+        byte[] buffer = new byte[64];
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+        while (System.nanoTime() < deadline) {
+            int n = pipeline.read(buffer, 0, buffer.length, 100, TimeUnit.MILLISECONDS);
+            if (n < 0) {
+                return n;
+            }
+        }
+        return fail("读取超时");
+    }
+
+    @Test
+    void deliversWholeFramesInOrderThenEndOfStream() throws Exception {
+        // 每次只解码6字节，写入阶段仍然只读到整帧
+        start(new FrameSource(500, 6, -1));
+
+        int[] frames = readFrames(600);
+        assertEquals(500, frames.length);
+        assertConsecutive(0, frames);
+
+        byte[] buffer = new byte[16];
+        assertEquals(-1, pipeline.read(buffer, 0, buffer.length, 100, TimeUnit.MILLISECONDS));
+        assertEquals(500L * FRAME_SIZE, pipeline.getDecodedBytes());
+        assertEquals(500L * FRAME_SIZE, pipeline.getReadPosition());
+    }
+
+    @Test
+    void flushDiscardsDataDecodedBeforeSeek() throws Exception {
+        FrameSource source = new FrameSource(100_000, 64, -1);
+        start(source);
+
+        assertConsecutive(0, readFrames(10));
+        // 等待解码线程填满环形缓冲区，使其中确实有需要丢弃的旧数据
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+        while (pipeline.getQueuedBytes() < pipeline.getCapacityBytes() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        for (int seek : new int[]{50_000, 1_000, 70_000}) {
+            synchronized (readLock) {
+                source.seekToFrame(seek);
+                pipeline.flush();
+            }
+            assertConsecutive(seek, readFrames(200));
+            assertEquals(pipeline.getGeneration(), pipeline.getReadGeneration());
+        }
+        assertEquals(3, pipeline.getGeneration());
+        assertTrue(pipeline.getDroppedBytes() > 0);
+    }
+
+    @Test
+    void flushAfterEndOfStreamRestartsDecoding() throws Exception {
+        FrameSource source = new FrameSource(50, 64, -1);
+        start(source);
+
+        assertEquals(50, readFrames(100).length);
+        assertEquals(-1, readUntilEnd());
+
+        synchronized (readLock) {
+            source.seekToFrame(20);
+            pipeline.flush();
+        }
+        int[] frames = readFrames(100);
+        assertEquals(30, frames.length);
+        assertConsecutive(20, frames);
+        assertEquals(-1, readUntilEnd());
+    }
+
+    @Test
+    void decodeErrorIsThrownAfterBufferedData() throws Exception {
+        start(new FrameSource(1000, 64, 40 * FRAME_SIZE));
+
+        int[] frames = readFrames(40);
+        assertConsecutive(0, frames);
+
+        byte[] buffer = new byte[16];
+        IOException error = assertThrows(IOException.class, () -> {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+            while (System.nanoTime() < deadline) {
+                pipeline.read(buffer, 0, buffer.length, 100, TimeUnit.MILLISECONDS);
+            }
+        });
+        assertEquals("模拟解码错误", error.getMessage());
+        // 错误只抛出一次，之后报告流结束
+        assertEquals(-1, pipeline.read(buffer, 0, buffer.length, 100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void readTimesOutWithoutData() throws Exception {
+        // 解码线程一直读不到数据
+        start((buffer, offset, length) -> {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+            return 0;
+        });
+        byte[] buffer = new byte[16];
+        assertEquals(0, pipeline.read(buffer, 0, buffer.length, 20, TimeUnit.MILLISECONDS));
+        assertTrue(pipeline.getUnderflowCount() > 0);
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new DecodeAheadPipeline(0, 4, FRAME_SIZE, null));
+        assertThrows(IllegalArgumentException.class, () -> new DecodeAheadPipeline(64, 0, FRAME_SIZE, null));
+        assertThrows(IllegalArgumentException.class, () -> new DecodeAheadPipeline(64, 4, 0, null));
+        // 数据块向下对齐到整帧
+        assertEquals(60, new DecodeAheadPipeline(62, 4, 6, null).getChunkSize());
+    }
+}